@@ -0,0 +1,173 @@
+package avltree.bench;
+
+import avltree.AVLTree;
+import avltree.AVLTreeMetrics;
+import avltree.BalancePolicy;
+import avltree.LongLongAVLTree;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AVLTree and LongLongAVLTree of size keys under each BalancePolicy, in two workloads.
+ * <p>
+ * churn is a sliding window: every invocation inserts the next key of a stream and deletes the key inserted
+ * size invocations before it. SEQUENTIAL streams ascending keys (a queue, always at the two ends of the tree),
+ * RANDOM scrambles them over the int range. Its counters are in the same unit as the churn score, so
+ * insertRotations / churn is the rotations per insert.
+ * <p>
+ * drain fills a tree with the keys [0, size) in keyOrder and deletes all of them in a random order; this is
+ * where WAVL's deletes differ from AVL's. Its counters are the rotations of the fills and of the drains, which
+ * JMH sums over the measurement iterations: divide by Cnt for the rotations of one fill and one drain.
+ * <p>
+ * Rotations are counted as single rotations, a double rotation counting two.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class BalancingBenchmark {
+
+    @Param({"AVL_TREE", "LONG_LONG_AVL_TREE"})
+    public Tree impl;
+
+    @Param({"AVL", "WAVL"})
+    public BalancePolicy policy;
+
+    @Param({"SEQUENTIAL", "RANDOM"})
+    public KeyOrder keyOrder;
+
+    @Param({"100000"})
+    public int size;
+
+    private Tree.Target tree;
+    private int next;
+    private int[] drainOrder;
+
+    /** The two trees that balance under a BalancePolicy, with their rotation counts. */
+    public enum Tree {
+        AVL_TREE {
+            @Override
+            Target create(BalancePolicy policy) {
+                AVLTree tree = new AVLTree();
+                AVLTreeMetrics metrics = new AVLTreeMetrics();
+                tree.setMetrics(metrics);
+                tree.setBalancePolicy(policy);
+                return new Target() {
+                    public int insert(int k) { return tree.insert(k, (k & 1) == 0); }
+                    public int delete(int k) { return tree.delete(k); }
+                    public long rotations() { return metrics.getSingleRotations() + 2 * metrics.getDoubleRotations(); }
+                };
+            }
+        },
+        LONG_LONG_AVL_TREE {
+            @Override
+            Target create(BalancePolicy policy) {
+                LongLongAVLTree tree = new LongLongAVLTree();
+                tree.setBalancePolicy(policy);
+                return new Target() {
+                    public int insert(int k) { return tree.insert(k, k); }
+                    public int delete(int k) { return tree.delete(k); }
+                    public long rotations() { return tree.rotationCount(); }
+                };
+            }
+        };
+
+        abstract Target create(BalancePolicy policy);
+
+        interface Target {
+            int insert(int k);
+
+            int delete(int k);
+
+            long rotations();
+        }
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class ChurnCounters {
+        public long insertRotations;
+        public long deleteRotations;
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class DrainCounters {
+        public long insertRotations;
+        public long deleteRotations;
+    }
+
+    /** A freshly filled tree for every drain invocation. */
+    @State(Scope.Thread)
+    public static class FullTree {
+        Tree.Target tree;
+        long fillRotations;
+
+        @Setup(Level.Invocation)
+        public void fill(BalancingBenchmark bench) {
+            tree = bench.impl.create(bench.policy);
+            for (int k : bench.keyOrder.keys(bench.size, 42)) tree.insert(k);
+            fillRotations = tree.rotations();
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        if (keyOrder != KeyOrder.SEQUENTIAL && keyOrder != KeyOrder.RANDOM) {
+            throw new IllegalArgumentException("unsupported key order: " + keyOrder);
+        }
+        tree = impl.create(policy);
+        for (next = 0; next < size; next++) tree.insert(key(next));
+        drainOrder = KeyOrder.RANDOM.keys(size, 1025);
+    }
+
+    @Benchmark
+    public int churn(ChurnCounters counters) {
+        long before = tree.rotations();
+        int result = tree.insert(key(next));
+        long inserted = tree.rotations();
+        result += tree.delete(key(next - size));
+        next++;
+        counters.insertRotations += inserted - before;
+        counters.deleteRotations += tree.rotations() - inserted;
+        return result;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3)
+    @Measurement(iterations = 10)
+    public int drain(FullTree full, DrainCounters counters) {
+        int rebalancing = 0;
+        for (int k : drainOrder) rebalancing += full.tree.delete(k);
+        counters.insertRotations += full.fillRotations;
+        counters.deleteRotations += full.tree.rotations() - full.fillRotations;
+        return rebalancing;
+    }
+
+    // The j-th key of the stream. RANDOM uses murmur3's finalizer, a bijection on int, so keys never repeat within
+    // 2^32 invocations; a plain multiplicative hash (a Weyl sequence) spreads consecutive keys too evenly to churn
+    // like random keys, and rotates once on every insert and never on a delete
+    private int key(int j) {
+        if (keyOrder == KeyOrder.SEQUENTIAL) return j;
+        j = (j ^ (j >>> 16)) * 0x85EBCA6B;
+        j = (j ^ (j >>> 13)) * 0xC2B2AE35;
+        return j ^ (j >>> 16);
+    }
+}
@@ -0,0 +1,23 @@
+package avltree.bench;
+
+import java.util.Arrays;
+
+/**
+ * Entry point of benchmarks.jar: runs JMH with the GC profiler enabled unless another -prof is given,
+ * so every run reports allocation rates (gc.alloc.rate, gc.alloc.rate.norm) next to the scores.
+ */
+public final class BenchmarkMain {
+
+    private BenchmarkMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (!Arrays.asList(args).contains("-prof")) {
+            String[] with_gc = Arrays.copyOf(args, args.length + 2);
+            with_gc[args.length] = "-prof";
+            with_gc[args.length + 1] = "gc";
+            args = with_gc;
+        }
+        org.openjdk.jmh.Main.main(args);
+    }
+}
@@ -0,0 +1,73 @@
+package avltree.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Filling an empty tree with size keys, and emptying a full one, in keyOrder.
+ * <p>
+ * Scores are per whole fill/drain; divide by size for the cost per insert/delete. With the GC profiler,
+ * gc.alloc.rate.norm of insertAll divided by size is the heap footprint per entry.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Thread)
+public class BuildBenchmark {
+
+    @Param({"AVL_TREE", "ARRAY_AVL_TREE", "B_TREE", "BITSET_AVL_TREE", "TREE_MAP"})
+    public Impl impl;
+
+    @Param({"SEQUENTIAL", "RANDOM", "ZIPFIAN", "ADVERSARIAL"})
+    public KeyOrder keyOrder;
+
+    @Param({"1000", "100000", "10000000"})
+    public int size;
+
+    private int[] keys;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        keys = keyOrder.keys(size, 42);
+    }
+
+    /** A freshly filled tree for every deleteAll invocation. */
+    @State(Scope.Thread)
+    public static class FullTree {
+        Impl.Target tree;
+
+        @Setup(Level.Invocation)
+        public void fill(BuildBenchmark bench) {
+            tree = bench.impl.create();
+            for (int k : bench.keys) tree.insert(k, (k & 1) == 0);
+        }
+    }
+
+    @Benchmark
+    public Impl.Target insertAll() {
+        Impl.Target tree = impl.create();
+        for (int k : keys) tree.insert(k, (k & 1) == 0);
+        return tree;
+    }
+
+    @Benchmark
+    public int deleteAll(FullTree full) {
+        int rebalancing = 0;
+        for (int k : keys) rebalancing += full.tree.delete(k);
+        return rebalancing;
+    }
+}
@@ -0,0 +1,97 @@
+package avltree.bench;
+
+import avltree.ConcurrentAVLTree;
+import avltree.IntBooleanTree;
+import avltree.ShardedAVLTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Read-only search throughput of one thread-safe tree of size keys at 1, 2, 4 and 8 threads: the lock-free
+ * ConcurrentAVLTree search against ShardedAVLTree, whose search takes a shard's read lock.
+ * <p>
+ * The score is the total over all threads, so reads that scale with cores grow with the thread count up to the
+ * number of cores of the machine.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConcurrentReadBenchmark {
+
+    private static final int LOOKUPS_PER_THREAD = 1 << 16;
+
+    @Param({"CONCURRENT", "SHARDED"})
+    public String impl;
+
+    @Param({"RANDOM", "ZIPFIAN"})
+    public KeyOrder keyOrder;
+
+    @Param({"1000000"})
+    public int size;
+
+    private IntBooleanTree tree;
+    private final AtomicInteger threads = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void fill() {
+        tree = impl.equals("SHARDED") ? new ShardedAVLTree() : new ConcurrentAVLTree();
+        for (int k : KeyOrder.RANDOM.keys(size, 42)) tree.insert(k, (k & 1) == 0);
+    }
+
+    /** The keys a thread looks up, drawn with a seed of its own. */
+    @State(Scope.Thread)
+    public static class Lookups {
+        int[] keys;
+        int next;
+
+        @Setup(Level.Trial)
+        public void draw(ConcurrentReadBenchmark bench) {
+            keys = bench.keyOrder.lookups(bench.size, LOOKUPS_PER_THREAD, bench.threads.getAndIncrement());
+        }
+
+        int nextKey() {
+            return keys[next++ & (LOOKUPS_PER_THREAD - 1)];
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Boolean search1(Lookups lookups) {
+        return tree.search(lookups.nextKey());
+    }
+
+    @Benchmark
+    @Threads(2)
+    public Boolean search2(Lookups lookups) {
+        return tree.search(lookups.nextKey());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Boolean search4(Lookups lookups) {
+        return tree.search(lookups.nextKey());
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Boolean search8(Lookups lookups) {
+        return tree.search(lookups.nextKey());
+    }
+}
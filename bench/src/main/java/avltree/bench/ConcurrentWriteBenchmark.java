@@ -0,0 +1,75 @@
+package avltree.bench;
+
+import avltree.ConcurrentAVLTree;
+import avltree.IntBooleanTree;
+import avltree.ShardedAVLTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * insert/delete pairs from several threads against one thread-safe tree that starts with size keys: the
+ * single-lock ConcurrentAVLTree against the range-sharded ShardedAVLTree.
+ * <p>
+ * Run with -t 1, -t 4, -t 16 ... to see how writes scale. ZIPFIAN concentrates the writes on a few keys,
+ * which is what makes ShardedAVLTree move its shard boundaries.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConcurrentWriteBenchmark {
+
+    private static final int KEYS_PER_THREAD = 1 << 16;
+
+    @Param({"CONCURRENT", "SHARDED"})
+    public String impl;
+
+    @Param({"RANDOM", "ZIPFIAN"})
+    public KeyOrder keyOrder;
+
+    @Param({"1000000"})
+    public int size;
+
+    private IntBooleanTree tree;
+    private final AtomicInteger threads = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void fill() {
+        tree = impl.equals("SHARDED") ? new ShardedAVLTree() : new ConcurrentAVLTree();
+        for (int k : KeyOrder.RANDOM.keys(size, 42)) tree.insert(2 * k, (k & 1) == 0);
+    }
+
+    /** The odd keys, which are not in the tree, that a thread inserts and deletes again. */
+    @State(Scope.Thread)
+    public static class Keys {
+        int[] keys;
+        int next;
+
+        @Setup(Level.Trial)
+        public void draw(ConcurrentWriteBenchmark bench) {
+            keys = bench.keyOrder.lookups(bench.size, KEYS_PER_THREAD, bench.threads.getAndIncrement());
+            for (int i = 0; i < keys.length; i++) keys[i] = 2 * keys[i] + 1;
+        }
+    }
+
+    @Benchmark
+    public int insertDelete(Keys keys) {
+        int k = keys.keys[keys.next++ & (KEYS_PER_THREAD - 1)];
+        return tree.insert(k, true) + tree.delete(k);
+    }
+}
@@ -0,0 +1,92 @@
+package avltree.bench;
+
+import avltree.DurableAVLTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * insert/delete pairs against a DurableAVLTree at each Durability: throughput in pairs per millisecond, and the
+ * latency distribution of a pair in microseconds (read p50 and p99 off the SampleTime percentiles; NONE takes
+ * well under a microsecond, so a millisecond unit would round every sample of it to zero).
+ * <p>
+ * Group commit only pays off with concurrent writers: run with -t 1, -t 4, -t 16 ... to compare BATCHED with
+ * PER_OP. The log lives in a temporary directory under java.io.tmpdir, so the numbers are those of the file
+ * system behind it: pass -jvmArgsAppend -Djava.io.tmpdir=... to put it on the disk under test, and report that
+ * file system with the results (tmpfs makes fsync nearly free).
+ */
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DurabilityBenchmark {
+
+    @Param({"NONE", "BATCHED", "PER_OP"})
+    public DurableAVLTree.Durability durability;
+
+    private Path dir;
+    private DurableAVLTree tree;
+    private final AtomicInteger threads = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void open() throws IOException {
+        dir = Files.createTempDirectory("avl-wal");
+        tree = DurableAVLTree.open(dir, durability);
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws IOException {
+        tree.close();
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path p : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) Files.delete(p);
+        }
+    }
+
+    /** Every thread works on its own key range, so the inserts never collide. */
+    @State(Scope.Thread)
+    public static class Keys {
+        int next;
+
+        @Setup(Level.Trial)
+        public void range(DurabilityBenchmark bench) {
+            next = bench.threads.getAndIncrement() << 24;
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int insertDelete(Keys keys) {
+        return pair(keys);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public int insertDeleteLatency(Keys keys) {
+        return pair(keys);
+    }
+
+    private int pair(Keys keys) {
+        int k = keys.next++;
+        return tree.insert(k, (k & 1) == 0) + tree.delete(k);
+    }
+}
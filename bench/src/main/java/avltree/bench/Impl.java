@@ -0,0 +1,134 @@
+package avltree.bench;
+
+import avltree.AVLTree;
+import avltree.ArrayAVLTree;
+import avltree.BTree;
+import avltree.BitsetAVLTree;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The ordered maps under test, behind one small interface so every benchmark can run against each of them.
+ * Each fork only ever sees one implementation, so the interface calls stay monomorphic.
+ */
+public enum Impl {
+    AVL_TREE {
+        @Override
+        Target create() {
+            AVLTree tree = new AVLTree();
+            return new Target() {
+                public int insert(int k, boolean v) { return tree.insert(k, v); }
+                public int delete(int k) { return tree.delete(k); }
+                public Boolean search(int k) { return tree.search(k); }
+                public void searchBatch(int[] keys, byte[] out) { tree.searchBatch(keys, out); }
+                public boolean prefixXor(int k) { return tree.prefixXor(k); }
+                public boolean succPrefixXor(int k) { return tree.succPrefixXor(k); }
+                public int[] keysToArray() { return tree.keysToArray(); }
+                public int size() { return tree.size(); }
+            };
+        }
+    },
+    ARRAY_AVL_TREE {
+        @Override
+        Target create() {
+            ArrayAVLTree tree = new ArrayAVLTree();
+            return new Target() {
+                public int insert(int k, boolean v) { return tree.insert(k, v); }
+                public int delete(int k) { return tree.delete(k); }
+                public Boolean search(int k) { return tree.search(k); }
+                public void searchBatch(int[] keys, byte[] out) { tree.searchBatch(keys, out); }
+                public boolean prefixXor(int k) { return tree.prefixXor(k); }
+                public boolean succPrefixXor(int k) { return tree.prefixXor(k); } // no successor walk to compare
+                public int[] keysToArray() { return tree.keysToArray(); }
+                public int size() { return tree.size(); }
+            };
+        }
+    },
+    /** Cache-line blocked B+-tree. */
+    B_TREE {
+        @Override
+        Target create() {
+            BTree tree = new BTree();
+            return new Target() {
+                public int insert(int k, boolean v) { return tree.insert(k, v); }
+                public int delete(int k) { return tree.delete(k); }
+                public Boolean search(int k) { return tree.search(k); }
+                public void searchBatch(int[] keys, byte[] out) { tree.searchBatch(keys, out); }
+                public boolean prefixXor(int k) { return tree.prefixXor(k); }
+                public boolean succPrefixXor(int k) { return tree.prefixXor(k); } // no successor walk to compare
+                public int[] keysToArray() { return tree.keysToArray(); }
+                public int size() { return tree.size(); }
+            };
+        }
+    },
+    /** Keys packed into bitset blocks; the dense key orders (SEQUENTIAL) are its intended workload. */
+    BITSET_AVL_TREE {
+        @Override
+        Target create() {
+            BitsetAVLTree tree = new BitsetAVLTree();
+            return new Target() {
+                public int insert(int k, boolean v) { return tree.insert(k, v); }
+                public int delete(int k) { return tree.delete(k); }
+                public Boolean search(int k) { return tree.search(k); }
+                public void searchBatch(int[] keys, byte[] out) { tree.searchBatch(keys, out); }
+                public boolean prefixXor(int k) { return tree.prefixXor(k); }
+                public boolean succPrefixXor(int k) { return tree.prefixXor(k); } // no successor walk to compare
+                public int[] keysToArray() { return tree.keysToArray(); }
+                public int size() { return tree.size(); }
+            };
+        }
+    },
+    /** java.util.TreeMap baseline. prefixXor walks the head map, as there is no subtree aggregate. */
+    TREE_MAP {
+        @Override
+        Target create() {
+            TreeMap<Integer, Boolean> map = new TreeMap<>();
+            return new Target() {
+                public int insert(int k, boolean v) { return (map.putIfAbsent(k, v) == null) ? 1 : -1; }
+                public int delete(int k) { return (map.remove(k) == null) ? -1 : 0; }
+                public Boolean search(int k) { return map.get(k); }
+                public void searchBatch(int[] keys, byte[] out) {
+                    for (int i = 0; i < keys.length; i++) {
+                        Boolean v = map.get(keys[i]);
+                        out[i] = (v == null) ? -1 : (v) ? (byte) 1 : (byte) 0;
+                    }
+                }
+                public boolean prefixXor(int k) { return succPrefixXor(k); }
+                public boolean succPrefixXor(int k) {
+                    boolean xor = false;
+                    for (Map.Entry<Integer, Boolean> e : map.headMap(k, true).entrySet()) xor ^= e.getValue();
+                    return xor;
+                }
+                public int[] keysToArray() {
+                    int[] arr = new int[map.size()];
+                    int i = 0;
+                    for (Integer key : map.keySet()) arr[i++] = key;
+                    return arr;
+                }
+                public int size() { return map.size(); }
+            };
+        }
+    };
+
+    abstract Target create();
+
+    /** The operations the benchmarks measure. */
+    interface Target {
+        int insert(int k, boolean v);
+
+        int delete(int k);
+
+        Boolean search(int k);
+
+        void searchBatch(int[] keys, byte[] out);
+
+        boolean prefixXor(int k);
+
+        boolean succPrefixXor(int k);
+
+        int[] keysToArray();
+
+        int size();
+    }
+}
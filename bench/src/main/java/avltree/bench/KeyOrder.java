@@ -0,0 +1,97 @@
+package avltree.bench;
+
+import java.util.SplittableRandom;
+
+/**
+ * The key orders the benchmarks are run with. Every order is over the key space [0, n).
+ * <p>
+ * For inserts, keys(n) is the insertion order; for lookups, lookups(n, count) is the order keys are asked for.
+ */
+public enum KeyOrder {
+    /** Ascending keys, every insert goes to the rightmost leaf. */
+    SEQUENTIAL,
+    /** A uniform random permutation (inserts) or uniform random keys (lookups). */
+    RANDOM,
+    /** Zipfian (theta 0.99) ranks scattered over the key space: a few hot keys, repeated inserts are rejected. */
+    ZIPFIAN,
+    /**
+     * Inserts alternate between the two ends of the remaining range (0, n-1, 1, n-2, ...), which keeps
+     * double rotations busy; lookups ask for keys that are not in the tree, so every search goes down to a leaf.
+     */
+    ADVERSARIAL;
+
+    private static final double ZIPF_THETA = 0.99;
+
+    // Returns n keys in this order
+    // Complexity: O(n)
+    public int[] keys(int n, long seed) {
+        int[] keys = new int[n];
+        switch (this) {
+            case SEQUENTIAL:
+                for (int i = 0; i < n; i++) keys[i] = i;
+                break;
+            case RANDOM:
+                for (int i = 0; i < n; i++) keys[i] = i;
+                shuffle(keys, new SplittableRandom(seed));
+                break;
+            case ZIPFIAN:
+                fillZipfian(keys, n, new SplittableRandom(seed));
+                break;
+            case ADVERSARIAL:
+                for (int i = 0, lo = 0, hi = n - 1; i < n; i++) keys[i] = (i % 2 == 0) ? lo++ : hi--;
+                break;
+        }
+        return keys;
+    }
+
+    // Returns count lookup keys for a tree holding the keys [0, n)
+    // Complexity: O(n + count)
+    public int[] lookups(int n, int count, long seed) {
+        int[] keys = new int[count];
+        SplittableRandom random = new SplittableRandom(seed);
+        switch (this) {
+            case SEQUENTIAL:
+                for (int i = 0; i < count; i++) keys[i] = i % n;
+                break;
+            case RANDOM:
+                for (int i = 0; i < count; i++) keys[i] = random.nextInt(n);
+                break;
+            case ZIPFIAN:
+                fillZipfian(keys, n, random);
+                break;
+            case ADVERSARIAL:
+                for (int i = 0; i < count; i++) keys[i] = (random.nextBoolean()) ? -1 - random.nextInt(n) : n + random.nextInt(n);
+                break;
+        }
+        return keys;
+    }
+
+    private static void shuffle(int[] keys, SplittableRandom random) {
+        for (int i = keys.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int t = keys[i];
+            keys[i] = keys[j];
+            keys[j] = t;
+        }
+    }
+
+    // Gray et al.'s Zipfian generator ("Quickly Generating Billion-Record Synthetic Databases"): O(n) set-up,
+    // O(1) per sample. Rank r is mapped to key r * p mod n (p prime > n), so hot keys are spread over the tree.
+    private static void fillZipfian(int[] out, int n, SplittableRandom random) {
+        double zeta_n = 0;
+        for (int i = 1; i <= n; i++) zeta_n += 1 / Math.pow(i, ZIPF_THETA);
+        double zeta_2 = 1 + 1 / Math.pow(2, ZIPF_THETA);
+        double alpha = 1 / (1 - ZIPF_THETA);
+        double eta = (1 - Math.pow(2.0 / n, 1 - ZIPF_THETA)) / (1 - zeta_2 / zeta_n);
+        for (int i = 0; i < out.length; i++) {
+            double u = random.nextDouble();
+            double uz = u * zeta_n;
+            long rank;
+            if (uz < 1) rank = 0;
+            else if (uz < zeta_2) rank = 1;
+            else rank = (long) (n * Math.pow(eta * u - eta + 1, alpha));
+            rank = Math.min(rank, n - 1);
+            out[i] = (int) ((rank * 1_000_000_007L) % n);
+        }
+    }
+}
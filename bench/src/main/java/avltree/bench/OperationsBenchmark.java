@@ -0,0 +1,115 @@
+package avltree.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single operations against a tree of a fixed size, reported as throughput and as a latency distribution
+ * (SampleTime gives the p50/p90/p99/p99.9 percentiles).
+ * <p>
+ * The tree is filled once per trial in the insertion order of keyOrder; lookups use the lookup order of keyOrder.
+ * churn deletes a present key and inserts it back, so the size stays at size.
+ * <p>
+ * For cache misses per lookup, run search with -prof perfnorm (Linux perf): it normalizes L1-dcache-load-misses
+ * and LLC-load-misses per operation, e.g. AVL_TREE against B_TREE at size 10000000 with RANDOM lookups.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class OperationsBenchmark {
+
+    private static final int LOOKUPS = 1 << 20;
+    private static final int BATCH = 256;
+
+    @Param({"AVL_TREE", "ARRAY_AVL_TREE", "B_TREE", "BITSET_AVL_TREE", "TREE_MAP"})
+    public Impl impl;
+
+    @Param({"SEQUENTIAL", "RANDOM", "ZIPFIAN", "ADVERSARIAL"})
+    public KeyOrder keyOrder;
+
+    @Param({"1000", "100000", "10000000"})
+    public int size;
+
+    private Impl.Target tree;
+    private int[] lookups;
+    private int[] present; // keys known to be in the tree, for churn and the prefix queries
+    private int next;
+    private int[][] batches; // lookups cut into BATCH sized slices
+    private final byte[] batch_out = new byte[BATCH];
+    private int next_batch;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        tree = impl.create();
+        int[] keys = keyOrder.keys(size, 42);
+        for (int i = 0; i < keys.length; i++) tree.insert(keys[i], (keys[i] & 1) == 0);
+        present = tree.keysToArray();
+        KeyOrder lookup_order = (keyOrder == KeyOrder.ADVERSARIAL) ? KeyOrder.RANDOM : keyOrder;
+        int[] ranks = lookup_order.lookups(present.length, LOOKUPS, 7);
+        for (int i = 0; i < ranks.length; i++) ranks[i] = present[ranks[i]];
+        present = ranks;
+        lookups = keyOrder.lookups(size, LOOKUPS, 7);
+        batches = new int[LOOKUPS / BATCH][];
+        for (int i = 0; i < batches.length; i++) batches[i] = Arrays.copyOfRange(lookups, i * BATCH, (i + 1) * BATCH);
+    }
+
+    private int nextIndex() {
+        int i = next;
+        next = (i + 1) & (LOOKUPS - 1);
+        return i;
+    }
+
+    @Benchmark
+    public Boolean search() {
+        return tree.search(lookups[nextIndex()]);
+    }
+
+    /** The same lookups as search, BATCH at a time; scores are per key. */
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public byte[] searchBatch() {
+        int[] keys = batches[next_batch];
+        next_batch = (next_batch + 1) % batches.length;
+        tree.searchBatch(keys, batch_out);
+        return batch_out;
+    }
+
+    @Benchmark
+    public int churn() {
+        int k = present[nextIndex()];
+        return tree.delete(k) + tree.insert(k, (k & 1) == 0);
+    }
+
+    @Benchmark
+    public boolean prefixXor() {
+        return tree.prefixXor(present[nextIndex()]);
+    }
+
+    /** O(n) per call; compare against prefixXor at the same size. */
+    @Benchmark
+    public boolean succPrefixXor() {
+        return tree.succPrefixXor(present[nextIndex()]);
+    }
+
+    @Benchmark
+    public int[] keysToArray() {
+        return tree.keysToArray();
+    }
+}
@@ -0,0 +1,101 @@
+package avltree.bench;
+
+import avltree.AVLTree;
+import avltree.IntBooleanTree;
+import avltree.PipelinedAVLTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Many client threads calling one shared tree: an AVLTree behind a single monitor (LOCKED) against the
+ * PipelinedAVLTree owner thread with its published snapshots (PIPELINED).
+ * <p>
+ * This is the load generator: every JMH thread is a client, so run with -t 64, -t 256 ... for the load, and
+ * read the latency distribution (p0.50, p0.99, p0.999) from the SampleTime results. insertDelete is the
+ * write path, mixed runs search and insertDelete in the ratio of readPercent.
+ */
+@BenchmarkMode({Mode.SampleTime, Mode.Throughput})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PipelineBenchmark {
+
+    @Param({"LOCKED", "PIPELINED"})
+    public String impl;
+
+    @Param({"1000000"})
+    public int size;
+
+    @Param({"90"})
+    public int readPercent;
+
+    private IntBooleanTree tree;
+    private PipelinedAVLTree pipeline;
+
+    @Setup(Level.Trial)
+    public void fill() {
+        IntBooleanTree target;
+        if (impl.equals("PIPELINED")) target = pipeline = new PipelinedAVLTree();
+        else target = new Locked(new AVLTree());
+        for (int k : KeyOrder.RANDOM.keys(size, 42)) target.insert(2 * k, (k & 1) == 0);
+        tree = target;
+    }
+
+    @TearDown(Level.Trial)
+    public void close() {
+        if (pipeline != null) pipeline.close();
+    }
+
+    /** A client's random stream; odd keys are never in the filled tree, so insertDelete always changes it. */
+    @State(Scope.Thread)
+    public static class Client {
+        final SplittableRandom random = new SplittableRandom();
+    }
+
+    @Benchmark
+    public int insertDelete(Client client) {
+        int k = 2 * client.random.nextInt(size) + 1;
+        return tree.insert(k, true) + tree.delete(k);
+    }
+
+    @Benchmark
+    public Object mixed(Client client) {
+        int k = client.random.nextInt(2 * size);
+        if (client.random.nextInt(100) < readPercent) return tree.search(k);
+        return tree.insert(k | 1, true) + tree.delete(k | 1);
+    }
+
+    /** The usual service wrapper: every call synchronized on one monitor. */
+    private static final class Locked implements IntBooleanTree {
+        private final AVLTree tree;
+
+        Locked(AVLTree tree) { this.tree = tree; }
+
+        public synchronized boolean empty() { return tree.empty(); }
+        public synchronized Boolean search(int k) { return tree.search(k); }
+        public synchronized int insert(int k, boolean i) { return tree.insert(k, i); }
+        public synchronized int delete(int k) { return tree.delete(k); }
+        public synchronized Boolean min() { return tree.min(); }
+        public synchronized Boolean max() { return tree.max(); }
+        public synchronized int[] keysToArray() { return tree.keysToArray(); }
+        public synchronized boolean[] infoToArray() { return tree.infoToArray(); }
+        public synchronized int size() { return tree.size(); }
+        public synchronized boolean prefixXor(int k) { return tree.prefixXor(k); }
+    }
+}
@@ -0,0 +1,75 @@
+package avltree.bench;
+
+import avltree.AVLTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Expiring a window of width consecutive keys from a tree of size keys, with deleteRange against a delete per
+ * key, and scanning a window with forEachInRange. Every invocation works on a fresh copy of the tree built
+ * in an untimed setup; the garbage of those copies still adds some GC time, so compare the two deletes with
+ * each other rather than reading them as absolute costs.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class RangeBenchmark {
+
+    @Param({"100000"})
+    public int size;
+
+    @Param({"100", "10000"})
+    public int width;
+
+    private int[] keys;
+    private boolean[] values;
+    private AVLTree tree;
+    private int lo;
+
+    @Setup(Level.Trial)
+    public void keys() {
+        keys = KeyOrder.SEQUENTIAL.keys(size, 42);
+        values = new boolean[size];
+        for (int i = 0; i < size; i++) values[i] = (keys[i] & 1) == 0;
+    }
+
+    @Setup(Level.Invocation)
+    public void build() {
+        tree = new AVLTree(keys, values);
+        lo = (lo + 7919) % (size - width);
+    }
+
+    @Benchmark
+    public int deleteRange() {
+        return tree.deleteRange(lo, lo + width - 1);
+    }
+
+    @Benchmark
+    public int deleteEach() {
+        int count = 0;
+        for (int k = lo; k < lo + width; k++) count += tree.delete(k);
+        return count;
+    }
+
+    @Benchmark
+    public int forEachInRange() {
+        int[] trues = new int[1];
+        tree.forEachInRange(lo, lo + width - 1, (k, v) -> trues[0] += v ? 1 : 0);
+        return trues[0];
+    }
+}
@@ -0,0 +1,66 @@
+package avltree.bench;
+
+import avltree.AVLTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * search on an AVLTree of size keys with and without the hot-key search cache (cacheCapacity 0 is no cache),
+ * over skewed (ZIPFIAN) and uniform (RANDOM) lookups. The cache should win on the first and match no cache on
+ * the second, where it bypasses itself.
+ * <p>
+ * A million-key search is a chain of cache misses, and this loop does nothing else, so a fork's result moves by
+ * hundreds of nanoseconds with how the JIT happened to shape it: compare with several forks and a fixed,
+ * pre-touched heap (-f 3 -jvmArgsAppend "-Xms2g -Xmx2g -XX:+AlwaysPreTouch"), and against
+ * OperationsBenchmark.search, where the same search runs behind the IntBooleanTree interface.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SearchCacheBenchmark {
+
+    private static final int LOOKUPS = 1 << 20;
+
+    @Param({"0", "4096"})
+    public int cacheCapacity;
+
+    @Param({"ZIPFIAN", "RANDOM"})
+    public KeyOrder keyOrder;
+
+    @Param({"1000000"})
+    public int size;
+
+    private AVLTree tree;
+    private int[] lookups;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        int[] keys = KeyOrder.RANDOM.keys(size, 42);
+        boolean[] values = new boolean[size];
+        for (int i = 0; i < size; i++) values[i] = (keys[i] & 1) == 0;
+        tree = new AVLTree(keys, values);
+        tree.setSearchCache(cacheCapacity);
+        lookups = keyOrder.lookups(size, LOOKUPS, 7);
+    }
+
+    @Benchmark
+    public Boolean search() {
+        return tree.search(lookups[next++ & (LOOKUPS - 1)]);
+    }
+}
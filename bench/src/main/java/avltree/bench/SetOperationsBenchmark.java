@@ -0,0 +1,99 @@
+package avltree.bench;
+
+import avltree.AVLTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Union, intersection and difference of two trees of size keys each, drawn at random from [0, 2*size) so that
+ * about half of each tree's keys are in the other one.
+ * <p>
+ * grain is the parallel grain size; Integer.MAX_VALUE runs everything on one thread, which is the baseline
+ * for the speedup. keyByKey is the old way of reconciling the two trees: walk one and search/insert into the
+ * other. Run with -Djava.util.concurrent.ForkJoinPool.common.parallelism=P to vary the number of cores.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Thread)
+public class SetOperationsBenchmark {
+
+    public enum Operation { UNION, INTERSECTION, DIFFERENCE }
+
+    @Param({"UNION", "INTERSECTION", "DIFFERENCE"})
+    public Operation operation;
+
+    @Param({"100000", "10000000"})
+    public int size;
+
+    @Param({"1024", "8192", "2147483647"})
+    public int grain;
+
+    private int[] keys1;
+    private int[] keys2;
+    private boolean[] values;
+
+    private AVLTree t1;
+    private AVLTree t2;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        keys1 = randomKeys(size, 1);
+        keys2 = randomKeys(size, 2);
+        values = new boolean[size];
+        for (int i = 0; i < size; i++) values[i] = (i & 1) == 0;
+    }
+
+    // The operations empty their inputs, so every invocation gets fresh trees (built bottom-up, in O(size))
+    @Setup(Level.Invocation)
+    public void build() {
+        t1 = new AVLTree(keys1, values);
+        t2 = new AVLTree(keys2, values);
+    }
+
+    @Benchmark
+    public AVLTree setOperation() {
+        switch (operation) {
+            case UNION: return AVLTree.union(t1, t2, grain);
+            case INTERSECTION: return AVLTree.intersection(t1, t2, grain);
+            default: return AVLTree.difference(t1, t2, grain);
+        }
+    }
+
+    @Benchmark
+    public AVLTree keyByKey() {
+        int[] keys = t2.keysToArray();
+        boolean[] info = t2.infoToArray();
+        for (int i = 0; i < keys.length; i++) {
+            boolean in1 = t1.search(keys[i]) != null;
+            if (operation == Operation.UNION && !in1) t1.insert(keys[i], info[i]);
+            else if (operation == Operation.DIFFERENCE && in1) t1.delete(keys[i]);
+        }
+        if (operation == Operation.INTERSECTION) {
+            for (int k : t1.keysToArray()) if (t2.search(k) == null) t1.delete(k);
+        }
+        return t1;
+    }
+
+    // n distinct keys from [0, 2n), in random order
+    private static int[] randomKeys(int n, long seed) {
+        int[] all = KeyOrder.RANDOM.keys(2 * n, seed);
+        int[] keys = new int[n];
+        System.arraycopy(all, 0, keys, 0, n);
+        return keys;
+    }
+}
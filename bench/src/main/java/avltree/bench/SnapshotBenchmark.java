@@ -0,0 +1,69 @@
+package avltree.bench;
+
+import avltree.AVLTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing a tree of size keys to a snapshot and restoring it, through in-memory channels so that only the
+ * encoding and the build are measured. Scores are per whole snapshot.
+ * <p>
+ * Restore allocates one AVLNode per key; for size 100000000 run with a heap of about 16 GB
+ * (-jvmArgsAppend -Xmx16g).
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Thread)
+public class SnapshotBenchmark {
+
+    @Param({"SEQUENTIAL", "RANDOM"})
+    public KeyOrder keyOrder;
+
+    @Param({"1000000", "10000000"})
+    public int size;
+
+    private AVLTree tree;
+    private byte[] snapshot;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        int[] keys = keyOrder.keys(size, 42);
+        boolean[] values = new boolean[size];
+        for (int i = 0; i < size; i++) values[i] = (keys[i] & 1) == 0;
+        tree = new AVLTree(keys, values);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        tree.writeTo(Channels.newChannel(out));
+        snapshot = out.toByteArray();
+    }
+
+    @Benchmark
+    public int write() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(snapshot.length);
+        tree.writeTo(Channels.newChannel(out));
+        return out.size();
+    }
+
+    @Benchmark
+    public AVLTree restore() throws IOException {
+        return AVLTree.readFrom(Channels.newChannel(new ByteArrayInputStream(snapshot)));
+    }
+}
@@ -0,0 +1,2021 @@
+package avltree;
+
+/**
+ * public class AVLTree
+ * <p>
+ * This class represents an AVLTree with integer keys and boolean values.
+ */
+public class AVLTree implements IntBooleanTree {
+
+    private AVLNode root;
+    private AVLNode empty_node = new AVLNode(-1, null);
+    private int size;
+    private AVLNode min_node = root;
+    private AVLNode max_node = root;
+    private AVLNode finger; // the node created by the last insert, where insertAll resumes its search
+    private final LongMonoid monoid; // null unless range aggregates were requested
+    private AVLTreeMetrics metrics; // null unless metrics were requested
+    private HotKeyCache cache; // null unless a search cache was requested
+    private Lookup lookup = Lookup.DIRECT; // how search finds a node, given metrics and cache
+    private BalancePolicy policy = BalancePolicy.AVL;
+    /**
+     * This constructor creates an empty AVLTree.
+     */
+    public AVLTree(){
+        this(null);
+    }
+
+    /**
+     * This constructor creates an empty AVLTree that also keeps, in every node, the aggregate of monoid over its
+     * subtree, so that rangeAggregate can be answered in O(log(n)).
+     */
+    public AVLTree(LongMonoid monoid){
+        this.monoid = monoid;
+        this.root = empty_node;
+        this.size = 0;
+    }
+
+    /**
+     * This constructor creates an AVLTree holding keys[i] with info values[i] for every i.
+     * The keys may be given in any order. If a key appears more than once only its first occurrence is kept,
+     * as if the pairs were inserted one by one.
+     */
+    /* Instead of n inserts the tree is built bottom-up from the sorted keys: the middle key becomes the root and
+     * each half becomes a subtree, so sibling subtrees differ in size by at most one and the tree is balanced
+     * without a single rotation.
+     * Complexity: O(n) if keys are sorted, O(n*log(n)) otherwise (for the sort)
+     * */
+    public AVLTree(int[] keys, boolean[] values){
+        this();
+        if (keys.length != values.length)
+            throw new IllegalArgumentException("keys and values must have the same length");
+        int n = keys.length;
+        if (n == 0) return;
+        boolean sorted = true;
+        for (int i = 1; i < n && sorted; i++) sorted = keys[i-1] < keys[i];
+        if (!sorted) { // Sort (key, index) pairs so equal keys keep their input order, then drop the repeats
+            long[] pairs = sortedUniquePairs(keys);
+            n = pairs.length;
+            int[] sorted_keys = new int[n];
+            boolean[] sorted_values = new boolean[n];
+            for (int j = 0; j < n; j++) {
+                sorted_keys[j] = (int) (pairs[j] >> 32);
+                sorted_values[j] = values[(int) pairs[j]];
+            }
+            keys = sorted_keys;
+            values = sorted_values;
+        }
+        this.finger = empty_node; // buildBalanced threads each node after the previous one it built
+        this.root = buildBalanced(keys, values, 0, n-1, empty_node);
+        this.size = n;
+        min_node = this.root;
+        while (HasLeftSon(min_node)) min_node = min_node.getLeft();
+        max_node = this.root;
+        while (HasRightSon(max_node)) max_node = max_node.getRight();
+    }
+
+    // Builds a balanced subtree from the sorted range keys[lo..hi] hanging under parent and returns its root.
+    // Heights and trues_in_sub_tree are set on the way back up, the in-order links in key order
+    // (finger holds the last node linked so far).
+    // Complexity: O(hi-lo)
+    private AVLNode buildBalanced(int[] keys, boolean[] values, int lo, int hi, AVLNode parent){
+        if (lo > hi) return empty_node;
+        int mid = (lo + hi) >>> 1;
+        AVLNode node = new AVLNode(keys[mid], values[mid]);
+        node.setParent(parent);
+        node.setLeft(buildBalanced(keys, values, lo, mid-1, node));
+        linkInOrder(finger, node, empty_node);
+        finger = node;
+        node.setRight(buildBalanced(keys, values, mid+1, hi, node));
+        node.updateHeight();
+        node.updateTrues_in_sub_tree();
+        return node;
+    }
+
+    /**
+     * public void writeTo(WritableByteChannel out)
+     * <p>
+     * Writes the tree to out in the binary snapshot format described in AVLTreeCodec: the keys in order,
+     * delta encoded as varints, the infos as a bitset, the payloads if the tree has a LongMonoid, and a checksum.
+     * The tree is walked in order through a fixed buffer, never copied. out is not closed.
+     */
+    // Complexity: O(n)
+    public void writeTo(java.nio.channels.WritableByteChannel out) throws java.io.IOException {
+        AVLTreeCodec.Writer writer = new AVLTreeCodec.Writer(out, size, monoid != null);
+        for (AVLNode node = (empty())? empty_node : min_node; node.isRealNode(); node = node.getNext())
+            writer.add(node.getKey(), node.getValue(), node.payload);
+        writer.finish();
+    }
+
+    /**
+     * public static AVLTree readFrom(ReadableByteChannel in)
+     * <p>
+     * Reads a tree written by writeTo. Same as readFrom(in, null).
+     */
+    public static AVLTree readFrom(java.nio.channels.ReadableByteChannel in) throws java.io.IOException {
+        return readFrom(in, null);
+    }
+
+    /**
+     * public static AVLTree readFrom(ReadableByteChannel in, LongMonoid monoid)
+     * <p>
+     * Reads a tree written by writeTo into a new tree with the given LongMonoid (which is not part of the
+     * snapshot; the payloads are). in is read up to the end of the snapshot and no further, so whatever follows
+     * the snapshot stays on it. in is not closed.
+     * throws IOException if in fails, ends early, or does not hold a valid snapshot (checked against its checksum).
+     */
+    /* The items arrive in key order and the count is known up front, so the tree is built like the
+     * AVLTree(int[], boolean[]) constructor builds it, but consuming each item as the in-order walk of the
+     * balanced shape reaches it, without collecting the items first.
+     * Complexity: O(n)
+     * */
+    public static AVLTree readFrom(java.nio.channels.ReadableByteChannel in, LongMonoid monoid) throws java.io.IOException {
+        AVLTreeCodec.Reader reader = new AVLTreeCodec.Reader(in);
+        AVLTree tree = new AVLTree(monoid);
+        if (reader.size > 0) {
+            tree.finger = tree.empty_node;
+            tree.root = tree.buildFrom(reader, 0, reader.size - 1, tree.empty_node);
+            tree.size = reader.size;
+            tree.min_node = tree.root;
+            while (tree.HasLeftSon(tree.min_node)) tree.min_node = tree.min_node.getLeft();
+            tree.max_node = tree.finger;
+        }
+        reader.finish();
+        return tree;
+    }
+
+    // buildBalanced for the items lo..hi of a snapshot, read from reader in order.
+    // Complexity: O(hi-lo)
+    private AVLNode buildFrom(AVLTreeCodec.Reader reader, int lo, int hi, AVLNode parent) throws java.io.IOException {
+        if (lo > hi) return empty_node;
+        int mid = (lo + hi) >>> 1;
+        AVLNode left = buildFrom(reader, lo, mid-1, null);
+        reader.next();
+        AVLNode node = new AVLNode(reader.key, reader.value);
+        node.payload = reader.payload;
+        node.setParent(parent);
+        node.setLeft(left);
+        if (left.isRealNode()) left.setParent(node);
+        linkInOrder(finger, node, empty_node);
+        finger = node;
+        node.setRight(buildFrom(reader, mid+1, hi, node));
+        node.updateHeight();
+        node.updateTrues_in_sub_tree();
+        return node;
+    }
+
+    /**
+     * public boolean empty()
+     * <p>
+     * returns true if and only if the tree is empty
+     */
+    //Complexity: O(1)
+    public boolean empty() {
+        return !root.isRealNode(); // to be replaced by student code
+    }
+
+    /**
+     * public boolean search(int k)
+     * <p>
+     * returns the info of an item with key k if it exists in the tree
+     * otherwise, returns null
+     */
+    //Complexity: O(log(n))
+    public Boolean search(int k) {
+        return lookup.find(this, k).getValue();
+    }
+
+    /*
+     * How search finds the node of a key. setMetrics and setSearchCache pick one of the three, so search tests
+     * for neither: a tree without metrics or cache only ever calls DIRECT, which the JIT inlines as if search
+     * called search_node itself, and the cache's code stays out of its compiled search.
+     */
+    private enum Lookup {
+        DIRECT { AVLNode find(AVLTree tree, int k) { return tree.search_node(k); } },
+        COUNTED { AVLNode find(AVLTree tree, int k) { return tree.countedSearch(k); } },
+        CACHED { AVLNode find(AVLTree tree, int k) { return tree.cachedSearch(k); } };
+
+        abstract AVLNode find(AVLTree tree, int k);
+    }
+
+    // Complexity: O(1)
+    private void chooseLookup() {
+        this.lookup = (cache != null) ? Lookup.CACHED : (metrics != null) ? Lookup.COUNTED : Lookup.DIRECT;
+    }
+
+    // search_node through the cache, admitting the node a missed search finds
+    // Complexity: O(1) on a hit, O(log(n)) on a miss
+    private AVLNode cachedSearch(int k) {
+        if (!cache.consult()) { // bypassed: the cache is not hitting enough to pay off
+            if (metrics == null) return search_node(k);
+            metrics.cacheMiss();
+            return countedSearch(k);
+        }
+        AVLNode node = cache.get(k);
+        if (node != null) {
+            if (metrics != null) metrics.cacheHit();
+            return node;
+        }
+        if (metrics != null) metrics.cacheMiss();
+        node = (metrics != null) ? countedSearch(k) : search_node(k);
+        if (node.isRealNode()) cache.admit(k, node);
+        return node;
+    }
+
+    /**
+     * public void searchBatch(int[] keys, byte[] out)
+     * <p>
+     * Looks up every key of keys like search and writes the result to the same index of out:
+     * 1 for info true, 0 for info false, -1 if the key is not in the tree.
+     * throws IllegalArgumentException if out is shorter than keys.
+     */
+    /* Every level of a search is a load that depends on the previous one, so a single search waits for one
+     * cache miss per level. Here BATCH_LANES searches advance one level each in turn: their loads do not
+     * depend on each other, so the CPU keeps several misses in flight. A lane that finishes takes the next key.
+     * Nothing is allocated per key.
+     * Complexity: O(m*log(n)) for m keys
+     * */
+    public void searchBatch(int[] keys, byte[] out) {
+        if (out.length < keys.length) throw new IllegalArgumentException("out is shorter than keys");
+        if (metrics != null) { // keep recording path lengths
+            for (int i = 0; i < keys.length; i++) {
+                Boolean info = countedSearch(keys[i]).getValue();
+                out[i] = (info == null) ? -1 : (info) ? (byte) 1 : (byte) 0;
+            }
+            return;
+        }
+        AVLNode[] lanes = new AVLNode[BATCH_LANES];
+        int[] lane_index = new int[BATCH_LANES];
+        int next = 0;
+        int active = 0;
+        for (; active < BATCH_LANES && next < keys.length; active++) {
+            lanes[active] = this.root;
+            lane_index[active] = next++;
+        }
+        while (active > 0) {
+            for (int j = 0; j < BATCH_LANES; j++) {
+                AVLNode curr = lanes[j];
+                if (curr == null) continue;
+                int k = keys[lane_index[j]];
+                if (curr.isRealNode() && curr.getKey() != k) {
+                    lanes[j] = (curr.getKey() > k) ? curr.getLeft() : curr.getRight();
+                    continue;
+                }
+                out[lane_index[j]] = (!curr.isRealNode()) ? -1 : (curr.getValue()) ? (byte) 1 : (byte) 0;
+                if (next < keys.length) {
+                    lanes[j] = this.root;
+                    lane_index[j] = next++;
+                }
+                else {
+                    lanes[j] = null;
+                    active--;
+                }
+            }
+        }
+    }
+
+    // The number of searches searchBatch runs at once
+    private static final int BATCH_LANES = 8;
+
+    // search_node that also records the length of the path it took
+    private AVLNode countedSearch(int k){
+        int path_length = 0;
+        AVLNode curr = this.root;
+        while(curr.isRealNode()){
+            path_length++;
+            if (curr.getKey()==k)break;
+            if (curr.getKey()>k)curr = curr.getLeft();
+            else curr = curr.getRight();
+        }
+        metrics.search(path_length);
+        return curr;
+    }
+
+    /**
+     * public void setMetrics(AVLTreeMetrics metrics)
+     * <p>
+     * Starts recording rotations, promotions, demotions, duplicate inserts and search path lengths into
+     * metrics, or stops recording if metrics is null.
+     */
+    // Complexity: O(1)
+    public void setMetrics(AVLTreeMetrics metrics) {
+        this.metrics = metrics;
+        chooseLookup();
+    }
+
+    /**
+     * public AVLTreeMetrics getMetrics()
+     * <p>
+     * Returns the metrics this tree records into, or null.
+     */
+    // Complexity: O(1)
+    public AVLTreeMetrics getMetrics() {
+        return this.metrics;
+    }
+
+    /**
+     * public void setSearchCache(int capacity)
+     * <p>
+     * Puts a cache of about capacity hot keys (rounded up to a power of two, at most 2^24) in front of search,
+     * replacing any previous one, or removes the cache if capacity is 0. Hits answer in O(1) without walking the
+     * tree; with metrics set, hits and misses are counted in them.
+     * With a cache, search writes to it, so concurrent searches need the same exclusion as inserts.
+     * throws IllegalArgumentException if capacity is negative.
+     */
+    // Complexity: O(capacity)
+    public void setSearchCache(int capacity) {
+        if (capacity < 0) throw new IllegalArgumentException("capacity must not be negative: " + capacity);
+        this.cache = (capacity == 0) ? null : new HotKeyCache(capacity);
+        chooseLookup();
+    }
+
+    /**
+     * public int getSearchCacheCapacity()
+     * <p>
+     * Returns the number of keys the search cache can hold, or 0 if there is none.
+     */
+    // Complexity: O(1)
+    public int getSearchCacheCapacity() {
+        return (cache == null) ? 0 : cache.capacity();
+    }
+
+    /**
+     * public BalancePolicy getBalancePolicy()
+     * <p>
+     * Returns the balance rules the tree keeps.
+     */
+    // Complexity: O(1)
+    public BalancePolicy getBalancePolicy() { return this.policy; }
+
+    /**
+     * public void setBalancePolicy(BalancePolicy policy)
+     * <p>
+     * Makes the tree keep policy's balance rules from now on. Under AVL (the default) delete may rotate at every
+     * level of the path; under WAVL (Haeupler, Sen and Tarjan, "Rank-balanced trees") a node's height is a rank
+     * that may exceed a son's by one or two, and delete does at most two rotations and O(1) amortized rank
+     * changes, for a tree at most 2*log(n) deep instead of about 1.44*log(n). insert rebalances the same way
+     * under both, and split, join, deleteRange and the set operations keep WAVL trees valid WAVL trees (a
+     * result is WAVL if either of its trees was).
+     * Every AVL tree is also a WAVL tree, so moving to WAVL costs nothing; moving a non-empty tree back to AVL
+     * rebuilds it with rebuildBalanced.
+     */
+    // Complexity: O(1) to WAVL, O(n) to AVL
+    public void setBalancePolicy(BalancePolicy policy) {
+        if (policy == this.policy) return;
+        this.policy = java.util.Objects.requireNonNull(policy, "policy");
+        if (policy == BalancePolicy.AVL) rebuildBalanced();
+    }
+
+    /**
+     * public void rebuildBalanced()
+     * <p>
+     * Relinks the nodes into the shallowest tree there is, valid under every BalancePolicy. Under WAVL this is
+     * the deferred part of the balancing, for a quiet moment: deletes leave the tree up to 2*log(n) deep, and a
+     * rebuild brings searches back to log(n). Nodes, in-order links and cached entries stay as they are.
+     */
+    // Complexity: O(n) time, O(n) temporary space
+    public void rebuildBalanced() {
+        if (empty()) return;
+        AVLNode[] nodes = new AVLNode[size];
+        int i = 0;
+        for (AVLNode node = min_node; node.isRealNode(); node = node.getNext()) nodes[i++] = node;
+        this.root = relink(nodes, 0, size - 1, empty_node);
+    }
+
+    // Links nodes[lo..hi] into a balanced subtree under parent and returns its root.
+    // Complexity: O(hi-lo)
+    private AVLNode relink(AVLNode[] nodes, int lo, int hi, AVLNode parent) {
+        if (lo > hi) return empty_node;
+        int mid = (lo + hi) >>> 1;
+        AVLNode node = nodes[mid];
+        node.setParent(parent);
+        node.setLeft(relink(nodes, lo, mid - 1, node));
+        node.setRight(relink(nodes, mid + 1, hi, node));
+        node.updateHeight();
+        node.updateTrues_in_sub_tree();
+        return node;
+    }
+
+    // Binary search of node with key k returning pointer to that node or pointer to virtual node if does not exist.
+    //Complexity: O(log(n))
+    public AVLNode search_node(int k){
+        AVLNode curr = this.root;
+        while(curr.isRealNode()){
+            if (curr.getKey()==k)return curr;
+            if (curr.getKey()>k)curr = curr.getLeft();
+            else curr = curr.getRight();
+        }
+        return empty_node;
+    }
+
+    /**
+     * public int insert(int k, boolean i)
+     * <p>
+     * inserts an item with key k and info i to the AVL tree.
+     * the tree must remain valid (keep its invariants).
+	 * returns the number of nodes which require rebalancing operations (i.e. promotions or rotations).
+	 * This always includes the newly-created node.
+     * returns -1 if an item with key k already exists in the tree.
+     */
+
+    /*This function inserts a new node to the tree with key k and value i. Complexity: O(log(n))
+     * The function operates in 4 steps:
+     * 1. Searches and finds the proper place to insert the Node. Complexity: O(log(n))
+     * 2. Inserts the Node as a leaf. Complexity: O(1)
+     * 3. Ascends from the inserted leaf calculating balance factors,
+     *    updating heights and determining if rotation is necessary. Complexity: O(log(n))
+     * 4. Performs the proper rotations using leftRotation and rightRotation functions. Complexity: O(1)
+     * */
+    public int insert(int k, boolean i) {
+        return insertFrom(this.getRoot(), k, i, 0);
+    }
+
+    /**
+     * public int insert(int k, boolean i, long payload)
+     * <p>
+     * inserts an item with key k, info i and a payload for the tree's LongMonoid (see rangeAggregate).
+     * returns the same as insert(k, i).
+     */
+    // Complexity: O(log(n))
+    public int insert(int k, boolean i, long payload) {
+        return insertFrom(this.getRoot(), k, i, payload);
+    }
+
+    /*
+     * Inserts like insert(k, i) but Step 1 starts the search at start instead of at the root.
+     * start must be the root or a node whose subtree key range contains k. The trues_in_sub_tree of the
+     * ancestors of start are updated before the search, as the search itself does for the nodes it visits.
+     * Leaves the new node in finger.
+     * Complexity: O(log(n))
+     */
+    private int insertFrom(AVLNode start, int k, boolean i, long payload) {
+        int oper_count = 1;
+        this.size++;
+        AVLNode curr = start;
+        if (!curr.isRealNode()){ // This is the case if the tree is empty
+            this.root = new AVLNode(k, i);
+            this.root.payload = payload;
+            this.root.setParent(empty_node);
+            this.root.setLeft(empty_node);
+            this.root.setRight(empty_node);
+            linkInOrder(empty_node, this.root, empty_node);
+            this.root.updateTrues_in_sub_tree();
+            min_node = this.root; // Maintaining the fields of minimum and maximum node
+            max_node = this.root;
+            finger = this.root;
+            return oper_count;
+        }
+        AVLNode explorer = curr; // Step 1: Searching for the place to insert the node
+        int true_val = (i)? 1: 0; // Maintaining the field of the sum of trues in sub tree
+        for (AVLNode anc = start.getParent(); anc.isRealNode(); anc = anc.getParent()) {
+            anc.trues_in_sub_tree+=true_val;
+            anc.size_of_sub_tree++;
+        }
+        while (explorer.isRealNode()){
+            curr = explorer;
+            curr.trues_in_sub_tree+=true_val;
+            curr.size_of_sub_tree++;
+            if (explorer.getKey()==k){ // If we found an existing node with the same key. No insert will take place
+                ascendUpdateTrues(explorer); // We will ascend back to root fixing the field trues_in_sub_tree
+                this.size--;
+                if (metrics != null) metrics.duplicateInsert();
+                return -1;
+            }
+            if (explorer.getKey()>k)explorer = explorer.getLeft();
+            else explorer = explorer.getRight();
+        }
+        if(curr.getKey()>k){ // Step 2: The actual insert, threaded right before or after its parent
+            curr.setLeft(new AVLNode(k, i));
+            curr.getLeft().setParent(curr);
+            linkInOrder(curr.getPrev(), curr.getLeft(), curr);
+            curr = curr.getLeft();
+        }
+        else{
+            curr.setRight(new AVLNode(k, i));
+            curr.getRight().setParent(curr);
+            linkInOrder(curr, curr.getRight(), curr.getNext());
+            curr = curr.getRight();
+        }
+        curr.setRight(empty_node);
+        curr.setLeft(empty_node);
+        curr.payload = payload;
+        curr.updateHeight();
+        finger = curr;
+        if(k> max_node.getKey()) max_node = curr;
+        if(k< min_node.getKey()) min_node = curr;
+        curr.updateTrues_in_sub_tree();
+        if (monoid != null) ascendUpdateTrues(curr); // a monoid aggregate can not be patched during the search
+        AVLNode temp = curr.getParent(); // Step 3
+        while (temp!=null&&temp.isRealNode()){
+            int bf = temp.getBalanceFactor();
+            if(Math.abs(bf)<2){
+                int new_height = Math.max(temp.getLeft().getHeight(), temp.getRight().getHeight())+1;
+                if(temp.getHeight() == new_height)return oper_count;
+                else{
+                    temp.updateHeight();
+                    temp.updateTrues_in_sub_tree();
+                    temp = temp.getParent();
+                    oper_count++;
+                    if (metrics != null) metrics.promotion();
+                }
+            }
+            else if (bf==2){ // left then right rotation
+                AVLNode a = temp.getLeft();
+                AVLNode parent = temp.getParent();
+                if (a.getBalanceFactor()==-1){
+                    AVLNode b = a.getRight();
+                    int lr = leftRotation(b, a, temp);
+                    rightRotation(b, temp, parent);
+                    if (metrics != null) metrics.doubleRotation();
+                    parent.updateTrues_in_sub_tree();
+                    return oper_count+lr;
+                }
+                else // Just right rotation
+                    if (a.getBalanceFactor()==1){
+                        parent.updateTrues_in_sub_tree();
+                        if (metrics != null) metrics.singleRotation();
+                        return oper_count+rightRotation(a, temp, parent);
+                    }
+            }
+            else if (bf == -2){ //right then left rotation
+                AVLNode a = temp.getRight();
+                AVLNode parent = temp.getParent();
+                if (a.getBalanceFactor()==1){
+                    AVLNode b = a.getLeft();
+                    int rr = rightRotation(b, a, temp);
+                    int lr = leftRotation(b, temp, parent);
+                    if (metrics != null) metrics.doubleRotation();
+                    parent.updateTrues_in_sub_tree();
+                    return oper_count+lr;
+                }
+                else // Just left rotation
+                    if (a.getBalanceFactor()==-1){
+                        parent.updateTrues_in_sub_tree();
+                        if (metrics != null) metrics.singleRotation();
+                        return oper_count+leftRotation(a, temp, parent);
+                    }
+            }
+            else break;
+        }
+        if(temp==null)System.out.println(k);
+        return oper_count;
+    }
+
+    /**
+     * public int insertAll(int[] keys, boolean[] values)
+     * <p>
+     * inserts keys[i] with info values[i] for every i, skipping keys that are already in the tree
+     * (or that appear earlier in keys).
+     * returns the total number of rebalancing operations, which is the sum of what insert returns for the
+     * inserted keys in ascending order.
+     */
+    /* The batch is sorted once and inserted in ascending order. Each search starts from the previously inserted
+     * node (the finger) instead of the root: climb from the finger to the first ancestor whose key is not smaller
+     * than k, whose subtree must contain k's place, and descend from there. Consecutive keys of a batch usually
+     * land close to each other, so most of the climb and descent stays in a small, cache-resident subtree.
+     * Complexity: O(m*log(m) + m*log(n)) for a batch of m keys
+     * */
+    public int insertAll(int[] keys, boolean[] values) {
+        if (keys.length != values.length)
+            throw new IllegalArgumentException("keys and values must have the same length");
+        long[] pairs = sortedUniquePairs(keys);
+        int oper_count = 0;
+        AVLNode prev = empty_node;
+        for (long pair : pairs) {
+            int k = (int) (pair >> 32);
+            AVLNode start = this.getRoot();
+            if (prev.isRealNode()) { // prev.getKey() < k
+                AVLNode anc = prev;
+                while (anc.isRealNode() && anc.getKey() < k) anc = anc.getParent();
+                if (anc.isRealNode()) start = anc;
+            }
+            int count = insertFrom(start, k, values[(int) pair], 0);
+            if (count != -1) {
+                oper_count += count;
+                prev = finger;
+            }
+        }
+        return oper_count;
+    }
+
+    // Returns the (key << 32 | index) pairs of keys sorted by key, keeping only the first index of a repeated key.
+    // Complexity: O(n*log(n))
+    private static long[] sortedUniquePairs(int[] keys) {
+        int n = keys.length;
+        long[] pairs = new long[n];
+        for (int i = 0; i < n; i++) pairs[i] = ((long) keys[i] << 32) | i;
+        java.util.Arrays.sort(pairs);
+        int m = 0;
+        for (int i = 0; i < n; i++) {
+            if (m > 0 && (pairs[m-1] >> 32) == (pairs[i] >> 32)) continue;
+            pairs[m++] = pairs[i];
+        }
+        return (m == n) ? pairs : java.util.Arrays.copyOf(pairs, m);
+    }
+
+    /*
+     * public int leftRotation(AVLNode pivot, AVLNode right_son, AVLNode parent)
+     * Rotates nodes right_son, pivot and grnd_son to the left so the pivot takes the place of right_son.
+     * the tree must remain valid (keep its invariants).
+     * returns 1 as the number of rebalancing operations.
+     * Complexity: O(1)
+     */
+    public int leftRotation(AVLNode right, AVLNode pivot, AVLNode parent){
+        AVLNode grnd_son = right.getRight();
+        //Attach temps old parent as pivots new parent
+        if(parent.isRealNode() && parent.getKey()<pivot.getKey()) parent.setRight(right);
+        else if(parent.isRealNode() && parent.getKey()>pivot.getKey()) parent.setLeft(right);
+        else this.root = right;
+        right.setParent(parent);
+        pivot.setRight(right.getLeft());
+        pivot.getRight().setParent(pivot);
+        pivot.setParent(right);
+        right.setLeft(pivot);
+        pivot.updateHeight();
+        pivot.updateTrues_in_sub_tree();
+        right.updateHeight();
+        right.updateTrues_in_sub_tree();
+        return 1;
+    }
+    /*
+     * public int rightRotation(AVLNode pivot, AVLNode left_son, AVLNode parent)
+     * Rotates nodes left_son, pivot and grnd_son to the left so the pivot takes the place of left_son.
+     * the tree must remain valid (keep its invariants).
+     * returns 1 as the number of rebalancing operations.
+     * Complexity: O(1)
+     */
+    public int rightRotation(AVLNode left, AVLNode pivot, AVLNode parent){
+        AVLNode grnd_son = left.getLeft();
+        //Attach temps old parent as pivots new parent
+        if(parent.isRealNode() && parent.getKey()<pivot.getKey()) parent.setRight(left);
+        else if(parent.isRealNode() && parent.getKey()>pivot.getKey()) parent.setLeft(left);
+        else this.root = left;
+        left.setParent(parent);
+        pivot.setLeft(left.getRight());
+        pivot.getLeft().setParent(pivot);
+        pivot.setParent(left);
+        left.setRight(pivot);
+        pivot.updateHeight();
+        pivot.updateTrues_in_sub_tree();
+        left.updateHeight();
+        left.updateTrues_in_sub_tree();
+        return 1;
+    }
+
+    /**
+     * public Boolean HasRightSon(AVLNode node)
+     * returns true if node has a right son that is a real node and not virtual
+     * Complexity: O(1)
+     */
+    public Boolean HasRightSon(AVLNode node) {
+        if (node.getRight().isRealNode() ) {
+            return true;
+        }
+        return false;
+    }
+    /**
+     * public Boolean HasLeftSon(AVLNode node)
+     * returns true if node has a left son that is a real node and not virtual
+     * Complexity: O(1)
+     */
+    public Boolean HasLeftSon(AVLNode node) {
+        if (node.getLeft().isRealNode() ) {
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * public int delete(int k)
+     * <p>
+     * deletes an item with key k from the binary tree, if it is there;
+     * the tree must remain valid (keep its invariants).
+     * returns the number of nodes which required rebalancing operations (i.e. demotions or rotations).
+     * returns -1 if an item with key k was not found in the tree.
+     */
+    /*This function deletes the node with key k if exists in the tree. Complexity: O(log(n))
+     * The function operates in 4 steps:
+     * 1. Searches and finds the node to delete. Complexity: O(log(n))
+     * 2. Deletes the node and replaces it with its single son or its successor if it has two sons,
+     *    taken from the in-order links. Complexity: O(1)
+     * 3. Ascends from the deleted node (or the successor node) calculating balance factors,
+     *    updating heights and determining if rotation is necessary. Complexity: O(log(n))
+     * 4. Performs the proper rotations using leftRotation and rightRotation functions. Complexity: O(1)
+     * */
+    public int delete(int k) {
+        if (size() == 1) { // if delete the root and he is a leaf
+            if (this.root.getKey() != k) return -1;
+            if (cache != null) cache.clear();
+            this.root = empty_node;
+            min_node = empty_node;
+            max_node = empty_node;
+            this.size--;
+            return 0;
+        }
+        return deleteNode(search_node(k));
+    }
+
+    /*
+     * Deletes to_del (the result of a search) from the tree as described in delete(int k).
+     * returns -1 if to_del is the virtual node.
+     * Complexity: O(log(n))
+     */
+    private int deleteNode(AVLNode to_del) {
+        int oper_count = 0;
+        if(!to_del.isRealNode()) return -1;
+        if(cache!=null) cache.remove(to_del.getKey()); // before to_del leaves the tree
+        if(to_del==this.max_node)this.max_node=to_del.getPrev();//Maintaining minimum and maximum node pointers using
+        if(to_del==this.min_node)this.min_node=to_del.getNext();//the in-order links. O(1)
+        AVLNode succ_of_del = to_del.getNext();
+        unlinkInOrder(to_del);
+        this.size--;
+        AVLNode start_of_rotations = null;
+        if(!HasLeftSon(to_del)&&!HasRightSon(to_del))changeKid(to_del, empty_node); // to_del is leaf
+        else if(HasLeftSon(to_del)&&!HasRightSon(to_del))changeKid(to_del,to_del.getLeft()); //to_del has only left son
+        else if(!HasLeftSon(to_del)&&HasRightSon(to_del))changeKid(to_del,to_del.getRight());//to_del has only right son
+        else{ // to_del has both sons so we need to look for the successor.
+            AVLNode succ = succ_of_del;
+            if(succ.getParent()==to_del) start_of_rotations=succ;
+            else start_of_rotations=succ.getParent();
+            if(HasRightSon(succ))changeKid(succ, succ.getRight());
+            else changeKid(succ, empty_node);
+            succ.setLeft(to_del.getLeft());
+            succ.setRight(to_del.getRight());
+            succ.getRight().setParent(succ);
+            succ.getLeft().setParent(succ);
+            succ.height= to_del.getHeight();
+            succ.trues_in_sub_tree=to_del.getTrues_in_sub_tree();
+            succ.size_of_sub_tree=to_del.getSize_of_sub_tree();
+            succ.aggregate=to_del.aggregate;
+            changeKid(to_del, succ);
+        }
+        if(start_of_rotations==null)start_of_rotations=to_del.getParent();
+        if (policy == BalancePolicy.WAVL) return wavlDeleteFix(start_of_rotations);
+        AVLNode current = start_of_rotations; //Beginning the rotation process
+        while (current.isRealNode()) {
+            int new_height = Math.max(current.getLeft().getHeight(), current.getRight().getHeight()) + 1;
+            if (Math.abs(current.getBalanceFactor()) < 2) {
+                if (current.getHeight() == new_height){
+                    ascendUpdateTrues(current); // Finish by ascending to root updating trues in sub_tree
+                    return oper_count;
+                    //current = current.getParent();
+                }
+                else {
+                    current.updateTrues_in_sub_tree();
+                    current.updateHeight();
+                    current = current.getParent();
+                    oper_count++;
+                    if (metrics != null) metrics.demotion();
+                }
+            }
+            else if (current.getBalanceFactor() == 2) {
+                if (current.getLeft().getBalanceFactor() != -1) {
+                    oper_count += rightRotation(current.getLeft(), current, current.getParent());
+                    if (metrics != null) metrics.singleRotation();
+                }
+                else {
+                    leftRotation(current.getLeft().getRight(), current.getLeft(), current);
+                    oper_count += rightRotation(current.getLeft(), current, current.getParent());
+                    if (metrics != null) metrics.doubleRotation();
+                }
+                current = current.getParent().getParent();
+            }
+            else if (current.getBalanceFactor() == -2) {
+                if (current.getRight().getBalanceFactor() != 1) {
+                    oper_count += leftRotation(current.getRight(), current, current.getParent());
+                    if (metrics != null) metrics.singleRotation();
+                }
+                else {
+                    rightRotation(current.getRight().getLeft(), current.getRight(), current);
+                    oper_count += leftRotation(current.getRight(), current, current.getParent());
+                    if (metrics != null) metrics.doubleRotation();
+                }
+                current = current.getParent().getParent();
+            }
+            else break;
+        }
+        return oper_count;
+    }
+
+    /*
+     * Restores the WAVL rank rules after delete took a son away from p (Haeupler, Sen and Tarjan). The only
+     * possible violations are p being a leaf of rank 1, or one son of p being a 3-son (rank lower by three):
+     * p is demoted, with its sibling if that is a 2,2 node, and the check moves up; otherwise one single or
+     * double rotation ends it. The rotation helpers recompute heights from the sons, which is not always the
+     * rank WAVL needs, so the ranks of the rotated nodes are set afterwards.
+     * returns the number of demotions and rotations, like the AVL loop.
+     * Complexity: O(log(n)) to update the true counts, amortized O(1) demotions and at most 2 rotations
+     */
+    private int wavlDeleteFix(AVLNode p) {
+        ascendUpdateTrues(p); // the rotations below recompute only the nodes they move, from their sons
+        int oper_count = 0;
+        while (p.isRealNode()) {
+            AVLNode left = p.getLeft();
+            AVLNode right = p.getRight();
+            if (!left.isRealNode() && !right.isRealNode()) { // a leaf must be of rank 0
+                if (p.height == 0) return oper_count;
+                p.height = 0;
+                oper_count++;
+                if (metrics != null) metrics.demotion();
+                p = p.getParent();
+                continue;
+            }
+            boolean left_short = p.height - left.getHeight() == 3;
+            if (!left_short && p.height - right.getHeight() != 3) return oper_count;
+            AVLNode sibling = (left_short)? right : left;
+            if (p.height - sibling.getHeight() == 2) { // demote p, which is now 1 or 2 below its parent
+                p.height--;
+                oper_count++;
+                if (metrics != null) metrics.demotion();
+                p = p.getParent();
+                continue;
+            }
+            AVLNode outer = (left_short)? sibling.getRight() : sibling.getLeft();
+            AVLNode inner = (left_short)? sibling.getLeft() : sibling.getRight();
+            if (sibling.height - outer.getHeight() == 2 && sibling.height - inner.getHeight() == 2) {
+                sibling.height--; // a 2,2 sibling goes down with p
+                p.height--;
+                oper_count += 2;
+                if (metrics != null) {
+                    metrics.demotion();
+                    metrics.demotion();
+                }
+                p = p.getParent();
+                continue;
+            }
+            AVLNode parent = p.getParent();
+            int rank = p.height;
+            if (sibling.height - outer.getHeight() == 1) {
+                if (left_short) leftRotation(sibling, p, parent);
+                else rightRotation(sibling, p, parent);
+                sibling.height = rank;
+                p.height = (HasLeftSon(p) || HasRightSon(p))? rank - 1 : 0;
+                if (metrics != null) metrics.singleRotation();
+            }
+            else {
+                if (left_short) {
+                    rightRotation(inner, sibling, p);
+                    leftRotation(inner, p, parent);
+                }
+                else {
+                    leftRotation(inner, sibling, p);
+                    rightRotation(inner, p, parent);
+                }
+                inner.height = rank;
+                sibling.height = rank - 2;
+                p.height = rank - 2;
+                if (metrics != null) metrics.doubleRotation();
+            }
+            return oper_count + 1;
+        }
+        return oper_count;
+    }
+
+    /**
+     * public int deleteAll(int[] keys)
+     * <p>
+     * deletes every key of keys that is in the tree.
+     * returns the total number of rebalancing operations, which is the sum of what delete returns for the
+     * deleted keys in ascending order.
+     */
+    /* Like insertAll the keys are sorted and each search starts near the previous one: from the closest
+     * remaining node known to be smaller than the last deleted key (its left son or parent), climbing to the
+     * first ancestor whose key is not smaller than k.
+     * Complexity: O(m*log(m) + m*log(n)) for a batch of m keys
+     * */
+    public int deleteAll(int[] keys) {
+        long[] pairs = sortedUniquePairs(keys);
+        int oper_count = 0;
+        AVLNode lower = empty_node; // a node still in the tree whose key is smaller than the next k
+        for (long pair : pairs) {
+            int k = (int) (pair >> 32);
+            if (empty()) break;
+            if (size() == 1) { // delete handles removing the last node
+                if (this.root.getKey() == k) oper_count += delete(k);
+                continue;
+            }
+            AVLNode curr = this.getRoot();
+            if (lower.isRealNode()) {
+                AVLNode anc = lower;
+                while (anc.isRealNode() && anc.getKey() < k) anc = anc.getParent();
+                if (anc.isRealNode()) curr = anc;
+            }
+            while (curr.isRealNode() && curr.getKey() != k) curr = (curr.getKey() > k) ? curr.getLeft() : curr.getRight();
+            if (!curr.isRealNode()) continue;
+            if (HasLeftSon(curr)) lower = curr.getLeft();
+            else if (curr.getParent().isRealNode() && curr.getParent().getKey() < k) lower = curr.getParent();
+            oper_count += deleteNode(curr);
+        }
+        return oper_count;
+    }
+
+    /**
+     * public int deleteRange(int lo, int hi)
+     * <p>
+     * deletes every item whose key k is in lo <= k <= hi.
+     * returns the number of items deleted (0 if lo > hi).
+     */
+    /* The range is cut out with two splits of the root, and what is left on both sides is put back together
+     * with one join, whose middle node is the smallest key above the range, taken out of the upper part. The
+     * removed items stay one detached subtree for the garbage collector; the in-order links are bridged over
+     * it at its two ends, so no removed node is visited.
+     * Complexity: O(log(n)), whatever the number of items deleted
+     * */
+    public int deleteRange(int lo, int hi) {
+        if (lo > hi || empty()) return 0;
+        AVLNode first = ceilingNode(lo);
+        if (!first.isRealNode() || first.getKey() > hi) return 0;
+        AVLNode before = first.getPrev();
+        AVLNode after = (hi == Integer.MAX_VALUE) ? empty_node : ceilingNode(hi + 1);
+        if (cache != null) cache.clear();
+        AVLNode[] outer = splitNodes(this.root, lo);
+        AVLNode upper = empty_node;
+        AVLNode range = outer[1];
+        if (after.isRealNode()) {
+            AVLNode[] inner = splitNodes(outer[1], hi + 1);
+            range = inner[0];
+            upper = inner[1];
+        }
+        int removed = range.getSize_of_sub_tree();
+        this.root = concatNodes(outer[0], after, upper);
+        if (this.root.isRealNode()) this.root.setParent(empty_node);
+        if (before.isRealNode()) before.setNext(after);
+        if (after.isRealNode()) after.setPrev(before);
+        if (!before.isRealNode()) min_node = after;
+        if (!after.isRealNode()) max_node = before;
+        this.size -= removed;
+        this.finger = empty_node;
+        return removed;
+    }
+
+    // Joins the subtrees l and r (either may be virtual), all keys of l < all keys of r, where min is the node
+    // with the smallest key of r. min is taken out of r and becomes the middle node of joinNodes.
+    // Complexity: O(log(n))
+    private AVLNode concatNodes(AVLNode l, AVLNode min, AVLNode r) {
+        if (!r.isRealNode()) return l;
+        if (!l.isRealNode()) return r;
+        AVLNode parent = min.getParent();
+        AVLNode son = min.getRight(); // min has no left son
+        if (son.isRealNode()) son.setParent(parent);
+        if (parent.isRealNode()) {
+            parent.setLeft((son.isRealNode()) ? son : empty_node);
+            r = rebalanceUp(parent);
+        }
+        else r = son;
+        return joinNodes(l, min, r);
+    }
+
+    /**
+     * public void forEachInRange(int lo, int hi, IntBooleanConsumer action)
+     * <p>
+     * Calls action with the key and info of every item whose key k is in lo <= k <= hi, in ascending key order.
+     * Allocates nothing. action must not insert into or delete from the tree.
+     */
+    // Complexity: O(log(n) + m) for m items in the range
+    public void forEachInRange(int lo, int hi, IntBooleanConsumer action) {
+        for (AVLNode node = ceilingNode(lo); node.isRealNode() && node.getKey() <= hi; node = node.getNext()) {
+            action.accept(node.getKey(), node.getValue());
+        }
+    }
+
+    /*
+    * Function during delete we may need to ascend to the root updating the field trues_in_sub_tree
+    * Complexity: O(log(n))
+    * */
+    public void ascendUpdateTrues(AVLNode node){
+        while (node!=null && node.isRealNode()){ // after a join the top can be another tree's virtual node
+            node.updateTrues_in_sub_tree();
+            node=node.getParent();
+        }
+    }
+    // This function sets Node's parents child as new_kid in place of Node
+    // Or uses this.root if Node is the root
+    // Complexity: O(1)
+    public void changeKid(AVLNode Node, AVLNode new_kid){
+        if(Node==this.root){
+            this.root=new_kid;
+            new_kid.setParent(empty_node);
+            return;
+        }
+        AVLNode parent = Node.getParent();
+        if(parent.getLeft()==Node)parent.setLeft(new_kid);
+        else if(parent.getRight()==Node)parent.setRight(new_kid);
+        if(new_kid.isRealNode())new_kid.setParent(parent);
+    }
+
+    /**
+     * public Boolean min()
+     * <p>
+     * Returns the info of the item with the smallest key in the tree,
+     * or null if the tree is empty
+     */
+    // Complexity: O(1)
+    public Boolean min() {
+        return(this.empty())? null : min_node.getValue();
+    }
+
+    /**
+     * public Boolean max()
+     * <p>
+     * Returns the info of the item with the largest key in the tree,
+     * or null if the tree is empty
+     */
+    // Complexity: O(1)
+    public Boolean max() {
+        return(this.empty())? null : max_node.getValue();
+    }
+
+    /**
+     * public int[] keysToArray()
+     * <p>
+     * Returns a sorted array which contains all keys in the tree,
+     * or an empty array if the tree is empty.
+     */
+    // Complexity: O(n)
+    public int[] keysToArray() {
+        int[] arr = new int[size()];
+        exportTo(arr, null);
+        return arr;
+    }
+
+    /**
+     * public boolean[] infoToArray()
+     * <p>
+     * Returns an array which contains all info in the tree,
+     * sorted by their respective keys,
+     * or an empty array if the tree is empty.
+     */
+    // Complexity: O(n)
+    public boolean[] infoToArray() {
+        boolean[] arr = new boolean[this.size()];
+        exportTo(null, arr);
+        return arr;
+    }
+
+    /**
+     * public int exportTo(int[] keys, boolean[] values)
+     * <p>
+     * Writes the keys (sorted) and their info into the start of the given arrays, either of which may be null.
+     * returns the number of items written, which is size().
+     * throws IllegalArgumentException if an array is shorter than size().
+     */
+    /* Walks the in-order links from min_node, so the export neither recurses nor allocates.
+     * Complexity: O(n)
+     * */
+    public int exportTo(int[] keys, boolean[] values) {
+        if ((keys != null && keys.length < size()) || (values != null && values.length < size()))
+            throw new IllegalArgumentException("array shorter than the tree size " + size());
+        if (empty()) return 0;
+        int index = 0;
+        for (AVLNode node = min_node; node.isRealNode(); node = nextInOrder(node)) {
+            if (keys != null) keys[index] = node.getKey();
+            if (values != null) values[index] = node.getValue();
+            index++;
+        }
+        return index;
+    }
+
+    // Returns the in-order successor of node, or the virtual node after the maximum.
+    // Complexity: O(1)
+    private AVLNode nextInOrder(AVLNode node) {
+        return node.getNext();
+    }
+
+    // Returns the node with the smallest key >= k, or the virtual node if there is none.
+    // Complexity: O(log(n))
+    private AVLNode ceilingNode(int k) {
+        AVLNode candidate = empty_node;
+        AVLNode curr = this.root;
+        while (curr.isRealNode()) {
+            if (curr.getKey() >= k) {
+                candidate = curr;
+                if (curr.getKey() == k) break;
+                curr = curr.getLeft();
+            }
+            else curr = curr.getRight();
+        }
+        return candidate;
+    }
+
+    // Threads node between prev and next (either may be the virtual node, which is never modified).
+    // Rotations do not change the in-order sequence, so only insert and delete touch these links.
+    // Complexity: O(1)
+    private void linkInOrder(AVLNode prev, AVLNode node, AVLNode next) {
+        node.setPrev(prev);
+        node.setNext(next);
+        if (prev.isRealNode()) prev.setNext(node);
+        if (next.isRealNode()) next.setPrev(node);
+    }
+
+    // Removes node from the in-order links.
+    // Complexity: O(1)
+    private void unlinkInOrder(AVLNode node) {
+        if (node.getPrev().isRealNode()) node.getPrev().setNext(node.getNext());
+        if (node.getNext().isRealNode()) node.getNext().setPrev(node.getPrev());
+    }
+
+    /**
+     * public Cursor cursor()
+     * <p>
+     * Returns a cursor positioned before the smallest key. See Cursor.
+     */
+    // Complexity: O(1)
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * public class Cursor
+     * <p>
+     * A reusable in-order cursor over the items of the tree. nextInt() returns the next key and value() the info
+     * of the key it returned last; seek(k) moves the cursor so that the next key returned is the smallest key >= k.
+     * A cursor allocates nothing while it moves. It must not be used across an insert or delete on the tree;
+     * seek again after modifying it.
+     */
+    public class Cursor implements java.util.PrimitiveIterator.OfInt {
+
+        private AVLNode next; // the node nextInt returns next, or the virtual node at the end
+        private AVLNode current; // the node nextInt returned last
+
+        private Cursor() {
+            seekFirst();
+        }
+
+        // Moves before the smallest key
+        // Complexity: O(1)
+        public void seekFirst() {
+            this.next = (empty()) ? empty_node : min_node;
+            this.current = empty_node;
+        }
+
+        // Moves before the smallest key that is >= k
+        // Complexity: O(log(n))
+        public void seek(int k) {
+            this.next = ceilingNode(k);
+            this.current = empty_node;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next.isRealNode();
+        }
+
+        // Returns the next key in ascending order
+        // Complexity: amortized O(1)
+        @Override
+        public int nextInt() {
+            if (!next.isRealNode()) throw new java.util.NoSuchElementException();
+            current = next;
+            next = nextInOrder(next);
+            return current.getKey();
+        }
+
+        // Returns the info of the key returned by the last nextInt()
+        // Complexity: O(1)
+        public boolean value() {
+            if (!current.isRealNode()) throw new IllegalStateException("nextInt() was not called since the last seek");
+            return current.getValue();
+        }
+    }
+
+    /**
+     * public int size()
+     * <p>
+     * Returns the number of nodes in the tree.
+     */
+    // Complexity: O(1)
+    public int size() { return this.size;  }
+
+    /**
+     * public int getRoot()
+     * <p>
+     * Returns the root AVL node, or null if the tree is empty
+     */
+    // Complexity: O(1)
+    public AVLNode getRoot() { return this.root; }
+
+    /**
+     * public boolean prefixXor(int k)
+     *
+     * Given an argument k which is a key in the tree, calculate the xor of the values of nodes whose keys are
+     * smaller or equal to k.
+     *
+     * precondition: this.search(k) != null
+     *
+     */
+    /*
+    * Complexity: O(log(n))
+    * */
+    public boolean prefixXor(int k){
+        int true_count = 0;
+        AVLNode curr = this.getRoot();
+        while(curr.isRealNode() && curr.getKey()!=k){
+            if(curr.getKey()<k){
+                true_count+=curr.getTrues_in_sub_tree()-curr.getRight().getTrues_in_sub_tree();
+                curr=curr.getRight();
+            }
+            else curr = curr.getLeft();
+        }
+        int my_true = (curr.getValue())? 1 : 0;
+        true_count+=curr.getLeft().getTrues_in_sub_tree() + my_true;
+
+        return !(true_count%2==0);
+    }
+
+    /**
+     * public int countTruesInRange(int lo, int hi)
+     * <p>
+     * Returns the number of items with info true whose keys k satisfy lo <= k <= hi (0 if lo > hi).
+     * lo and hi do not have to be keys in the tree.
+     */
+    // Complexity: O(log(n))
+    public int countTruesInRange(int lo, int hi){
+        if(lo>hi) return 0;
+        return truesAtMost(hi) - ((lo==Integer.MIN_VALUE)? 0 : truesAtMost(lo-1));
+    }
+
+    /**
+     * public boolean xorInRange(int lo, int hi)
+     * <p>
+     * Returns the xor of the values of the items whose keys k satisfy lo <= k <= hi (false if there are none).
+     * Unlike prefixXor, neither bound has to be a key in the tree.
+     */
+    // Complexity: O(log(n))
+    public boolean xorInRange(int lo, int hi){
+        return countTruesInRange(lo, hi)%2!=0;
+    }
+
+    // Returns the number of items with info true and key <= k.
+    // Complexity: O(log(n))
+    private int truesAtMost(int k){
+        int true_count = 0;
+        AVLNode curr = this.getRoot();
+        while(curr.isRealNode()){
+            if(curr.getKey()<=k){
+                true_count+=curr.getTrues_in_sub_tree()-curr.getRight().getTrues_in_sub_tree();
+                curr=curr.getRight();
+            }
+            else curr = curr.getLeft();
+        }
+        return true_count;
+    }
+
+    /**
+     * public long rangeAggregate(int lo, int hi)
+     * <p>
+     * Returns the aggregate of the tree's LongMonoid over the items whose keys k satisfy lo <= k <= hi,
+     * combined in key order (the monoid's identity if there are none). lo and hi do not have to be keys in the tree.
+     * throws IllegalStateException if the tree was not created with a LongMonoid.
+     */
+    /* Descends to the highest node inside [lo, hi]. Every item of the range is then either that node, a node on
+     * the path from it towards lo or towards hi, or inside a whole subtree hanging off those paths, whose
+     * aggregate is already stored.
+     * Complexity: O(log(n))
+     * */
+    public long rangeAggregate(int lo, int hi){
+        if(monoid==null) throw new IllegalStateException("tree was created without a LongMonoid");
+        if(lo>hi) return monoid.identity();
+        AVLNode split = this.getRoot();
+        while(split.isRealNode() && (split.getKey()<lo || split.getKey()>hi))
+            split = (split.getKey()<lo)? split.getRight() : split.getLeft();
+        if(!split.isRealNode()) return monoid.identity();
+        long left = monoid.identity(); // items of split's left subtree with key >= lo, built right to left
+        for(AVLNode curr = split.getLeft(); curr.isRealNode();){
+            if(curr.getKey()>=lo){
+                left = monoid.combine(monoid.combine(curr.lift(), curr.getRight().getAggregate()), left);
+                curr = curr.getLeft();
+            }
+            else curr = curr.getRight();
+        }
+        long right = monoid.identity(); // items of split's right subtree with key <= hi, built left to right
+        for(AVLNode curr = split.getRight(); curr.isRealNode();){
+            if(curr.getKey()<=hi){
+                right = monoid.combine(right, monoid.combine(curr.getLeft().getAggregate(), curr.lift()));
+                curr = curr.getRight();
+            }
+            else curr = curr.getLeft();
+        }
+        return monoid.combine(monoid.combine(left, split.lift()), right);
+    }
+
+    /**
+     * public int rank(int k)
+     * <p>
+     * Returns the number of keys in the tree that are smaller than k. k does not have to be in the tree.
+     */
+    // Complexity: O(log(n))
+    public int rank(int k){
+        int count = 0;
+        AVLNode curr = this.getRoot();
+        while(curr.isRealNode()){
+            if(curr.getKey()<k){
+                count+=curr.getLeft().getSize_of_sub_tree()+1;
+                curr=curr.getRight();
+            }
+            else curr = curr.getLeft();
+        }
+        return count;
+    }
+
+    /**
+     * public int select(int i)
+     * <p>
+     * Returns the i'th smallest key in the tree (select(1) is the minimum).
+     * throws IndexOutOfBoundsException if i is not between 1 and size().
+     */
+    // Complexity: O(log(n))
+    public int select(int i){
+        if(i<1||i>size()) throw new IndexOutOfBoundsException("select(" + i + ") on a tree of size " + size());
+        AVLNode curr = this.getRoot();
+        while(true){
+            int left_size = curr.getLeft().getSize_of_sub_tree();
+            if(i==left_size+1) return curr.getKey();
+            if(i<=left_size) curr = curr.getLeft();
+            else{
+                i-=left_size+1;
+                curr = curr.getRight();
+            }
+        }
+    }
+
+    /**
+     * public int countInRange(int lo, int hi)
+     * <p>
+     * Returns the number of keys k in the tree with lo <= k <= hi (0 if lo > hi).
+     */
+    // Complexity: O(log(n))
+    public int countInRange(int lo, int hi){
+        if(lo>hi) return 0;
+        int at_most_hi = (hi==Integer.MAX_VALUE)? size() : rank(hi+1);
+        return at_most_hi-rank(lo);
+    }
+
+  /*
+  * Return the predecessor of node (or virtual node if predecessor does not exist)
+  * Complexity: O(1) using the in-order links
+  * */
+    public AVLNode predecessor(AVLNode node){
+        if (!node.isRealNode()) return empty_node;
+        return node.getPrev();
+    }
+
+
+    /**
+     * public AVLNode successor
+     *
+     * given a node 'node' in the tree, return the successor of 'node' in the tree (or null if successor doesn't exist)
+     *
+     * @param node - the node whose successor should be returned
+     * @return the successor of 'node' if exists, null otherwise
+     */
+    // Complexity: O(1) using the in-order links
+    public AVLNode successor(AVLNode node) {
+        if (node == this.max_node)return null;
+        return node.getNext();
+    }
+
+    /**
+     * public boolean succPrefixXor(int k)
+     *
+     * This function is identical to prefixXor(int k) in terms of input/output. However, the implementation of
+     * succPrefixXor should be the following: starting from the minimum-key node, iteratively call successor until
+     * you reach the node of key k. Return the xor of all visited nodes.
+     *
+     * precondition: this.search(k) != null
+     */
+    // Complexity: O(n), successor is O(1)
+    public boolean succPrefixXor(int k){
+        if(k==min_node.getKey())return min();
+        int xor_count = 0;
+        AVLNode curr = min_node;
+        if (!curr.isRealNode())return false;
+        if (curr.getValue())xor_count++;
+        AVLNode succ = successor(curr);
+        while (succ!=null&&succ.isRealNode()){
+            if(succ.getValue())xor_count++;
+            if(succ.getKey()==k)break;
+            else succ=successor(succ);
+        }
+
+        return (xor_count%2!=0);
+    }
+
+
+    /**
+     * public AVLTree[] split(int k)
+     * <p>
+     * Splits the tree into two trees: the first holds the items with keys smaller than k, the second the items
+     * with keys greater than or equal to k. The nodes are moved, not copied, so this tree is left empty.
+     */
+    /* Walks down the search path of k. Every node on the path goes, together with the subtree on its far side,
+     * to one of the two results, and is joined there with joinNodes. The heights of the pieces joined on each
+     * side only grow, so the joins cost O(log(n)) altogether.
+     * Complexity: O(log(n))
+     * */
+    public AVLTree[] split(int k) {
+        AVLNode[] roots = splitNodes(this.root, k);
+        AVLTree lower = wrap(this, roots[0]);
+        AVLTree upper = wrap(this, roots[1]);
+        clear();
+        return new AVLTree[]{lower, upper};
+    }
+
+    /**
+     * public static AVLTree join(AVLTree t1, int key, boolean value, AVLTree t2)
+     * <p>
+     * Returns a tree holding the items of t1, the item (key, value) and the items of t2.
+     * Every key of t1 must be smaller than key and every key of t2 greater than key, and both trees must use
+     * the same LongMonoid (or none); otherwise IllegalArgumentException is thrown.
+     * The nodes of t1 and t2 are moved, so both are left empty.
+     */
+    /* The shorter tree and the new node hang from the spine of the taller tree at the first node whose height
+     * is at most one more than the shorter tree's, which is the only place the heights can go out of balance;
+     * rebalanceUp then fixes the path above it, like an insert.
+     * Complexity: O(|height(t1) - height(t2)| + 1), so O(log(n))
+     * */
+    public static AVLTree join(AVLTree t1, int key, boolean value, AVLTree t2) {
+        if (t1 == t2) throw new IllegalArgumentException("can not join a tree with itself");
+        if (t1.monoid != t2.monoid) throw new IllegalArgumentException("trees use different monoids");
+        if ((!t1.empty() && t1.max_node.getKey() >= key) || (!t2.empty() && t2.min_node.getKey() <= key))
+            throw new IllegalArgumentException("keys of t1 must be smaller than " + key + " and keys of t2 greater");
+        AVLNode x = t1.new AVLNode(key, value);
+        t1.linkInOrder((t1.empty())? t1.empty_node : t1.max_node, x, (t2.empty())? t2.empty_node : t2.min_node);
+        AVLTree joined = wrap(t1, t1.joinNodes(t1.root, x, t2.root));
+        joined.policy = joinedPolicy(t1, t2);
+        t1.clear();
+        t2.clear();
+        return joined;
+    }
+
+    // Splits the subtree t into the roots of the subtrees with keys < k and keys >= k.
+    // Complexity: O(height(t))
+    private AVLNode[] splitNodes(AVLNode t, int k) {
+        if (!t.isRealNode()) return new AVLNode[]{empty_node, empty_node};
+        AVLNode left = t.getLeft();
+        AVLNode right = t.getRight();
+        if (k <= t.getKey()) {
+            AVLNode[] roots = splitNodes(left, k);
+            roots[1] = joinNodes(roots[1], t, right);
+            return roots;
+        }
+        AVLNode[] roots = splitNodes(right, k);
+        roots[0] = joinNodes(left, t, roots[0]);
+        return roots;
+    }
+
+    /*
+     * Joins the subtrees l and r (either may be virtual) with the node x, all keys of l < x's key < all keys
+     * of r, and returns the root of the result. Only parent, child, height and aggregate fields are touched;
+     * the caller keeps the in-order links.
+     * Complexity: O(|height(l) - height(r)| + 1)
+     */
+    private AVLNode joinNodes(AVLNode l, AVLNode x, AVLNode r) {
+        if (!l.isRealNode()) l = empty_node;
+        if (!r.isRealNode()) r = empty_node;
+        if (l.isRealNode()) l.setParent(empty_node); // both may have been sons of nodes that are being moved
+        if (r.isRealNode()) r.setParent(empty_node);
+        if (l.getHeight() > r.getHeight() + 1) {
+            AVLNode p = empty_node;
+            AVLNode c = l;
+            while (c.getHeight() > r.getHeight() + 1) {
+                p = c;
+                c = c.getRight();
+            }
+            attachSons(x, c, r);
+            p.setRight(x);
+            x.setParent(p);
+            return rebalanceUp(p);
+        }
+        if (r.getHeight() > l.getHeight() + 1) {
+            AVLNode p = empty_node;
+            AVLNode c = r;
+            while (c.getHeight() > l.getHeight() + 1) {
+                p = c;
+                c = c.getLeft();
+            }
+            attachSons(x, l, c);
+            p.setLeft(x);
+            x.setParent(p);
+            return rebalanceUp(p);
+        }
+        attachSons(x, l, r);
+        x.setParent(empty_node);
+        return x;
+    }
+
+    // Makes l and r the sons of x and recomputes x's height and aggregates.
+    // Complexity: O(1)
+    private void attachSons(AVLNode x, AVLNode l, AVLNode r) {
+        x.setLeft((l.isRealNode())? l : empty_node);
+        x.setRight((r.isRealNode())? r : empty_node);
+        if (l.isRealNode()) l.setParent(x);
+        if (r.isRealNode()) r.setParent(x);
+        x.updateHeight();
+        x.updateTrues_in_sub_tree();
+    }
+
+    /*
+     * Ascends from node to the top of its tree restoring heights and aggregates and rotating wherever the
+     * balance factor reached +-2. Returns the top node (the root of the whole subtree).
+     * Unlike leftRotation/rightRotation this never touches this.root, so it can work on detached subtrees.
+     * Complexity: O(height)
+     */
+    private AVLNode rebalanceUp(AVLNode node) {
+        AVLNode top = node;
+        while (node.isRealNode()) {
+            node.updateHeight();
+            node.updateTrues_in_sub_tree();
+            int bf = node.getBalanceFactor();
+            if (bf == 2) {
+                boolean twice = node.getLeft().getBalanceFactor() < 0;
+                if (twice) rotateUp(node.getLeft().getRight());
+                node = rotateUp(node.getLeft());
+                if (metrics != null) recordRotation(twice);
+            }
+            else if (bf == -2) {
+                boolean twice = node.getRight().getBalanceFactor() > 0;
+                if (twice) rotateUp(node.getRight().getLeft());
+                node = rotateUp(node.getRight());
+                if (metrics != null) recordRotation(twice);
+            }
+            top = node;
+            node = node.getParent();
+        }
+        return top;
+    }
+
+    // Counts a single rotation, or a double one if twice
+    private void recordRotation(boolean twice) {
+        if (twice) metrics.doubleRotation();
+        else metrics.singleRotation();
+    }
+
+    // Rotates node up over its parent (a right rotation if node is a left son, otherwise a left rotation)
+    // and returns node.
+    // Complexity: O(1)
+    private AVLNode rotateUp(AVLNode node) {
+        AVLNode pivot = node.getParent();
+        AVLNode grand = pivot.getParent();
+        if (pivot.getLeft() == node) {
+            pivot.setLeft(node.getRight());
+            if (node.getRight().isRealNode()) node.getRight().setParent(pivot);
+            node.setRight(pivot);
+        }
+        else {
+            pivot.setRight(node.getLeft());
+            if (node.getLeft().isRealNode()) node.getLeft().setParent(pivot);
+            node.setLeft(pivot);
+        }
+        pivot.setParent(node);
+        node.setParent(grand);
+        if (grand.isRealNode()) {
+            if (grand.getLeft() == pivot) grand.setLeft(node);
+            else grand.setRight(node);
+        }
+        pivot.updateHeight();
+        pivot.updateTrues_in_sub_tree();
+        node.updateHeight();
+        node.updateTrues_in_sub_tree();
+        return node;
+    }
+
+    /**
+     * public static AVLTree union(AVLTree t1, AVLTree t2)
+     * <p>
+     * Returns a tree holding every key of t1 or t2. A key found in both keeps its info (and payload) from t1.
+     * Both trees must use the same LongMonoid (or none); otherwise IllegalArgumentException is thrown.
+     * The nodes are moved, so t1 and t2 are left empty. Same as union(t1, t2, DEFAULT_GRAIN).
+     */
+    // Complexity: O(m*log(n/m + 1)) work for m <= n the sizes of the trees, O(log(n)^2) span
+    public static AVLTree union(AVLTree t1, AVLTree t2) {
+        return union(t1, t2, DEFAULT_GRAIN);
+    }
+
+    /**
+     * public static AVLTree union(AVLTree t1, AVLTree t2, int grain)
+     * <p>
+     * As union(t1, t2), but subproblems with fewer than grain items between both trees are solved on the
+     * calling thread instead of being forked to the common ForkJoinPool.
+     */
+    public static AVLTree union(AVLTree t1, AVLTree t2, int grain) {
+        return setOperation(t1, t2, SetOperation.UNION, grain);
+    }
+
+    /**
+     * public static AVLTree intersection(AVLTree t1, AVLTree t2)
+     * <p>
+     * Returns a tree holding the keys found in both t1 and t2, with their info (and payload) from t1.
+     * Same conditions as union: t1 and t2 are left empty. Same as intersection(t1, t2, DEFAULT_GRAIN).
+     */
+    // Complexity: O(m*log(n/m + 1)) work, O(log(n)^2) span
+    public static AVLTree intersection(AVLTree t1, AVLTree t2) {
+        return intersection(t1, t2, DEFAULT_GRAIN);
+    }
+
+    /**
+     * public static AVLTree intersection(AVLTree t1, AVLTree t2, int grain)
+     * <p>
+     * As intersection(t1, t2) with the given parallel grain size (see union(t1, t2, grain)).
+     */
+    public static AVLTree intersection(AVLTree t1, AVLTree t2, int grain) {
+        return setOperation(t1, t2, SetOperation.INTERSECTION, grain);
+    }
+
+    /**
+     * public static AVLTree difference(AVLTree t1, AVLTree t2)
+     * <p>
+     * Returns a tree holding the items of t1 whose keys are not in t2.
+     * Same conditions as union: t1 and t2 are left empty. Same as difference(t1, t2, DEFAULT_GRAIN).
+     */
+    // Complexity: O(m*log(n/m + 1)) work, O(log(n)^2) span
+    public static AVLTree difference(AVLTree t1, AVLTree t2) {
+        return difference(t1, t2, DEFAULT_GRAIN);
+    }
+
+    /**
+     * public static AVLTree difference(AVLTree t1, AVLTree t2, int grain)
+     * <p>
+     * As difference(t1, t2) with the given parallel grain size (see union(t1, t2, grain)).
+     */
+    public static AVLTree difference(AVLTree t1, AVLTree t2, int grain) {
+        return setOperation(t1, t2, SetOperation.DIFFERENCE, grain);
+    }
+
+    // The default number of items under which the set operations stop forking
+    public static final int DEFAULT_GRAIN = 1 << 13;
+
+    private enum SetOperation { UNION, INTERSECTION, DIFFERENCE }
+
+    /* Runs op on the whole trees in the common ForkJoinPool and wraps the result like join does.
+     * Complexity: as the operation
+     * */
+    private static AVLTree setOperation(AVLTree t1, AVLTree t2, SetOperation op, int grain) {
+        if (t1 == t2) throw new IllegalArgumentException("can not combine a tree with itself");
+        if (t1.monoid != t2.monoid) throw new IllegalArgumentException("trees use different monoids");
+        if (grain < 1) throw new IllegalArgumentException("grain must be positive");
+        Piece a = t1.new Piece(t1.root, t1.min_node, t1.max_node);
+        Piece b = t1.new Piece(t2.root, t2.min_node, t2.max_node);
+        Piece result = java.util.concurrent.ForkJoinPool.commonPool().invoke(t1.new SetOperationTask(op, a, b, grain));
+        AVLTree tree = wrap(t1, result.root);
+        tree.policy = joinedPolicy(t1, t2);
+        t1.clear();
+        t2.clear();
+        return tree;
+    }
+
+    /*
+     * A subtree detached from its tree together with its smallest and largest node (null if empty).
+     * Every piece is a run of consecutive items of one original tree, or was put together by joinPieces, so the
+     * in-order links between its own nodes are right; only the links leaving its two ends may be stale.
+     * That lets a piece's children be cut out with their ends known in O(1), from the links of the root.
+     */
+    private final class Piece {
+        final AVLNode root;
+        final AVLNode min;
+        final AVLNode max;
+
+        Piece(AVLNode root, AVLNode min, AVLNode max) {
+            this.root = (root.isRealNode())? root : empty_node;
+            this.min = (root.isRealNode())? min : null;
+            this.max = (root.isRealNode())? max : null;
+        }
+
+        boolean isEmpty() {return !root.isRealNode();}
+
+        int size() {return root.getSize_of_sub_tree();}
+
+        // The subtree of the root's left son, which ends right before the root
+        Piece leftOfRoot() {return new Piece(root.getLeft(), min, root.getPrev());}
+
+        // The subtree of the root's right son, which starts right after the root
+        Piece rightOfRoot() {return new Piece(root.getRight(), root.getNext(), max);}
+    }
+
+    /*
+     * The join-based set operations of Blelloch et al. ("Just Join for Parallel Ordered Sets"): split b by the
+     * key of a's root, solve both sides independently (in parallel if they are big enough) and join the
+     * results back through a's root, or concatenate them when the root is dropped.
+     * Only the nodes of this task's own pieces are written, so sibling tasks never touch the same node.
+     */
+    private final class SetOperationTask extends java.util.concurrent.RecursiveTask<Piece> {
+        private static final long serialVersionUID = 1L;
+
+        private final SetOperation op;
+        private final Piece a;
+        private final Piece b;
+        private final int grain;
+
+        SetOperationTask(SetOperation op, Piece a, Piece b, int grain) {
+            this.op = op;
+            this.a = a;
+            this.b = b;
+            this.grain = grain;
+        }
+
+        @Override
+        protected Piece compute() {
+            if (a.isEmpty()) return (op == SetOperation.UNION)? b : a;
+            if (b.isEmpty()) return (op == SetOperation.INTERSECTION)? b : a;
+            AVLNode x = a.root;
+            Piece[] sides = new Piece[2];
+            boolean inB = splitPiece(b, x.getKey(), sides);
+            SetOperationTask left = new SetOperationTask(op, a.leftOfRoot(), sides[0], grain);
+            SetOperationTask right = new SetOperationTask(op, a.rightOfRoot(), sides[1], grain);
+            Piece l, r;
+            if (a.size() + b.size() >= grain) {
+                left.fork();
+                r = right.compute();
+                l = left.join();
+            }
+            else {
+                l = left.compute();
+                r = right.compute();
+            }
+            boolean keep = op == SetOperation.UNION || (inB == (op == SetOperation.INTERSECTION));
+            return (keep)? joinPieces(l, x, r) : concatPieces(l, r);
+        }
+    }
+
+    /* Splits t into the pieces with keys < k (out[0]) and keys > k (out[1]) and returns whether t holds k
+     * (its node is then in neither piece).
+     * Complexity: O(height(t))
+     * */
+    private boolean splitPiece(Piece t, int k, Piece[] out) {
+        if (t.isEmpty()) {
+            out[0] = t;
+            out[1] = t;
+            return false;
+        }
+        AVLNode x = t.root;
+        Piece left = t.leftOfRoot();
+        Piece right = t.rightOfRoot();
+        if (k == x.getKey()) {
+            out[0] = left;
+            out[1] = right;
+            return true;
+        }
+        boolean found;
+        if (k < x.getKey()) {
+            found = splitPiece(left, k, out);
+            out[1] = joinPieces(out[1], x, right);
+        }
+        else {
+            found = splitPiece(right, k, out);
+            out[0] = joinPieces(left, x, out[0]);
+        }
+        return found;
+    }
+
+    // joinNodes on pieces, also linking x between the two.
+    // Complexity: O(|height(l) - height(r)| + 1)
+    private Piece joinPieces(Piece l, AVLNode x, Piece r) {
+        linkInOrder((l.isEmpty())? empty_node : l.max, x, (r.isEmpty())? empty_node : r.min);
+        return new Piece(joinNodes(l.root, x, r.root), (l.isEmpty())? x : l.min, (r.isEmpty())? x : r.max);
+    }
+
+    // Concatenates two pieces, all keys of l < all keys of r, by joining them through l's largest node.
+    // Complexity: O(height(l) + height(r))
+    private Piece concatPieces(Piece l, Piece r) {
+        if (l.isEmpty()) return r;
+        if (r.isEmpty()) return l;
+        AVLNode last = l.max;
+        AVLNode rest = withoutMax(l.root);
+        return joinPieces(new Piece(rest, l.min, last.getPrev()), last, r);
+    }
+
+    // Returns the root of the subtree of t without its largest node.
+    // Complexity: O(height(t))
+    private AVLNode withoutMax(AVLNode t) {
+        if (!t.getRight().isRealNode()) return t.getLeft();
+        AVLNode left = t.getLeft();
+        return joinNodes(left, t, withoutMax(t.getRight()));
+    }
+
+    // The policy of a tree made of the nodes of t1 and t2: only two AVL trees are sure to give an AVL tree
+    private static BalancePolicy joinedPolicy(AVLTree t1, AVLTree t2) {
+        boolean wavl = t1.policy == BalancePolicy.WAVL || t2.policy == BalancePolicy.WAVL;
+        return (wavl)? BalancePolicy.WAVL : BalancePolicy.AVL;
+    }
+
+    // Returns a new tree (with like's monoid, metrics and policy) whose root is root, fixing size, min/max and the
+    // two ends of the in-order links.
+    // Complexity: O(log(n))
+    private static AVLTree wrap(AVLTree like, AVLNode root) {
+        AVLTree tree = new AVLTree(like.monoid);
+        tree.metrics = like.metrics;
+        tree.chooseLookup();
+        tree.policy = like.policy;
+        tree.min_node = tree.empty_node;
+        tree.max_node = tree.empty_node;
+        if (!root.isRealNode()) return tree;
+        tree.root = root;
+        root.setParent(tree.empty_node);
+        tree.size = root.getSize_of_sub_tree();
+        tree.min_node = root;
+        while (tree.HasLeftSon(tree.min_node)) tree.min_node = tree.min_node.getLeft();
+        tree.max_node = root;
+        while (tree.HasRightSon(tree.max_node)) tree.max_node = tree.max_node.getRight();
+        tree.min_node.setPrev(tree.empty_node);
+        tree.max_node.setNext(tree.empty_node);
+        return tree;
+    }
+
+    // Makes this tree empty without touching the nodes, which now belong to another tree.
+    // Complexity: O(1)
+    private void clear() {
+        if (cache != null) cache.clear();
+        this.root = empty_node;
+        this.size = 0;
+        this.min_node = empty_node;
+        this.max_node = empty_node;
+        this.finger = empty_node;
+    }
+
+    /**
+     * public class AVLNode
+     * <p>
+     * This class represents a node in the AVL tree.
+     * <p>
+     * IMPORTANT: do not change the signatures of any function (i.e. access modifiers, return type, function name and
+     * arguments. Changing these would break the automatic tester, and would result in worse grade.
+     * <p>
+     * However, you are allowed (and required) to implement the given functions, and can add functions of your own
+     * according to your needs.
+     */
+    public class AVLNode {
+
+        private int key;
+        private Boolean value;
+        private AVLNode left;
+        private AVLNode right;
+        private AVLNode parent;
+        private int height;
+        private int trues_in_sub_tree;
+        private int size_of_sub_tree;
+        private AVLNode prev; // in-order neighbours (virtual node at either end)
+        private AVLNode next;
+        private long payload;
+        private long aggregate; // the tree's monoid over the subtree, unused without a monoid
+
+
+        //Returns balance factor using height of left and right child
+        // Complexity: O(1)
+        public int getBalanceFactor(){
+            if (this.isRealNode()) return this.left.getHeight()-this.right.getHeight();
+            return 0;
+        }
+
+
+        // This constructor sets the value, the key, the height to 0
+        // if constructing a fake empty node (null node, non-existent node)  height = -1
+        public AVLNode(int k, Boolean val){
+            this.value = val;
+            this.key = k;
+            this.height = (val==null) ? -1 : 0; // only the virtual node has no value; -1 is a valid key
+            this.trues_in_sub_tree = (val!=null&&val)? 1:0;
+            this.size_of_sub_tree = (val!=null)? 1:0;
+        }
+
+        /* Returns the amount of nodes with value true in subtree
+         * Complexity: O(1)
+         * */
+        public int getTrues_in_sub_tree(){return this.trues_in_sub_tree;}
+
+        /* Returns the amount of nodes in subtree (0 for the virtual node)
+         * Complexity: O(1)
+         * */
+        public int getSize_of_sub_tree(){return this.size_of_sub_tree;}
+
+        /* Updates the amount of nodes with value true in subtree by adding trues in subtree of left and right sons
+         * and 1 if self value is true.
+         * The size of the subtree and the monoid aggregate (if any) are kept along with it, since they change in
+         * exactly the same places.
+         * Complexity: O(1)
+         * */
+        public void updateTrues_in_sub_tree(){
+            if(!this.isRealNode())return;
+            this.trues_in_sub_tree = this.getRight().getTrues_in_sub_tree() + this.getLeft().getTrues_in_sub_tree();
+            if(this.getValue())this.trues_in_sub_tree++;
+            this.size_of_sub_tree = this.getRight().getSize_of_sub_tree() + this.getLeft().getSize_of_sub_tree() + 1;
+            if(monoid!=null)
+                this.aggregate = monoid.combine(monoid.combine(this.getLeft().getAggregate(), lift()), this.getRight().getAggregate());
+        }
+
+        // Returns the payload given to insert (0 if none was given)
+        // Complexity: O(1)
+        public long getPayload(){return this.payload;}
+
+        /* Returns the monoid aggregate of the subtree (the identity for the virtual node)
+         * Complexity: O(1)
+         * */
+        public long getAggregate(){
+            return (this.isRealNode())? this.aggregate : monoid.identity();
+        }
+
+        // The monoid value of this single item
+        private long lift(){return monoid.of(this.key, this.value, this.payload);}
+
+        //returns node's key (for virtual node return -1)
+        // Complexity: O(1)
+        public int getKey() {
+            return this.key;
+        }
+
+        //returns node's value [info] (for virtual node return null)
+        // Complexity: O(1)
+        public Boolean getValue() {
+            return this.value;
+        }
+
+        //sets left child
+        // Complexity: O(1)
+        public void setLeft(AVLNode node) {
+            this.left = node;
+            return;
+        }
+
+        //returns left child (if there is no left child return null)
+        // Complexity: O(1)
+        public AVLNode getLeft() {
+            return this.left;
+        }
+
+        //sets right child
+        // Complexity: O(1)
+        public void setRight(AVLNode node) {
+            this.right = node;
+            return;
+        }
+
+        //returns right child (if there is no right child return null)
+        // Complexity: O(1)
+        public AVLNode getRight() {
+            return this.right;
+        }
+
+        //sets parent
+        // Complexity: O(1)
+        public void setParent(AVLNode node) {
+            this.parent = node;
+            return;
+        }
+
+        //returns the parent (if there is no parent return virtual AVL node)
+        // Complexity: O(1)
+        public AVLNode getParent() {
+            return this.parent;
+        }
+
+        //returns the in-order predecessor (virtual node if this is the minimum)
+        // Complexity: O(1)
+        public AVLNode getPrev() {
+            return this.prev;
+        }
+
+        //returns the in-order successor (virtual node if this is the maximum)
+        // Complexity: O(1)
+        public AVLNode getNext() {
+            return this.next;
+        }
+
+        //sets the in-order predecessor
+        // Complexity: O(1)
+        public void setPrev(AVLNode node) {
+            this.prev = node;
+        }
+
+        //sets the in-order successor
+        // Complexity: O(1)
+        public void setNext(AVLNode node) {
+            this.next = node;
+        }
+
+        // Returns True if this is a non-virtual AVL node
+        // Complexity: O(1)
+        public boolean isRealNode() {
+            return (this.value!=null);
+        }
+
+        // sets the height of the node
+        // Complexity: O(1)
+        public void setHeight(int height) {
+            this.height = height;
+            return;
+        }
+
+        /* Updates the height of node by getting max height of left and right sons
+         * and adding 1
+         * Complexity: O(1)
+         * */
+        public void updateHeight(){
+            //if(!this.getRight().isRealNode() && !this.getLeft().isRealNode()) this.height = 0;
+            if (this.isRealNode()) this.height = Math.max(this.getLeft().getHeight(), this.getRight().getHeight())+1;
+        }
+
+        // Returns the height of the node
+        // Complexity: O(1)
+        public int getHeight() {
+            return this.height;
+        }
+    }
+}
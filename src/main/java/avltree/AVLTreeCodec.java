@@ -0,0 +1,217 @@
+package avltree;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.zip.CRC32C;
+
+/**
+ * The binary snapshot format of AVLTree.writeTo and AVLTree.readFrom.
+ * <p>
+ * Layout (big-endian):
+ * <pre>
+ *   int   MAGIC ("AVLS")
+ *   byte  FORMAT_VERSION
+ *   byte  flags (FLAG_PAYLOADS)
+ *   int   number of items n
+ *   ceil(n / BLOCK) blocks of up to BLOCK items, in key order:
+ *     long  the infos of the block's items, bit j for item j
+ *     per item: the key as a varint (the first key of the snapshot zigzag encoded, every other key as
+ *               key - previous key - 1), then, with FLAG_PAYLOADS, the payload as a zigzag varint
+ *   int   CRC32C of every byte before it
+ * </pre>
+ * Dense key sets cost about one byte per key plus a bit per info. Both sides go through one fixed buffer, so
+ * neither ever holds the whole snapshot.
+ * <p>
+ * The snapshot does not record its length in bytes, so the reader bounds every read from the channel by the
+ * fewest bytes the rest of the snapshot can take (HEADER_BYTES, then from the count: a bitset per block, a
+ * byte per varint and the checksum). It never reads past the end of the snapshot, and whatever follows it on
+ * the channel (another snapshot, say) is left there.
+ */
+final class AVLTreeCodec {
+
+    static final int MAGIC = 0x41564c53; // "AVLS"
+    static final byte FORMAT_VERSION = 1;
+    static final byte FLAG_PAYLOADS = 1;
+    static final int BLOCK = 64;
+
+    private static final int BUFFER_BYTES = 1 << 16;
+    private static final int HEADER_BYTES = 4 + 1 + 1 + 4;
+    private static final int MAX_BLOCK_BYTES = 8 + BLOCK * (5 + 10); // bitset + the longest key and payload varints
+
+    private AVLTreeCodec() {
+    }
+
+    /** Encodes items given in increasing key order into a channel. */
+    static final class Writer {
+        private final WritableByteChannel out;
+        private final ByteBuffer buf = ByteBuffer.allocate(BUFFER_BYTES);
+        private final CRC32C crc = new CRC32C();
+        private final boolean payloads;
+        private int in_block;  // items of the current block written so far
+        private int bits_at;   // where the current block's bitset goes
+        private long bits;
+        private int prev;
+        private boolean first = true;
+
+        Writer(WritableByteChannel out, int size, boolean payloads) {
+            this.out = out;
+            this.payloads = payloads;
+            buf.putInt(MAGIC).put(FORMAT_VERSION).put((payloads) ? FLAG_PAYLOADS : 0).putInt(size);
+        }
+
+        void add(int key, boolean value, long payload) throws IOException {
+            if (in_block == 0) { // a block never straddles a flush, so its bitset can be filled in at the end
+                if (buf.remaining() < MAX_BLOCK_BYTES) flush();
+                bits_at = buf.position();
+                buf.putLong(0);
+                bits = 0;
+            }
+            if (value) bits |= 1L << in_block;
+            putVarint((first) ? ((key << 1) ^ (key >> 31)) & 0xFFFFFFFFL : (long) key - prev - 1);
+            if (payloads) putVarint((payload << 1) ^ (payload >> 63));
+            first = false;
+            prev = key;
+            if (++in_block == BLOCK) endBlock();
+        }
+
+        // Writes the checksum and everything still buffered
+        void finish() throws IOException {
+            if (in_block > 0) endBlock();
+            flush();
+            buf.putInt((int) crc.getValue());
+            buf.flip();
+            while (buf.hasRemaining()) out.write(buf);
+        }
+
+        private void endBlock() {
+            buf.putLong(bits_at, bits);
+            in_block = 0;
+        }
+
+        private void flush() throws IOException {
+            buf.flip();
+            crc.update(buf.array(), 0, buf.limit());
+            while (buf.hasRemaining()) out.write(buf);
+            buf.clear();
+        }
+
+        private void putVarint(long v) {
+            while ((v & ~0x7FL) != 0) {
+                buf.put((byte) ((v & 0x7F) | 0x80));
+                v >>>= 7;
+            }
+            buf.put((byte) v);
+        }
+    }
+
+    /**
+     * Decodes a snapshot one item at a time: after next(), key, value and payload hold the next item.
+     * Read errors, a bad header or checksum and keys that are out of range throw IOException.
+     */
+    static final class Reader {
+        final int size;
+        final boolean payloads;
+        int key;
+        boolean value;
+        long payload;
+
+        private final ReadableByteChannel in;
+        private final ByteBuffer buf = ByteBuffer.allocate(BUFFER_BYTES);
+        private final CRC32C crc = new CRC32C();
+        private int crc_from; // first byte of buf not yet added to crc
+        private int read;     // items read so far
+        private long bits;
+        private long needed = HEADER_BYTES; // the fewest bytes the snapshot still has from buf's position on
+
+        Reader(ReadableByteChannel in) throws IOException {
+            this.in = in;
+            buf.limit(0);
+            if (readInt() != MAGIC) throw new IOException("not an AVLTree snapshot");
+            byte version = readByte();
+            if (version != FORMAT_VERSION) throw new IOException("unsupported snapshot version " + version);
+            payloads = (readByte() & FLAG_PAYLOADS) != 0;
+            size = readInt();
+            if (size < 0) throw new IOException("corrupt snapshot: negative size");
+            needed = 8L * ((size + BLOCK - 1) / BLOCK) + (long) size * ((payloads) ? 2 : 1) + 4;
+        }
+
+        void next() throws IOException {
+            if (read == size) throw new IOException("read past the last item");
+            int j = read % BLOCK;
+            if (j == 0) bits = readLong();
+            value = ((bits >>> j) & 1) != 0;
+            long v = readVarint();
+            if (read == 0) {
+                if (v > 0xFFFFFFFFL) throw new IOException("corrupt snapshot: key out of range");
+                key = ((int) v >>> 1) ^ -((int) v & 1);
+            }
+            else {
+                long k = key + v + 1;
+                if (v > 0xFFFFFFFFL || k > Integer.MAX_VALUE) throw new IOException("corrupt snapshot: key out of range");
+                key = (int) k;
+            }
+            if (payloads) {
+                long p = readVarint();
+                payload = (p >>> 1) ^ -(p & 1);
+            }
+            read++;
+        }
+
+        // Checks that every item was read and that the checksum matches
+        void finish() throws IOException {
+            if (read != size) throw new IOException("not every item was read");
+            crc.update(buf.array(), crc_from, buf.position() - crc_from);
+            crc_from = buf.position();
+            ensure(4);
+            if (buf.getInt() != (int) crc.getValue()) throw new IOException("snapshot checksum mismatch");
+        }
+
+        private byte readByte() throws IOException {
+            ensure(1);
+            needed--;
+            return buf.get();
+        }
+
+        private int readInt() throws IOException {
+            ensure(4);
+            needed -= 4;
+            return buf.getInt();
+        }
+
+        private long readLong() throws IOException {
+            ensure(8);
+            needed -= 8;
+            return buf.getLong();
+        }
+
+        // needed counts one byte per varint, which is only spent once the last byte is read
+        private long readVarint() throws IOException {
+            long v = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                ensure(1);
+                byte b = buf.get();
+                v |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    needed--;
+                    return v;
+                }
+            }
+            throw new IOException("corrupt snapshot: varint too long");
+        }
+
+        // Makes sure at least n unread bytes are buffered, reading no more than needed bytes past buf's position
+        private void ensure(int n) throws IOException {
+            if (buf.remaining() >= n) return;
+            crc.update(buf.array(), crc_from, buf.position() - crc_from);
+            buf.compact();
+            buf.limit((int) Math.min(buf.capacity(), Math.max(needed, n)));
+            while (buf.position() < n)
+                if (in.read(buf) < 0) throw new EOFException("snapshot ended early");
+            buf.flip();
+            crc_from = 0;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package avltree;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * public class AVLTreeMetrics
+ * <p>
+ * Counters of the rebalancing work an AVLTree does: single and double rotations, height promotions (insert) and
+ * demotions (delete), rejected duplicate inserts, a histogram of the number of nodes each search visits, and
+ * the hits and misses of the search cache (AVLTree.setSearchCache). A search answered by the cache visits no
+ * node and is not in the histogram.
+ * <p>
+ * A tree only records into an AVLTreeMetrics after setMetrics; without one the hot paths pay a single null
+ * check. The counters are LongAdders, so one AVLTreeMetrics can be shared by many trees and read (pulled
+ * through the getters, or over JMX after register) while they are being updated.
+ */
+public class AVLTreeMetrics implements AVLTreeMetricsMXBean {
+
+    private static final int HISTOGRAM_BUCKETS = 64; // AVL trees of up to 2^31 keys are at most 45 levels deep
+
+    private final LongAdder single_rotations = new LongAdder();
+    private final LongAdder double_rotations = new LongAdder();
+    private final LongAdder promotions = new LongAdder();
+    private final LongAdder demotions = new LongAdder();
+    private final LongAdder duplicate_inserts = new LongAdder();
+    private final LongAdder searches = new LongAdder();
+    private final LongAdder search_path_total = new LongAdder();
+    private final LongAdder[] search_paths = new LongAdder[HISTOGRAM_BUCKETS];
+    private final LongAdder cache_hits = new LongAdder();
+    private final LongAdder cache_misses = new LongAdder();
+
+    public AVLTreeMetrics() {
+        for (int i = 0; i < HISTOGRAM_BUCKETS; i++) search_paths[i] = new LongAdder();
+    }
+
+    /**
+     * public ObjectName register(String name)
+     * <p>
+     * Registers these metrics with the platform MBeanServer as avltree:type=AVLTreeMetrics,name=name
+     * and returns the ObjectName.
+     */
+    public ObjectName register(String name) throws JMException {
+        ObjectName object_name = new ObjectName("avltree", "type", "AVLTreeMetrics");
+        object_name = ObjectName.getInstance(object_name.getCanonicalName() + ",name=" + ObjectName.quote(name));
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        server.registerMBean(this, object_name);
+        return object_name;
+    }
+
+    void singleRotation() { single_rotations.increment(); }
+
+    void doubleRotation() { double_rotations.increment(); }
+
+    void promotion() { promotions.increment(); }
+
+    void demotion() { demotions.increment(); }
+
+    void duplicateInsert() { duplicate_inserts.increment(); }
+
+    void search(int path_length) {
+        searches.increment();
+        search_path_total.add(path_length);
+        search_paths[Math.min(path_length, HISTOGRAM_BUCKETS - 1)].increment();
+    }
+
+    void cacheHit() { cache_hits.increment(); }
+
+    void cacheMiss() { cache_misses.increment(); }
+
+    @Override
+    public long getSingleRotations() { return single_rotations.sum(); }
+
+    @Override
+    public long getDoubleRotations() { return double_rotations.sum(); }
+
+    @Override
+    public long getPromotions() { return promotions.sum(); }
+
+    @Override
+    public long getDemotions() { return demotions.sum(); }
+
+    @Override
+    public long getDuplicateInserts() { return duplicate_inserts.sum(); }
+
+    @Override
+    public long getSearches() { return searches.sum(); }
+
+    @Override
+    public double getMeanSearchPathLength() {
+        long count = searches.sum();
+        return (count == 0) ? 0 : (double) search_path_total.sum() / count;
+    }
+
+    @Override
+    public long[] getSearchPathHistogram() {
+        long[] histogram = new long[HISTOGRAM_BUCKETS];
+        for (int i = 0; i < HISTOGRAM_BUCKETS; i++) histogram[i] = search_paths[i].sum();
+        return histogram;
+    }
+
+    @Override
+    public long getCacheHits() { return cache_hits.sum(); }
+
+    @Override
+    public long getCacheMisses() { return cache_misses.sum(); }
+
+    @Override
+    public double getCacheHitRatio() {
+        long hits = cache_hits.sum();
+        long lookups = hits + cache_misses.sum();
+        return (lookups == 0) ? 0 : (double) hits / lookups;
+    }
+
+    @Override
+    public void reset() {
+        single_rotations.reset();
+        double_rotations.reset();
+        promotions.reset();
+        demotions.reset();
+        duplicate_inserts.reset();
+        searches.reset();
+        search_path_total.reset();
+        for (LongAdder bucket : search_paths) bucket.reset();
+        cache_hits.reset();
+        cache_misses.reset();
+    }
+}
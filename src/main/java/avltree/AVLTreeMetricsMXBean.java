@@ -0,0 +1,37 @@
+package avltree;
+
+/**
+ * public interface AVLTreeMetricsMXBean
+ * <p>
+ * The JMX view of an AVLTreeMetrics (see AVLTreeMetrics.register).
+ */
+public interface AVLTreeMetricsMXBean {
+
+    long getSingleRotations();
+
+    long getDoubleRotations();
+
+    long getPromotions();
+
+    long getDemotions();
+
+    long getDuplicateInserts();
+
+    long getSearches();
+
+    // Average number of nodes visited by a search
+    double getMeanSearchPathLength();
+
+    // Entry d is the number of searches that visited d nodes (the last entry also counts longer paths)
+    long[] getSearchPathHistogram();
+
+    // Searches answered by the search cache, and searches that had to walk the tree
+    long getCacheHits();
+
+    long getCacheMisses();
+
+    // getCacheHits() / (getCacheHits() + getCacheMisses()), 0 before the first cached search
+    double getCacheHitRatio();
+
+    void reset();
+}
@@ -0,0 +1,499 @@
+package avltree;
+
+import java.util.Arrays;
+
+/**
+ * public class ArrayAVLTree
+ * <p>
+ * This class represents an AVLTree with integer keys and boolean values, like AVLTree, but without a heap object
+ * per entry. Every node is an index into parallel primitive arrays (key, height, trues in sub tree, left, right,
+ * parent) and the values are packed 64 to a long. Deleted slots are kept in a free list threaded through the
+ * left array and are reused by the next insert.
+ * <p>
+ * Index 0 is the virtual node (height -1, no trues) and plays the role of AVLTree's empty_node.
+ * <p>
+ * Footprint: an AVLNode costs 48 bytes on a 64 bit JVM with compressed oops (header, key, Boolean reference,
+ * three links, the hidden outer-tree reference, height and trues_in_sub_tree), here an entry costs 6 ints and
+ * one bit, about 24 bytes, and the whole tree is eight objects no matter how many keys it holds.
+ */
+public class ArrayAVLTree implements IntBooleanTree {
+
+    private static final int NIL = 0; // index of the virtual node
+    private static final int INITIAL_CAPACITY = 16;
+
+    private int[] keys;
+    private int[] heights;
+    private int[] trues_in_sub_tree;
+    private int[] left;
+    private int[] right;
+    private int[] parent;
+    private long[] value_bits;
+
+    private int root = NIL;
+    private int size;
+    private int min_node = NIL;
+    private int max_node = NIL;
+    private int free_head = NIL; // head of the free list, linked through left[]
+    private int next_unused = 1; // first slot that was never handed out
+
+    /**
+     * This constructor creates an empty ArrayAVLTree.
+     */
+    public ArrayAVLTree() {
+        this(INITIAL_CAPACITY);
+    }
+
+    /**
+     * This constructor creates an empty ArrayAVLTree with room for capacity entries before the arrays grow.
+     */
+    public ArrayAVLTree(int capacity) {
+        int cap = Math.max(capacity, 1) + 1; // +1 for the virtual node
+        keys = new int[cap];
+        heights = new int[cap];
+        trues_in_sub_tree = new int[cap];
+        left = new int[cap];
+        right = new int[cap];
+        parent = new int[cap];
+        value_bits = new long[(cap + 63) >>> 6];
+        heights[NIL] = -1;
+    }
+
+    /**
+     * public boolean empty()
+     * <p>
+     * returns true if and only if the tree is empty
+     */
+    // Complexity: O(1)
+    public boolean empty() {
+        return root == NIL;
+    }
+
+    /**
+     * public Boolean search(int k)
+     * <p>
+     * returns the info of an item with key k if it exists in the tree
+     * otherwise, returns null
+     */
+    // Complexity: O(log(n))
+    public Boolean search(int k) {
+        int node = searchIndex(k);
+        return (node == NIL) ? null : Boolean.valueOf(getValue(node));
+    }
+
+    /**
+     * public void searchBatch(int[] keys, byte[] out)
+     * <p>
+     * Looks up every key of keys like search and writes the result to the same index of out:
+     * 1 for info true, 0 for info false, -1 if the key is not in the tree.
+     * throws IllegalArgumentException if out is shorter than keys.
+     */
+    /* As in AVLTree.searchBatch, BATCH_LANES independent searches advance one level each in turn so that
+     * their cache misses overlap; a lane that finishes takes the next key.
+     * Complexity: O(m*log(n)) for m keys
+     * */
+    public void searchBatch(int[] keys, byte[] out) {
+        if (out.length < keys.length) throw new IllegalArgumentException("out is shorter than keys");
+        int[] lanes = new int[BATCH_LANES];
+        int[] lane_index = new int[BATCH_LANES];
+        int next = 0;
+        int active = 0;
+        for (; active < BATCH_LANES && next < keys.length; active++) {
+            lanes[active] = root;
+            lane_index[active] = next++;
+        }
+        Arrays.fill(lane_index, active, BATCH_LANES, -1);
+        while (active > 0) {
+            for (int j = 0; j < BATCH_LANES; j++) {
+                int i = lane_index[j];
+                if (i < 0) continue;
+                int curr = lanes[j];
+                int k = this.keys[curr];
+                if (curr != NIL && k != keys[i]) {
+                    lanes[j] = (k > keys[i]) ? left[curr] : right[curr];
+                    continue;
+                }
+                out[i] = (curr == NIL) ? -1 : (getValue(curr)) ? (byte) 1 : (byte) 0;
+                if (next < keys.length) {
+                    lanes[j] = root;
+                    lane_index[j] = next++;
+                }
+                else {
+                    lane_index[j] = -1;
+                    active--;
+                }
+            }
+        }
+    }
+
+    private static final int BATCH_LANES = 8; // searches searchBatch runs at once
+
+    // Binary search of key k returning its index or NIL if it does not exist.
+    // Complexity: O(log(n))
+    private int searchIndex(int k) {
+        int curr = root;
+        while (curr != NIL) {
+            int key = keys[curr];
+            if (key == k) return curr;
+            curr = (key > k) ? left[curr] : right[curr];
+        }
+        return NIL;
+    }
+
+    /**
+     * public int insert(int k, boolean i)
+     * <p>
+     * inserts an item with key k and info i to the AVL tree.
+     * the tree must remain valid (keep its invariants).
+     * returns the number of nodes which require rebalancing operations (i.e. promotions or rotations).
+     * This always includes the newly-created node.
+     * returns -1 if an item with key k already exists in the tree.
+     */
+    /* Same 4 steps as AVLTree.insert. Complexity: O(log(n))
+     * Unlike AVLTree the search does not touch trues_in_sub_tree, so a duplicate key costs no fix-up,
+     * and the counts are refreshed on the way back up instead.
+     * */
+    public int insert(int k, boolean i) {
+        int oper_count = 1;
+        if (root == NIL) {
+            root = allocNode(k, i);
+            min_node = root;
+            max_node = root;
+            size++;
+            return oper_count;
+        }
+        int curr = root; // Step 1: Searching for the place to insert the node
+        int p = NIL;
+        while (curr != NIL) {
+            p = curr;
+            if (keys[curr] == k) return -1;
+            curr = (keys[curr] > k) ? left[curr] : right[curr];
+        }
+        int node = allocNode(k, i); // Step 2: The actual insert
+        parent[node] = p;
+        if (keys[p] > k) left[p] = node;
+        else right[p] = node;
+        size++;
+        if (k > keys[max_node]) max_node = node;
+        if (k < keys[min_node]) min_node = node;
+        curr = p; // Step 3
+        while (curr != NIL) {
+            int bf = heights[left[curr]] - heights[right[curr]];
+            if (Math.abs(bf) < 2) {
+                int new_height = Math.max(heights[left[curr]], heights[right[curr]]) + 1;
+                if (heights[curr] == new_height) break;
+                heights[curr] = new_height;
+                updateTrues(curr);
+                curr = parent[curr];
+                oper_count++;
+            }
+            else { // Step 4: one rotation (single or double) always restores the height after an insert
+                curr = parent[rebalance(curr, bf)];
+                oper_count++;
+                break;
+            }
+        }
+        ascendUpdateTrues(curr);
+        return oper_count;
+    }
+
+    /**
+     * public int delete(int k)
+     * <p>
+     * deletes an item with key k from the binary tree, if it is there;
+     * the tree must remain valid (keep its invariants).
+     * returns the number of nodes which required rebalancing operations (i.e. demotions or rotations).
+     * returns -1 if an item with key k was not found in the tree.
+     */
+    /* Complexity: O(log(n))
+     * A node with two sons takes over the key and value of its successor and the successor's slot is the one
+     * unlinked, which is legal here because no caller ever holds on to a node index.
+     * */
+    public int delete(int k) {
+        int to_del = searchIndex(k);
+        if (to_del == NIL) return -1;
+        if (size == 1) {
+            freeNode(to_del);
+            root = NIL;
+            min_node = NIL;
+            max_node = NIL;
+            size--;
+            return 0;
+        }
+        int oper_count = 0;
+        boolean was_min = to_del == min_node;
+        boolean was_max = to_del == max_node;
+        if (left[to_del] != NIL && right[to_del] != NIL) {
+            int succ = right[to_del];
+            while (left[succ] != NIL) succ = left[succ];
+            keys[to_del] = keys[succ];
+            setValue(to_del, getValue(succ));
+            if (succ == max_node) max_node = to_del;
+            to_del = succ;
+        }
+        int kid = (left[to_del] != NIL) ? left[to_del] : right[to_del];
+        int p = parent[to_del];
+        changeKid(to_del, kid);
+        freeNode(to_del);
+        size--;
+        if (was_min) min_node = leftmost(root);
+        if (was_max) max_node = rightmost(root);
+        int curr = p;
+        while (curr != NIL) {
+            int bf = heights[left[curr]] - heights[right[curr]];
+            if (Math.abs(bf) < 2) {
+                int new_height = Math.max(heights[left[curr]], heights[right[curr]]) + 1;
+                if (heights[curr] == new_height) break;
+                heights[curr] = new_height;
+                updateTrues(curr);
+                curr = parent[curr];
+                oper_count++;
+            }
+            else {
+                curr = parent[rebalance(curr, bf)];
+                oper_count++;
+            }
+        }
+        ascendUpdateTrues(curr);
+        return oper_count;
+    }
+
+    // Performs the single or double rotation needed at a node with balance factor bf = +-2
+    // and returns the index of the new root of that subtree.
+    // Complexity: O(1)
+    private int rebalance(int node, int bf) {
+        if (bf == 2) {
+            int a = left[node];
+            if (heights[left[a]] - heights[right[a]] == -1) leftRotation(right[a], a);
+            a = left[node];
+            rightRotation(a, node);
+            return a;
+        }
+        int a = right[node];
+        if (heights[left[a]] - heights[right[a]] == 1) rightRotation(left[a], a);
+        a = right[node];
+        leftRotation(a, node);
+        return a;
+    }
+
+    /*
+     * Rotates r (the right son of pivot) up to the place of pivot.
+     * Complexity: O(1)
+     */
+    private void leftRotation(int r, int pivot) {
+        int p = parent[pivot];
+        changeKid(pivot, r);
+        right[pivot] = left[r];
+        if (left[r] != NIL) parent[left[r]] = pivot;
+        left[r] = pivot;
+        parent[pivot] = r;
+        parent[r] = p;
+        updateHeight(pivot);
+        updateTrues(pivot);
+        updateHeight(r);
+        updateTrues(r);
+    }
+
+    /*
+     * Rotates l (the left son of pivot) up to the place of pivot.
+     * Complexity: O(1)
+     */
+    private void rightRotation(int l, int pivot) {
+        int p = parent[pivot];
+        changeKid(pivot, l);
+        left[pivot] = right[l];
+        if (right[l] != NIL) parent[right[l]] = pivot;
+        right[l] = pivot;
+        parent[pivot] = l;
+        parent[l] = p;
+        updateHeight(pivot);
+        updateTrues(pivot);
+        updateHeight(l);
+        updateTrues(l);
+    }
+
+    // Sets node's parent child as new_kid in place of node, or root if node is the root.
+    // Complexity: O(1)
+    private void changeKid(int node, int new_kid) {
+        int p = parent[node];
+        if (p == NIL) root = new_kid;
+        else if (left[p] == node) left[p] = new_kid;
+        else right[p] = new_kid;
+        if (new_kid != NIL) parent[new_kid] = p;
+    }
+
+    // Complexity: O(1)
+    private void updateHeight(int node) {
+        heights[node] = Math.max(heights[left[node]], heights[right[node]]) + 1;
+    }
+
+    // Complexity: O(1)
+    private void updateTrues(int node) {
+        trues_in_sub_tree[node] = trues_in_sub_tree[left[node]] + trues_in_sub_tree[right[node]]
+                + (getValue(node) ? 1 : 0);
+    }
+
+    // Complexity: O(log(n))
+    private void ascendUpdateTrues(int node) {
+        while (node != NIL) {
+            updateTrues(node);
+            node = parent[node];
+        }
+    }
+
+    // Complexity: O(log(n))
+    private int leftmost(int node) {
+        if (node == NIL) return NIL;
+        while (left[node] != NIL) node = left[node];
+        return node;
+    }
+
+    // Complexity: O(log(n))
+    private int rightmost(int node) {
+        if (node == NIL) return NIL;
+        while (right[node] != NIL) node = right[node];
+        return node;
+    }
+
+    // Returns the in-order successor of node or NIL.
+    // Complexity: O(log(n)), amortized O(1) over a full scan
+    private int successor(int node) {
+        if (right[node] != NIL) return leftmost(right[node]);
+        int p = parent[node];
+        while (p != NIL && right[p] == node) {
+            node = p;
+            p = parent[p];
+        }
+        return p;
+    }
+
+    private boolean getValue(int node) {
+        return (value_bits[node >>> 6] & (1L << node)) != 0;
+    }
+
+    private void setValue(int node, boolean val) {
+        if (val) value_bits[node >>> 6] |= 1L << node;
+        else value_bits[node >>> 6] &= ~(1L << node);
+    }
+
+    // Takes a slot from the free list (or the unused tail, growing the arrays when full) and initializes a leaf.
+    // Complexity: O(1) amortized
+    private int allocNode(int k, boolean val) {
+        int node;
+        if (free_head != NIL) {
+            node = free_head;
+            free_head = left[node];
+        }
+        else {
+            if (next_unused == keys.length) grow();
+            node = next_unused++;
+        }
+        keys[node] = k;
+        heights[node] = 0;
+        left[node] = NIL;
+        right[node] = NIL;
+        parent[node] = NIL;
+        setValue(node, val);
+        trues_in_sub_tree[node] = val ? 1 : 0;
+        return node;
+    }
+
+    // Complexity: O(1)
+    private void freeNode(int node) {
+        left[node] = free_head;
+        free_head = node;
+    }
+
+    // Complexity: O(n), amortized O(1) per insert
+    private void grow() {
+        int cap = keys.length << 1;
+        keys = Arrays.copyOf(keys, cap);
+        heights = Arrays.copyOf(heights, cap);
+        trues_in_sub_tree = Arrays.copyOf(trues_in_sub_tree, cap);
+        left = Arrays.copyOf(left, cap);
+        right = Arrays.copyOf(right, cap);
+        parent = Arrays.copyOf(parent, cap);
+        value_bits = Arrays.copyOf(value_bits, (cap + 63) >>> 6);
+    }
+
+    /**
+     * public Boolean min()
+     * <p>
+     * Returns the info of the item with the smallest key in the tree,
+     * or null if the tree is empty
+     */
+    // Complexity: O(1)
+    public Boolean min() {
+        return (empty()) ? null : Boolean.valueOf(getValue(min_node));
+    }
+
+    /**
+     * public Boolean max()
+     * <p>
+     * Returns the info of the item with the largest key in the tree,
+     * or null if the tree is empty
+     */
+    // Complexity: O(1)
+    public Boolean max() {
+        return (empty()) ? null : Boolean.valueOf(getValue(max_node));
+    }
+
+    /**
+     * public int[] keysToArray()
+     * <p>
+     * Returns a sorted array which contains all keys in the tree,
+     * or an empty array if the tree is empty.
+     */
+    // Complexity: O(n)
+    public int[] keysToArray() {
+        int[] arr = new int[size];
+        int index = 0;
+        for (int node = min_node; node != NIL; node = successor(node)) arr[index++] = keys[node];
+        return arr;
+    }
+
+    /**
+     * public boolean[] infoToArray()
+     * <p>
+     * Returns an array which contains all info in the tree,
+     * sorted by their respective keys,
+     * or an empty array if the tree is empty.
+     */
+    // Complexity: O(n)
+    public boolean[] infoToArray() {
+        boolean[] arr = new boolean[size];
+        int index = 0;
+        for (int node = min_node; node != NIL; node = successor(node)) arr[index++] = getValue(node);
+        return arr;
+    }
+
+    /**
+     * public int size()
+     * <p>
+     * Returns the number of nodes in the tree.
+     */
+    // Complexity: O(1)
+    public int size() { return this.size; }
+
+    /**
+     * public boolean prefixXor(int k)
+     *
+     * Given an argument k which is a key in the tree, calculate the xor of the values of nodes whose keys are
+     * smaller or equal to k.
+     *
+     * precondition: this.search(k) != null
+     */
+    // Complexity: O(log(n))
+    public boolean prefixXor(int k) {
+        int true_count = 0;
+        int curr = root;
+        while (curr != NIL) {
+            if (keys[curr] <= k) {
+                true_count += trues_in_sub_tree[curr] - trues_in_sub_tree[right[curr]];
+                if (keys[curr] == k) break;
+                curr = right[curr];
+            }
+            else curr = left[curr];
+        }
+        return (true_count & 1) != 0;
+    }
+}
@@ -0,0 +1,602 @@
+package avltree;
+
+import java.util.Arrays;
+
+/**
+ * public class BTree
+ * <p>
+ * This class represents an ordered map with integer keys and boolean values, like AVLTree, laid out for the
+ * cache instead of as one heap object per key. It is a B+-tree: every item is in a leaf, and internal nodes
+ * hold separator keys that route the search (child i holds the keys k with key(i-1) <= k < key(i)).
+ * <p>
+ * Every node is a block of NODE_INTS ints in one pool array: a header int, up to MAX_KEYS keys, and then (for
+ * internal nodes) up to MAX_KEYS+1 child indexes. The header and the keys take 64 bytes and the children
+ * another 64, so a block is 128 bytes. Nothing aligns them to cache lines: Java does not align int[] data, and
+ * blocks sit at arbitrary offsets in the pool. The header and keys therefore span at most two 64 byte lines,
+ * and a search costs a few cache misses per level, over log_8(n) to log_16(n) levels, against log2(n) misses
+ * for AVLTree, where every level is another AVLNode.
+ * <p>
+ * The header packs the number of keys, a leaf flag and a 16 bit mask: for a leaf bit i is the info of key i,
+ * for an internal node bit i is the xor of the infos in child i's subtree. prefixXor therefore only needs
+ * popcounts of the headers on the search path, and search never touches memory outside the pool.
+ * <p>
+ * Node 0 is unused, so that 0 (NIL) can mean "no node", as in ArrayAVLTree. Freed nodes are kept in a free
+ * list threaded through their headers and are reused by the next split.
+ */
+public class BTree implements IntBooleanTree {
+
+    private static final int NIL = 0;
+    private static final int NODE_INTS = 32;   // 128 bytes: header + keys, then children
+    private static final int MAX_KEYS = 15;
+    private static final int MIN_KEYS = 7;     // every node but the root holds MIN_KEYS..MAX_KEYS keys
+    private static final int KEYS = 1;        // offset of the first key in a block
+    private static final int CHILDREN = 16;   // offset of the first child in a block
+    private static final int COUNT_BITS = 0x1F;
+    private static final int LEAF = 1 << 8;
+    private static final int MAX_DEPTH = 32;
+
+    private int[] pool;
+    private int root = NIL;
+    private int size;
+    private int free_head = NIL;
+    private int next_unused = 1;
+
+    // the search path of the current insert/delete: the internal nodes and the child taken in each
+    private final int[] path_nodes = new int[MAX_DEPTH];
+    private final int[] path_index = new int[MAX_DEPTH];
+
+    // room for one overflowing node during a split
+    private final int[] tmp_keys = new int[MAX_KEYS + 1];
+    private final int[] tmp_children = new int[MAX_KEYS + 2];
+
+    /**
+     * This constructor creates an empty BTree.
+     */
+    public BTree() {
+        pool = new int[16 * NODE_INTS];
+    }
+
+    /**
+     * public boolean empty()
+     * <p>
+     * returns true if and only if the tree is empty
+     */
+    // Complexity: O(1)
+    public boolean empty() {
+        return root == NIL;
+    }
+
+    /**
+     * public Boolean search(int k)
+     * <p>
+     * returns the info of an item with key k if it exists in the tree
+     * otherwise, returns null
+     */
+    // Complexity: O(log(n)), with O(log(n)/log(MAX_KEYS)) cache misses
+    public Boolean search(int k) {
+        if (root == NIL) return null;
+        int node = root;
+        while (!isLeaf(node)) node = child(node, childIndex(node, k));
+        int pos = lowerBound(node, k);
+        if (pos == count(node) || key(node, pos) != k) return null;
+        return ((mask(node) >>> pos) & 1) != 0;
+    }
+
+    /**
+     * public void searchBatch(int[] keys, byte[] out)
+     * <p>
+     * Looks up every key of keys like search and writes the result to the same index of out:
+     * 1 for info true, 0 for info false, -1 if the key is not in the tree.
+     * throws IllegalArgumentException if out is shorter than keys.
+     */
+    /* BATCH_LANES independent searches go down one level each in turn, so that the loads of their blocks
+     * overlap instead of each search waiting for its own miss; a lane that reaches its leaf takes the next key.
+     * The key scans in childIndex and lowerBound count instead of branching on every comparison.
+     * Complexity: O(m*log(n)) for m keys
+     * */
+    public void searchBatch(int[] keys, byte[] out) {
+        if (out.length < keys.length) throw new IllegalArgumentException("out is shorter than keys");
+        if (root == NIL) {
+            Arrays.fill(out, 0, keys.length, (byte) -1);
+            return;
+        }
+        int[] lanes = new int[BATCH_LANES];
+        int[] lane_index = new int[BATCH_LANES];
+        int next = 0;
+        int active = 0;
+        for (; active < BATCH_LANES && next < keys.length; active++) {
+            lanes[active] = root;
+            lane_index[active] = next++;
+        }
+        Arrays.fill(lane_index, active, BATCH_LANES, -1);
+        while (active > 0) {
+            for (int j = 0; j < BATCH_LANES; j++) {
+                int i = lane_index[j];
+                if (i < 0) continue;
+                int node = lanes[j];
+                int k = keys[i];
+                if (!isLeaf(node)) {
+                    lanes[j] = child(node, childIndex(node, k));
+                    continue;
+                }
+                int pos = lowerBound(node, k);
+                out[i] = (pos == count(node) || key(node, pos) != k) ? -1 : (byte) ((mask(node) >>> pos) & 1);
+                if (next < keys.length) {
+                    lanes[j] = root;
+                    lane_index[j] = next++;
+                }
+                else {
+                    lane_index[j] = -1;
+                    active--;
+                }
+            }
+        }
+    }
+
+    private static final int BATCH_LANES = 8; // searches searchBatch runs at once
+
+    /**
+     * public int insert(int k, boolean i)
+     * <p>
+     * inserts an item with key k and info i to the tree.
+     * returns the number of node splits the insert caused.
+     * returns -1 if an item with key k already exists in the tree.
+     */
+    /* Finds the leaf of k, remembering the path, and adds k there. A full leaf is split in two halves and the
+     * first key of the right half goes up to the parent as a separator, which may split the parent in turn;
+     * splitting the root adds a level.
+     * Complexity: O(log(n))
+     * */
+    public int insert(int k, boolean i) {
+        int bit = (i) ? 1 : 0;
+        if (root == NIL) {
+            root = newNode(true);
+            pool[base(root) + KEYS] = k;
+            setHeader(root, 1, true, bit);
+            size = 1;
+            return 0;
+        }
+        int depth = descend(k);
+        int leaf = (depth == 0) ? root : child(path_nodes[depth - 1], path_index[depth - 1]);
+        int pos = lowerBound(leaf, k);
+        if (pos < count(leaf) && key(leaf, pos) == k) return -1;
+        size++;
+        if (i) for (int d = 0; d < depth; d++) flipBit(path_nodes[d], path_index[d]);
+        if (count(leaf) < MAX_KEYS) {
+            insertKey(leaf, pos, k, bit);
+            return 0;
+        }
+        int splits = 1;
+        int right = splitLeaf(leaf, pos, k, bit);
+        int separator = key(right, 0);
+        int left = leaf;
+        for (int d = depth - 1; d >= 0; d--) {
+            int parent = path_nodes[d];
+            int idx = path_index[d];
+            if (count(parent) < MAX_KEYS) {
+                insertChild(parent, idx, separator, right);
+                setBit(parent, idx, parity(left));
+                setBit(parent, idx + 1, parity(right));
+                return splits;
+            }
+            splits++;
+            left = parent;
+            right = splitInternal(parent, idx, separator, right, parity(child(parent, idx)));
+            separator = tmp_keys[MIN_KEYS + 1];
+        }
+        int new_root = newNode(false);
+        int b = base(new_root);
+        pool[b + KEYS] = separator;
+        pool[b + CHILDREN] = root;
+        pool[b + CHILDREN + 1] = right;
+        setHeader(new_root, 1, false, parity(root) | (parity(right) << 1));
+        root = new_root;
+        return splits;
+    }
+
+    /**
+     * public int delete(int k)
+     * <p>
+     * deletes an item with key k from the tree if it exists.
+     * returns the number of borrows from siblings and node merges the delete caused.
+     * returns -1 if an item with key k was not found in the tree.
+     */
+    /* Removes k from its leaf. A leaf left with fewer than MIN_KEYS keys takes a key from a sibling that can
+     * spare one, or is merged with a sibling, which removes a separator from the parent, which may underflow
+     * in turn; a root left with a single child is replaced by it.
+     * Complexity: O(log(n))
+     * */
+    public int delete(int k) {
+        if (root == NIL) return -1;
+        int depth = descend(k);
+        int leaf = (depth == 0) ? root : child(path_nodes[depth - 1], path_index[depth - 1]);
+        int pos = lowerBound(leaf, k);
+        if (pos == count(leaf) || key(leaf, pos) != k) return -1;
+        size--;
+        if (((mask(leaf) >>> pos) & 1) != 0)
+            for (int d = 0; d < depth; d++) flipBit(path_nodes[d], path_index[d]);
+        removeKey(leaf, pos);
+        int fixes = 0;
+        int node = leaf;
+        for (int d = depth - 1; d >= 0 && count(node) < MIN_KEYS; d--) {
+            fixes++;
+            fixUnderflow(path_nodes[d], path_index[d]);
+            node = path_nodes[d];
+        }
+        if (count(root) == 0) {
+            int old = root;
+            root = (isLeaf(old)) ? NIL : child(old, 0);
+            freeNode(old);
+        }
+        return fixes;
+    }
+
+    /**
+     * public Boolean min()
+     * <p>
+     * Returns the info of the item with the smallest key in the tree,
+     * or null if the tree is empty
+     */
+    // Complexity: O(log(n))
+    public Boolean min() {
+        if (root == NIL) return null;
+        int node = root;
+        while (!isLeaf(node)) node = child(node, 0);
+        return (mask(node) & 1) != 0;
+    }
+
+    /**
+     * public Boolean max()
+     * <p>
+     * Returns the info of the item with the largest key in the tree,
+     * or null if the tree is empty
+     */
+    // Complexity: O(log(n))
+    public Boolean max() {
+        if (root == NIL) return null;
+        int node = root;
+        while (!isLeaf(node)) node = child(node, count(node));
+        return ((mask(node) >>> (count(node) - 1)) & 1) != 0;
+    }
+
+    /**
+     * public int[] keysToArray()
+     * <p>
+     * Returns a sorted array which contains all keys in the tree,
+     * or an empty array if the tree is empty.
+     */
+    // Complexity: O(n)
+    public int[] keysToArray() {
+        int[] arr = new int[size];
+        if (root != NIL) exportTo(root, arr, null, 0);
+        return arr;
+    }
+
+    /**
+     * public boolean[] infoToArray()
+     * <p>
+     * Returns an array which contains all info in the tree,
+     * sorted by their respective keys,
+     * or an empty array if the tree is empty.
+     */
+    // Complexity: O(n)
+    public boolean[] infoToArray() {
+        boolean[] arr = new boolean[size];
+        if (root != NIL) exportTo(root, null, arr, 0);
+        return arr;
+    }
+
+    /**
+     * public int size()
+     * <p>
+     * Returns the number of items in the tree.
+     */
+    // Complexity: O(1)
+    public int size() { return this.size; }
+
+    /**
+     * public boolean prefixXor(int k)
+     * <p>
+     * Given an argument k which is a key in the tree, calculate the xor of the values of the items whose keys
+     * are smaller or equal to k.
+     * <p>
+     * precondition: this.search(k) != null
+     */
+    /* On the search path of k, the items left of the path are the children left of the one taken, whose
+     * parities are the low bits of the header mask.
+     * Complexity: O(log(n))
+     * */
+    public boolean prefixXor(int k) {
+        int true_count = 0;
+        int node = root;
+        if (node == NIL) return false;
+        while (!isLeaf(node)) {
+            int c = childIndex(node, k);
+            true_count += Integer.bitCount(mask(node) & ((1 << c) - 1));
+            node = child(node, c);
+        }
+        int upto = childIndex(node, k); // keys <= k
+        true_count += Integer.bitCount(mask(node) & ((1 << upto) - 1));
+        return (true_count & 1) == 1;
+    }
+
+    // Writes the keys and/or infos of node's subtree from index at on and returns the next free index
+    // Complexity: O(size of the subtree)
+    private int exportTo(int node, int[] keys, boolean[] infos, int at) {
+        int c = count(node);
+        if (isLeaf(node)) {
+            int m = mask(node);
+            for (int i = 0; i < c; i++, at++) {
+                if (keys != null) keys[at] = key(node, i);
+                if (infos != null) infos[at] = ((m >>> i) & 1) != 0;
+            }
+            return at;
+        }
+        for (int i = 0; i <= c; i++) at = exportTo(child(node, i), keys, infos, at);
+        return at;
+    }
+
+    // Fills path_nodes/path_index with the internal nodes from the root to k's leaf, returns their number
+    // Complexity: O(log(n))
+    private int descend(int k) {
+        int depth = 0;
+        for (int node = root; !isLeaf(node); depth++) {
+            int c = childIndex(node, k);
+            path_nodes[depth] = node;
+            path_index[depth] = c;
+            node = child(node, c);
+        }
+        return depth;
+    }
+
+    /* Splits the full leaf with k inserted at pos into two halves of (MAX_KEYS+1)/2 keys and returns the new
+     * right half.
+     * Complexity: O(MAX_KEYS)
+     * */
+    private int splitLeaf(int leaf, int pos, int k, int bit) {
+        int b = base(leaf);
+        System.arraycopy(pool, b + KEYS, tmp_keys, 0, pos);
+        tmp_keys[pos] = k;
+        System.arraycopy(pool, b + KEYS + pos, tmp_keys, pos + 1, MAX_KEYS - pos);
+        int m = insertBit(mask(leaf), pos, bit);
+        int half = (MAX_KEYS + 1) / 2;
+        int right = newNode(true);
+        System.arraycopy(tmp_keys, 0, pool, b + KEYS, half);
+        System.arraycopy(tmp_keys, half, pool, base(right) + KEYS, MAX_KEYS + 1 - half);
+        setHeader(leaf, half, true, m & ((1 << half) - 1));
+        setHeader(right, MAX_KEYS + 1 - half, true, m >>> half);
+        return right;
+    }
+
+    /* Splits the full internal node that gets separator at idx and new_child at idx+1 (child idx, now of
+     * parity left_parity, is the left half of a split). The node keeps the first MIN_KEYS+1 keys, the next key
+     * moves up (it is left in tmp_keys[MIN_KEYS+1]) and the rest go to the returned right node.
+     * Complexity: O(MAX_KEYS)
+     * */
+    private int splitInternal(int node, int idx, int separator, int new_child, int left_parity) {
+        int b = base(node);
+        System.arraycopy(pool, b + KEYS, tmp_keys, 0, idx);
+        tmp_keys[idx] = separator;
+        System.arraycopy(pool, b + KEYS + idx, tmp_keys, idx + 1, MAX_KEYS - idx);
+        System.arraycopy(pool, b + CHILDREN, tmp_children, 0, idx + 1);
+        tmp_children[idx + 1] = new_child;
+        System.arraycopy(pool, b + CHILDREN + idx + 1, tmp_children, idx + 2, MAX_KEYS - idx);
+        int m = mask(node);
+        m = (m & ~(1 << idx)) | (left_parity << idx);
+        m = insertBit(m, idx + 1, parity(new_child));
+        int left_keys = MIN_KEYS + 1;
+        int right_keys = MAX_KEYS - left_keys; // MAX_KEYS+1 keys minus the one that moves up
+        int right = newNode(false);
+        int rb = base(right);
+        System.arraycopy(tmp_keys, 0, pool, b + KEYS, left_keys);
+        System.arraycopy(tmp_children, 0, pool, b + CHILDREN, left_keys + 1);
+        System.arraycopy(tmp_keys, left_keys + 1, pool, rb + KEYS, right_keys);
+        System.arraycopy(tmp_children, left_keys + 1, pool, rb + CHILDREN, right_keys + 1);
+        setHeader(node, left_keys, false, m & ((1 << (left_keys + 1)) - 1));
+        setHeader(right, right_keys, false, m >>> (left_keys + 1));
+        return right;
+    }
+
+    /* Child idx of parent has MIN_KEYS-1 keys: borrows a key from a sibling that has more than MIN_KEYS,
+     * otherwise merges the child with a sibling.
+     * Complexity: O(MAX_KEYS)
+     * */
+    private void fixUnderflow(int parent, int idx) {
+        int node = child(parent, idx);
+        if (idx > 0 && count(child(parent, idx - 1)) > MIN_KEYS) borrowFromLeft(parent, idx, node, child(parent, idx - 1));
+        else if (idx < count(parent) && count(child(parent, idx + 1)) > MIN_KEYS) borrowFromRight(parent, idx, node, child(parent, idx + 1));
+        else if (idx > 0) merge(parent, idx - 1);
+        else merge(parent, idx);
+    }
+
+    // Moves the last item (or child) of left, child idx-1 of parent, to the front of node, child idx
+    // Complexity: O(MAX_KEYS)
+    private void borrowFromLeft(int parent, int idx, int node, int left) {
+        int lc = count(left);
+        int lm = mask(left);
+        if (isLeaf(node)) {
+            insertKey(node, 0, key(left, lc - 1), (lm >>> (lc - 1)) & 1);
+            setHeader(left, lc - 1, true, lm & ~(1 << (lc - 1)));
+            pool[base(parent) + KEYS + idx - 1] = key(node, 0);
+        }
+        else {
+            int b = base(node);
+            int c = count(node);
+            System.arraycopy(pool, b + KEYS, pool, b + KEYS + 1, c);
+            System.arraycopy(pool, b + CHILDREN, pool, b + CHILDREN + 1, c + 1);
+            pool[b + KEYS] = key(parent, idx - 1);
+            pool[b + CHILDREN] = child(left, lc);
+            setHeader(node, c + 1, false, insertBit(mask(node), 0, (lm >>> lc) & 1));
+            pool[base(parent) + KEYS + idx - 1] = key(left, lc - 1);
+            setHeader(left, lc - 1, false, lm & ~(1 << lc));
+        }
+        setBit(parent, idx - 1, parity(left));
+        setBit(parent, idx, parity(node));
+    }
+
+    // Moves the first item (or child) of right, child idx+1 of parent, to the end of node, child idx
+    // Complexity: O(MAX_KEYS)
+    private void borrowFromRight(int parent, int idx, int node, int right) {
+        int c = count(node);
+        int rm = mask(right);
+        if (isLeaf(node)) {
+            insertKey(node, c, key(right, 0), rm & 1);
+            removeKey(right, 0);
+            pool[base(parent) + KEYS + idx] = key(right, 0);
+        }
+        else {
+            int b = base(node);
+            int rb = base(right);
+            int rc = count(right);
+            pool[b + KEYS + c] = key(parent, idx);
+            pool[b + CHILDREN + c + 1] = child(right, 0);
+            setHeader(node, c + 1, false, mask(node) | ((rm & 1) << (c + 1)));
+            pool[base(parent) + KEYS + idx] = key(right, 0);
+            System.arraycopy(pool, rb + KEYS + 1, pool, rb + KEYS, rc - 1);
+            System.arraycopy(pool, rb + CHILDREN + 1, pool, rb + CHILDREN, rc);
+            setHeader(right, rc - 1, false, rm >>> 1);
+        }
+        setBit(parent, idx, parity(node));
+        setBit(parent, idx + 1, parity(right));
+    }
+
+    // Appends child j+1 of parent to child j (with separator j in between for internal nodes) and frees it
+    // Complexity: O(MAX_KEYS)
+    private void merge(int parent, int j) {
+        int a = child(parent, j);
+        int b = child(parent, j + 1);
+        int ab = base(a);
+        int ac = count(a);
+        int bc = count(b);
+        if (isLeaf(a)) {
+            System.arraycopy(pool, base(b) + KEYS, pool, ab + KEYS + ac, bc);
+            setHeader(a, ac + bc, true, mask(a) | (mask(b) << ac));
+        }
+        else {
+            pool[ab + KEYS + ac] = key(parent, j);
+            System.arraycopy(pool, base(b) + KEYS, pool, ab + KEYS + ac + 1, bc);
+            System.arraycopy(pool, base(b) + CHILDREN, pool, ab + CHILDREN + ac + 1, bc + 1);
+            setHeader(a, ac + 1 + bc, false, mask(a) | (mask(b) << (ac + 1)));
+        }
+        freeNode(b);
+        int pb = base(parent);
+        int pc = count(parent);
+        System.arraycopy(pool, pb + KEYS + j + 1, pool, pb + KEYS + j, pc - j - 1);
+        System.arraycopy(pool, pb + CHILDREN + j + 2, pool, pb + CHILDREN + j + 1, pc - j - 1);
+        int m = removeBit(mask(parent), j + 1);
+        setHeader(parent, pc - 1, false, (m & ~(1 << j)) | (parity(a) << j));
+    }
+
+    // Inserts key k with info bit at pos of a leaf that is not full
+    // Complexity: O(MAX_KEYS)
+    private void insertKey(int leaf, int pos, int k, int bit) {
+        int b = base(leaf);
+        int c = count(leaf);
+        System.arraycopy(pool, b + KEYS + pos, pool, b + KEYS + pos + 1, c - pos);
+        pool[b + KEYS + pos] = k;
+        setHeader(leaf, c + 1, true, insertBit(mask(leaf), pos, bit));
+    }
+
+    // Removes the key at pos of a leaf
+    // Complexity: O(MAX_KEYS)
+    private void removeKey(int leaf, int pos) {
+        int b = base(leaf);
+        int c = count(leaf);
+        System.arraycopy(pool, b + KEYS + pos + 1, pool, b + KEYS + pos, c - pos - 1);
+        setHeader(leaf, c - 1, true, removeBit(mask(leaf), pos));
+    }
+
+    // Inserts separator at key position idx and new_child at child position idx+1 of an internal node that is
+    // not full. The caller sets the parity bits of both halves.
+    // Complexity: O(MAX_KEYS)
+    private void insertChild(int node, int idx, int separator, int new_child) {
+        int b = base(node);
+        int c = count(node);
+        System.arraycopy(pool, b + KEYS + idx, pool, b + KEYS + idx + 1, c - idx);
+        System.arraycopy(pool, b + CHILDREN + idx + 1, pool, b + CHILDREN + idx + 2, c - idx);
+        pool[b + KEYS + idx] = separator;
+        pool[b + CHILDREN + idx + 1] = new_child;
+        setHeader(node, c + 1, false, insertBit(mask(node), idx + 1, 0));
+    }
+
+    // Returns a cleared node, from the free list if possible
+    // Complexity: O(1) amortized
+    private int newNode(boolean leaf) {
+        int node;
+        if (free_head != NIL) {
+            node = free_head;
+            free_head = pool[base(node)];
+        }
+        else {
+            node = next_unused++;
+            if (base(node) + NODE_INTS > pool.length) pool = Arrays.copyOf(pool, pool.length * 2);
+        }
+        setHeader(node, 0, leaf, 0);
+        return node;
+    }
+
+    // Complexity: O(1)
+    private void freeNode(int node) {
+        pool[base(node)] = free_head;
+        free_head = node;
+    }
+
+    // Returns the number of keys of node that are <= k, which is also the child to follow for k
+    // Complexity: O(MAX_KEYS)
+    private int childIndex(int node, int k) {
+        int b = base(node) + KEYS;
+        int c = count(node);
+        int i = 0;
+        for (int j = 0; j < c; j++) i += (pool[b + j] <= k) ? 1 : 0; // the keys are sorted, so this counts a prefix
+        return i;
+    }
+
+    // Returns the number of keys of node that are < k
+    // Complexity: O(MAX_KEYS)
+    private int lowerBound(int node, int k) {
+        int b = base(node) + KEYS;
+        int c = count(node);
+        int i = 0;
+        for (int j = 0; j < c; j++) i += (pool[b + j] < k) ? 1 : 0;
+        return i;
+    }
+
+    private static int base(int node) { return node * NODE_INTS; }
+
+    private int count(int node) { return pool[base(node)] & COUNT_BITS; }
+
+    private boolean isLeaf(int node) { return (pool[base(node)] & LEAF) != 0; }
+
+    private int mask(int node) { return pool[base(node)] >>> 16; }
+
+    // The xor of the infos in node's subtree
+    private int parity(int node) { return Integer.bitCount(mask(node)) & 1; }
+
+    private int key(int node, int i) { return pool[base(node) + KEYS + i]; }
+
+    private int child(int node, int i) { return pool[base(node) + CHILDREN + i]; }
+
+    private void setHeader(int node, int count, boolean leaf, int mask) {
+        pool[base(node)] = count | ((leaf) ? LEAF : 0) | (mask << 16);
+    }
+
+    private void setBit(int node, int i, int bit) {
+        pool[base(node)] = (pool[base(node)] & ~(1 << (16 + i))) | (bit << (16 + i));
+    }
+
+    private void flipBit(int node, int i) {
+        pool[base(node)] ^= 1 << (16 + i);
+    }
+
+    // Returns mask with bit inserted at position pos, the bits from pos on moving up by one
+    private static int insertBit(int mask, int pos, int bit) {
+        int low = mask & ((1 << pos) - 1);
+        return low | ((mask ^ low) << 1) | (bit << pos);
+    }
+
+    // Returns mask without the bit at position pos, the bits above it moving down by one
+    private static int removeBit(int mask, int pos) {
+        int low = mask & ((1 << pos) - 1);
+        return low | ((mask >>> (pos + 1)) << pos);
+    }
+}
@@ -0,0 +1,14 @@
+package avltree;
+
+/**
+ * public enum BalancePolicy
+ * <p>
+ * The balance rules an AVLTree or a BalancedTree keeps (see setBalancePolicy on either). Every AVL tree is also
+ * a WAVL tree, with its heights as the ranks.
+ */
+public enum BalancePolicy {
+    /** Heights of siblings differ by at most one. */
+    AVL,
+    /** Weak AVL: rank differences of one or two, at most two rotations per delete. */
+    WAVL
+}
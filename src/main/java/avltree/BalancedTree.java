@@ -0,0 +1,455 @@
+package avltree;
+
+import java.util.NoSuchElementException;
+
+/**
+ * public abstract class BalancedTree
+ * <p>
+ * The AVL balancing (heights, rotations, rebalancing after an insert or a delete) shared by the trees that are
+ * specialized by key and value type: LongLongAVLTree, IntObjectAVLTree and ComparatorAVLTree.
+ * <p>
+ * A subclass owns its keys: its node class adds typed key and value fields to Node, it searches with its own
+ * comparisons, so primitive keys are never boxed, and it hands nodes to attach and detach, which keep the
+ * tree balanced. A missing son is null rather than a virtual node, so no key value is reserved as a sentinel.
+ * <p>
+ * A subclass that keeps a per-subtree summary in its nodes (as BitsetAVLTree does) overrides update and
+ * augmented: update is then called on every node whose subtree changed, bottom-up, up to the root.
+ * <p>
+ * The rules the balancing keeps are set by a BalancePolicy. Strict AVL (the default) keeps every node's two
+ * subtree heights within one of each other. WAVL (Haeupler, Sen and Tarjan, "Rank-balanced trees") keeps a
+ * rank per node instead, which may differ by one or two from a son's: inserts do exactly what AVL does, but a
+ * delete does at most two rotations and O(1) amortized rank changes, where AVL may rotate at every level. The
+ * price is a looser shape, at most 2*log(n) deep instead of about 1.44*log(n); rebuildBalanced() restores
+ * the tightest shape in O(n) when the caller has time for it.
+ * <p>
+ * This core is not shared with AVLTree. The int/boolean tree has its own copy of the balancing code (its own
+ * rotations and insert and delete fix-ups, under both policies), because each of its rotations also maintains
+ * trues_in_sub_tree, subtree sizes, monoid aggregates, in-order links and metrics. A change to the balancing
+ * here has to be made there separately.
+ */
+public abstract class BalancedTree<N extends BalancedTree.Node<N>> {
+
+    N root;
+    int size;
+    private BalancePolicy policy = BalancePolicy.AVL;
+    private long rotations;
+
+    /**
+     * public abstract static class Node
+     * <p>
+     * The links and the height of a node; subclasses add the key and the value.
+     */
+    public abstract static class Node<N extends Node<N>> {
+        N left;
+        N right;
+        N parent;
+        int height; // 0 for a leaf; the rank under WAVL
+    }
+
+    /**
+     * public boolean empty()
+     * <p>
+     * returns true if and only if the tree is empty
+     */
+    // Complexity: O(1)
+    public boolean empty() {
+        return root == null;
+    }
+
+    /**
+     * public int size()
+     * <p>
+     * Returns the number of items in the tree.
+     */
+    // Complexity: O(1)
+    public int size() { return this.size; }
+
+    /**
+     * public BalancePolicy getBalancePolicy()
+     * <p>
+     * Returns the balance rules the tree keeps.
+     */
+    // Complexity: O(1)
+    public BalancePolicy getBalancePolicy() { return this.policy; }
+
+    /**
+     * public void setBalancePolicy(BalancePolicy policy)
+     * <p>
+     * Makes the tree keep policy's balance rules from now on. Every AVL tree is also a WAVL tree, so moving to
+     * WAVL costs nothing; moving a non-empty tree back to AVL rebuilds it with rebuildBalanced.
+     */
+    // Complexity: O(1) to WAVL, O(n) to AVL
+    public void setBalancePolicy(BalancePolicy policy) {
+        if (policy == this.policy) return;
+        this.policy = java.util.Objects.requireNonNull(policy, "policy");
+        if (policy == BalancePolicy.AVL) rebuildBalanced();
+    }
+
+    /**
+     * public long rotationCount()
+     * <p>
+     * Returns the number of single rotations the tree did since it was created; a double rotation counts two.
+     */
+    // Complexity: O(1)
+    public long rotationCount() { return this.rotations; }
+
+    /**
+     * public void rebuildBalanced()
+     * <p>
+     * Relinks the nodes into the shallowest tree there is, whose subtree sizes differ by at most one, which
+     * is valid under every BalancePolicy. Under WAVL this is the deferred part of the balancing: deletes leave
+     * the tree up to 2*log(n) deep, and a rebuild at a quiet moment brings searches back to log(n).
+     */
+    // Complexity: O(n) time, O(n) temporary space
+    @SuppressWarnings("unchecked")
+    public void rebuildBalanced() {
+        if (root == null) return;
+        Node<?>[] nodes = new Node<?>[size];
+        int i = 0;
+        for (N node = first(); node != null; node = successor(node)) nodes[i++] = node;
+        root = buildBalanced((N[]) nodes, 0, size - 1, null);
+    }
+
+    // Links nodes[lo..hi] into a subtree under parent and returns its root.
+    // Complexity: O(hi-lo)
+    private N buildBalanced(N[] nodes, int lo, int hi, N parent) {
+        if (lo > hi) return null;
+        int mid = (lo + hi) >>> 1;
+        N node = nodes[mid];
+        node.parent = parent;
+        node.left = buildBalanced(nodes, lo, mid - 1, node);
+        node.right = buildBalanced(nodes, mid + 1, hi, node);
+        updateHeight(node);
+        update(node);
+        return node;
+    }
+
+    /*
+     * Hangs the new node under parent, as its left son if left, or makes it the root if parent is null, and
+     * rebalances. parent must be the node where the subclass's search for node's key fell off the tree.
+     * Returns the number of promotions and rotations, like AVLTree.insert.
+     * Complexity: O(log(n))
+     */
+    int attach(N parent, N node, boolean left) {
+        node.left = null;
+        node.right = null;
+        node.parent = parent;
+        node.height = 0;
+        size++;
+        update(node);
+        if (parent == null) {
+            root = node;
+            return 0;
+        }
+        if (left) parent.left = node;
+        else parent.right = node;
+        if (policy == BalancePolicy.AVL) return rebalance(parent, true);
+        int count = wavlInsertFix(node);
+        if (augmented()) updateUp(parent);
+        return count;
+    }
+
+    /*
+     * Removes node from the tree and rebalances. A node with two sons is replaced by its successor node
+     * itself (relinked, not copied), so subclasses never have to move keys or values between nodes.
+     * Returns the number of demotions and rotations, like AVLTree.delete.
+     * Complexity: O(log(n))
+     */
+    int detach(N node) {
+        size--;
+        N start; // the lowest node whose height may have changed
+        boolean from_left; // whether start lost a node on its left side
+        if (node.left != null && node.right != null) {
+            N succ = node.right;
+            while (succ.left != null) succ = succ.left;
+            if (succ.parent == node) {
+                start = succ;
+                from_left = false;
+            }
+            else {
+                start = succ.parent;
+                from_left = true;
+                start.left = succ.right;
+                if (succ.right != null) succ.right.parent = start;
+                succ.right = node.right;
+                node.right.parent = succ;
+            }
+            succ.left = node.left;
+            node.left.parent = succ;
+            replaceSon(node.parent, node, succ);
+            succ.height = node.height;
+        }
+        else {
+            N son = (node.left != null) ? node.left : node.right;
+            start = node.parent;
+            from_left = start != null && start.left == node;
+            replaceSon(node.parent, node, son);
+        }
+        node.left = null;
+        node.right = null;
+        node.parent = null;
+        if (start == null) return 0;
+        if (policy == BalancePolicy.AVL) return rebalance(start, false);
+        int count = wavlDeleteFix(start, from_left);
+        if (augmented()) updateUp(start);
+        return count;
+    }
+
+    /*
+     * WAVL insert: node, a new leaf, may have the rank of its parent. Promotes parents while the sibling's rank
+     * difference is one, then at most one single or double rotation ends it. Returns the number of promotions
+     * and rotations, like rebalance.
+     * Complexity: O(log(n)), O(1) amortized
+     */
+    private int wavlInsertFix(N x) {
+        int count = 0;
+        N p = x.parent;
+        while (p != null && p.height == x.height) {
+            count++;
+            boolean left = p.left == x;
+            N sibling = (left) ? p.right : p.left;
+            if (p.height - height(sibling) == 1) { // promote
+                p.height++;
+                x = p;
+                p = x.parent;
+                continue;
+            }
+            N inner = (left) ? x.right : x.left;
+            if (x.height - height(inner) == 2) { // single rotation
+                if (left) turnRight(p);
+                else turnLeft(p);
+                p.height--;
+            }
+            else { // double rotation, inner rises
+                if (left) {
+                    turnLeft(x);
+                    turnRight(p);
+                }
+                else {
+                    turnRight(x);
+                    turnLeft(p);
+                }
+                inner.height++;
+                x.height--;
+                p.height--;
+            }
+            return count;
+        }
+        return count;
+    }
+
+    /*
+     * WAVL delete: p lost a node on its left side (or right side) and that side may now be three ranks below
+     * it, or p may be a leaf of rank 1. Demotes up the tree while the sibling allows it, then at most one single
+     * or double rotation ends it. Returns the number of demotions and rotations.
+     * Complexity: O(log(n)), O(1) amortized
+     */
+    private int wavlDeleteFix(N p, boolean from_left) {
+        int count = 0;
+        if (p.left == null && p.right == null && p.height == 1) { // a 2,2 leaf is not allowed
+            p.height = 0;
+            count++;
+            N x = p;
+            p = p.parent;
+            if (p == null) return count;
+            from_left = p.left == x;
+        }
+        while (p.height - height((from_left) ? p.left : p.right) == 3) {
+            count++;
+            N sibling = (from_left) ? p.right : p.left;
+            if (p.height - sibling.height == 2) p.height--; // demote
+            else if (sibling.height - height(sibling.left) == 2 && sibling.height - height(sibling.right) == 2) {
+                p.height--;
+                sibling.height--;
+            }
+            else {
+                N outer = (from_left) ? sibling.right : sibling.left;
+                N inner = (from_left) ? sibling.left : sibling.right;
+                if (sibling.height - height(outer) == 1) { // single rotation, sibling rises
+                    if (from_left) turnLeft(p);
+                    else turnRight(p);
+                    sibling.height++;
+                    p.height--;
+                    if (p.left == null && p.right == null) p.height--;
+                }
+                else { // double rotation, inner rises
+                    if (from_left) {
+                        turnRight(sibling);
+                        turnLeft(p);
+                    }
+                    else {
+                        turnLeft(sibling);
+                        turnRight(p);
+                    }
+                    inner.height += 2;
+                    sibling.height--;
+                    p.height -= 2;
+                }
+                return count;
+            }
+            N x = p;
+            p = p.parent;
+            if (p == null) return count;
+            from_left = p.left == x;
+        }
+        return count;
+    }
+
+    // Calls update on node and all its ancestors
+    // Complexity: O(log(n))
+    private void updateUp(N node) {
+        for (; node != null; node = node.parent) update(node);
+    }
+
+    /*
+     * Called on node after its sons, or something in their subtrees, changed. Augmented subclasses recompute
+     * their per-subtree fields from node's own data and its sons' fields here.
+     * Complexity: O(1)
+     */
+    void update(N node) {
+    }
+
+    /*
+     * Whether update has to be called all the way up to the root after every change. True for subclasses
+     * that override update.
+     */
+    boolean augmented() {
+        return false;
+    }
+
+    /*
+     * Ascends from node updating heights and rotating where the balance factor reached +-2. After an insert
+     * one rotation restores the height the subtree had, so it stops there; after a delete it continues.
+     * Either way it stops at the first node whose height did not change, except that an augmented tree
+     * still updates the nodes above it.
+     * Complexity: O(log(n))
+     */
+    private int rebalance(N node, boolean inserted) {
+        int count = 0;
+        while (node != null) {
+            int old_height = node.height;
+            updateHeight(node);
+            update(node);
+            int bf = height(node.left) - height(node.right);
+            boolean done;
+            if (bf > 1 || bf < -1) {
+                node = rotateFix(node, bf);
+                count++;
+                done = inserted;
+            }
+            else if (node.height == old_height) done = true;
+            else {
+                count++;
+                done = false;
+            }
+            if (done) {
+                if (augmented()) for (node = node.parent; node != null; node = node.parent) update(node);
+                return count;
+            }
+            node = node.parent;
+        }
+        return count;
+    }
+
+    // Single or double rotation at node, whose balance factor is bf = +-2. Returns the new top of the subtree.
+    // Complexity: O(1)
+    private N rotateFix(N node, int bf) {
+        if (bf > 1) {
+            if (height(node.left.left) < height(node.left.right)) rotateLeft(node.left);
+            return rotateRight(node);
+        }
+        if (height(node.right.right) < height(node.right.left)) rotateRight(node.right);
+        return rotateLeft(node);
+    }
+
+    // Complexity: O(1)
+    private N rotateRight(N x) {
+        N y = turnRight(x);
+        updateHeight(x);
+        updateHeight(y);
+        return y;
+    }
+
+    // Complexity: O(1)
+    private N rotateLeft(N x) {
+        N y = turnLeft(x);
+        updateHeight(x);
+        updateHeight(y);
+        return y;
+    }
+
+    // Moves x's left son y up over x and returns y. Heights (ranks) are left to the caller.
+    // Complexity: O(1)
+    private N turnRight(N x) {
+        N y = x.left;
+        x.left = y.right;
+        if (y.right != null) y.right.parent = x;
+        replaceSon(x.parent, x, y);
+        y.right = x;
+        x.parent = y;
+        update(x);
+        update(y);
+        rotations++;
+        return y;
+    }
+
+    // Moves x's right son y up over x and returns y. Heights (ranks) are left to the caller.
+    // Complexity: O(1)
+    private N turnLeft(N x) {
+        N y = x.right;
+        x.right = y.left;
+        if (y.left != null) y.left.parent = x;
+        replaceSon(x.parent, x, y);
+        y.left = x;
+        x.parent = y;
+        update(x);
+        update(y);
+        rotations++;
+        return y;
+    }
+
+    // Puts son (maybe null) where old was under parent, or at the root if parent is null
+    // Complexity: O(1)
+    private void replaceSon(N parent, N old, N son) {
+        if (parent == null) root = son;
+        else if (parent.left == old) parent.left = son;
+        else parent.right = son;
+        if (son != null) son.parent = parent;
+    }
+
+    private static int height(Node<?> node) { return (node == null) ? -1 : node.height; }
+
+    private static void updateHeight(Node<?> node) {
+        node.height = Math.max(height(node.left), height(node.right)) + 1;
+    }
+
+    // Returns the node with the smallest key; throws NoSuchElementException if the tree is empty
+    // Complexity: O(log(n))
+    N first() {
+        if (root == null) throw new NoSuchElementException("the tree is empty");
+        N node = root;
+        while (node.left != null) node = node.left;
+        return node;
+    }
+
+    // Returns the node with the largest key; throws NoSuchElementException if the tree is empty
+    // Complexity: O(log(n))
+    N last() {
+        if (root == null) throw new NoSuchElementException("the tree is empty");
+        N node = root;
+        while (node.right != null) node = node.right;
+        return node;
+    }
+
+    // Returns the in-order successor of node, or null for the last node
+    // Complexity: O(log(n)), O(1) amortized over a whole walk
+    N successor(N node) {
+        if (node.right != null) {
+            node = node.right;
+            while (node.left != null) node = node.left;
+            return node;
+        }
+        while (node.parent != null && node.parent.right == node) node = node.parent;
+        return node.parent;
+    }
+}
@@ -0,0 +1,429 @@
+package avltree;
+
+import java.util.Arrays;
+
+/**
+ * public class BitsetAVLTree
+ * <p>
+ * This class represents an ordered map with integer keys and boolean values, like AVLTree, for dense key
+ * spaces. The keys are cut into aligned blocks of SPAN consecutive keys, and the AVL tree (BalancedTree)
+ * balances the blocks, not the keys: one node per non-empty block.
+ * <p>
+ * A block holding at most ARRAY_MAX keys keeps them as a sorted char array of offsets with a bitset of their
+ * infos; a fuller block switches to two SPAN bit bitsets, one for the keys present and one for the infos
+ * (and back below ARRAY_MAX / 2, so a block at the threshold does not flip on every insert and delete).
+ * A full dense block costs 2 bits per key plus one node, against one AVLNode of 72 bytes per key in AVLTree
+ * (measured with compressed oops).
+ * <p>
+ * Every block node keeps the number of trues in its block and in its subtree of blocks, so prefixXor adds
+ * the subtree counts left of the search path and finishes with popcounts inside k's block.
+ */
+public class BitsetAVLTree extends BalancedTree<BitsetAVLTree.Block> implements IntBooleanTree {
+
+    private static final int SPAN_BITS = 12;
+    private static final int SPAN = 1 << SPAN_BITS;
+    private static final int WORDS = SPAN >>> 6;
+    private static final int ARRAY_MAX = 256;
+
+    private int items; // BalancedTree.size counts blocks
+
+    /**
+     * public static final class Block
+     * <p>
+     * The keys of a BitsetAVLTree from high * SPAN to high * SPAN + SPAN - 1.
+     */
+    public static final class Block extends BalancedTree.Node<Block> {
+        private final int high;
+        private int count;
+        private int trues;
+        private int subtree_trues;
+        // array form: offsets[0..count) sorted, bit i of infos is the info of offsets[i]
+        private char[] offsets;
+        // bitmap form (offsets == null): bit o of present is set if offset o is in the block
+        private long[] present;
+        private long[] infos;
+
+        Block(int high) {
+            this.high = high;
+            this.offsets = new char[4];
+            this.infos = new long[ARRAY_MAX >>> 6];
+        }
+
+        // Complexity: O(1)
+        public int getHigh() { return this.high; }
+
+        // Returns the number of keys in the block
+        // Complexity: O(1)
+        public int getCount() { return this.count; }
+
+        // Returns the number of keys with info true in the block
+        // Complexity: O(1)
+        public int getTrues() { return this.trues; }
+
+        // Returns the index of offset in offsets, or -(insertion point)-1 (array form)
+        private int indexOf(int offset) {
+            return Arrays.binarySearch(offsets, 0, count, (char) offset);
+        }
+
+        // Returns -1 if offset is not in the block, otherwise its info (0 or 1)
+        // Complexity: O(log(ARRAY_MAX))
+        int get(int offset) {
+            if (offsets != null) {
+                int i = indexOf(offset);
+                return (i < 0) ? -1 : (int) (infos[i >>> 6] >>> i) & 1;
+            }
+            if ((present[offset >>> 6] & (1L << offset)) == 0) return -1;
+            return (int) (infos[offset >>> 6] >>> offset) & 1;
+        }
+
+        // Adds offset, which is not in the block, with info bit
+        // Complexity: O(ARRAY_MAX)
+        void add(int offset, int bit) {
+            if (offsets != null && count == ARRAY_MAX) toBitmap();
+            if (offsets != null) {
+                int i = -indexOf(offset) - 1;
+                if (count == offsets.length) offsets = Arrays.copyOf(offsets, Math.min(2 * count, ARRAY_MAX));
+                System.arraycopy(offsets, i, offsets, i + 1, count - i);
+                offsets[i] = (char) offset;
+                insertBit(infos, i, count, bit);
+            }
+            else {
+                present[offset >>> 6] |= 1L << offset;
+                infos[offset >>> 6] |= (long) bit << offset;
+            }
+            count++;
+            trues += bit;
+        }
+
+        // Removes offset, which is in the block, and returns its info
+        // Complexity: O(ARRAY_MAX)
+        int remove(int offset) {
+            int bit;
+            if (offsets != null) {
+                int i = indexOf(offset);
+                bit = (int) (infos[i >>> 6] >>> i) & 1;
+                System.arraycopy(offsets, i + 1, offsets, i, count - i - 1);
+                removeBit(infos, i, count);
+            }
+            else {
+                bit = (int) (infos[offset >>> 6] >>> offset) & 1;
+                present[offset >>> 6] &= ~(1L << offset);
+                infos[offset >>> 6] &= ~(1L << offset);
+            }
+            count--;
+            trues -= bit;
+            if (offsets == null && count < ARRAY_MAX / 2) toArray();
+            return bit;
+        }
+
+        // Returns the number of trues among the keys of the block with offsets <= offset
+        // Complexity: O(WORDS)
+        int truesUpTo(int offset) {
+            int words;
+            int bits;
+            if (offsets != null) { // the infos of offsets[0..i]
+                int i = indexOf(offset);
+                int upto = (i < 0) ? -i - 1 : i + 1;
+                words = upto >>> 6;
+                bits = upto & 63;
+            }
+            else {
+                words = (offset + 1) >>> 6;
+                bits = (offset + 1) & 63;
+            }
+            int t = 0;
+            for (int w = 0; w < words; w++) t += Long.bitCount(infos[w]);
+            if (bits != 0) t += Long.bitCount(infos[words] & ((1L << bits) - 1));
+            return t;
+        }
+
+        // Returns the smallest offset in the (non-empty) block
+        int first() {
+            if (offsets != null) return offsets[0];
+            int w = 0;
+            while (present[w] == 0) w++;
+            return (w << 6) + Long.numberOfTrailingZeros(present[w]);
+        }
+
+        // Returns the largest offset in the (non-empty) block
+        int last() {
+            if (offsets != null) return offsets[count - 1];
+            int w = WORDS - 1;
+            while (present[w] == 0) w--;
+            return (w << 6) + 63 - Long.numberOfLeadingZeros(present[w]);
+        }
+
+        // Writes the keys and/or infos of the block from index at on and returns the next free index
+        // Complexity: O(count) in array form, O(WORDS + count) in bitmap form
+        int exportTo(int[] keys, boolean[] values, int at) {
+            int base = high << SPAN_BITS;
+            if (offsets != null) {
+                for (int i = 0; i < count; i++, at++) {
+                    if (keys != null) keys[at] = base | offsets[i];
+                    if (values != null) values[at] = ((infos[i >>> 6] >>> i) & 1) != 0;
+                }
+                return at;
+            }
+            for (int w = 0; w < WORDS; w++) {
+                for (long bits = present[w]; bits != 0; bits &= bits - 1, at++) {
+                    int o = (w << 6) + Long.numberOfTrailingZeros(bits);
+                    if (keys != null) keys[at] = base | o;
+                    if (values != null) values[at] = ((infos[w] >>> o) & 1) != 0;
+                }
+            }
+            return at;
+        }
+
+        private void toBitmap() {
+            long[] p = new long[WORDS];
+            long[] v = new long[WORDS];
+            for (int i = 0; i < count; i++) {
+                int o = offsets[i];
+                p[o >>> 6] |= 1L << o;
+                v[o >>> 6] |= ((infos[i >>> 6] >>> i) & 1) << o;
+            }
+            present = p;
+            infos = v;
+            offsets = null;
+        }
+
+        private void toArray() {
+            char[] o = new char[ARRAY_MAX];
+            long[] v = new long[ARRAY_MAX >>> 6];
+            int i = 0;
+            for (int w = 0; w < WORDS; w++) {
+                for (long bits = present[w]; bits != 0; bits &= bits - 1, i++) {
+                    int off = (w << 6) + Long.numberOfTrailingZeros(bits);
+                    o[i] = (char) off;
+                    v[i >>> 6] |= ((infos[w] >>> off) & 1) << i;
+                }
+            }
+            offsets = o;
+            infos = v;
+            present = null;
+        }
+    }
+
+    /**
+     * public Boolean search(int k)
+     * <p>
+     * returns the info of an item with key k if it exists in the tree
+     * otherwise, returns null
+     */
+    // Complexity: O(log(n/SPAN) + log(ARRAY_MAX))
+    public Boolean search(int k) {
+        Block block = findBlock(k >> SPAN_BITS);
+        if (block == null) return null;
+        int bit = block.get(k & (SPAN - 1));
+        return (bit < 0) ? null : bit == 1;
+    }
+
+    /**
+     * public int insert(int k, boolean i)
+     * <p>
+     * inserts an item with key k and info i to the tree.
+     * returns the number of rebalancing operations (promotions and rotations) if k opened a new block, else 0.
+     * returns -1 if an item with key k already exists in the tree.
+     */
+    // Complexity: O(log(n/SPAN) + ARRAY_MAX)
+    public int insert(int k, boolean i) {
+        int high = k >> SPAN_BITS;
+        int offset = k & (SPAN - 1);
+        int bit = (i) ? 1 : 0;
+        Block parent = null;
+        Block curr = root;
+        boolean left = false;
+        while (curr != null && curr.high != high) {
+            parent = curr;
+            left = high < curr.high;
+            curr = (left) ? curr.left : curr.right;
+        }
+        items++;
+        if (curr == null) {
+            Block block = new Block(high);
+            block.add(offset, bit);
+            return attach(parent, block, left);
+        }
+        if (curr.get(offset) >= 0) {
+            items--;
+            return -1;
+        }
+        curr.add(offset, bit);
+        if (bit == 1) updateUp(curr);
+        return 0;
+    }
+
+    /**
+     * public int delete(int k)
+     * <p>
+     * deletes an item with key k from the tree if it exists.
+     * returns the number of rebalancing operations (demotions and rotations) if k was the last key of its
+     * block, else 0.
+     * returns -1 if an item with key k was not found in the tree.
+     */
+    // Complexity: O(log(n/SPAN) + ARRAY_MAX)
+    public int delete(int k) {
+        Block block = findBlock(k >> SPAN_BITS);
+        int offset = k & (SPAN - 1);
+        if (block == null || block.get(offset) < 0) return -1;
+        items--;
+        int bit = block.remove(offset);
+        if (block.count == 0) return detach(block);
+        if (bit == 1) updateUp(block);
+        return 0;
+    }
+
+    /**
+     * public Boolean min()
+     * <p>
+     * Returns the info of the item with the smallest key in the tree,
+     * or null if the tree is empty
+     */
+    // Complexity: O(log(n/SPAN))
+    public Boolean min() {
+        if (empty()) return null;
+        Block block = first();
+        return block.get(block.first()) == 1;
+    }
+
+    /**
+     * public Boolean max()
+     * <p>
+     * Returns the info of the item with the largest key in the tree,
+     * or null if the tree is empty
+     */
+    // Complexity: O(log(n/SPAN))
+    public Boolean max() {
+        if (empty()) return null;
+        Block block = last();
+        return block.get(block.last()) == 1;
+    }
+
+    /**
+     * public int[] keysToArray()
+     * <p>
+     * Returns a sorted array which contains all keys in the tree,
+     * or an empty array if the tree is empty.
+     */
+    // Complexity: O(n)
+    public int[] keysToArray() {
+        int[] arr = new int[items];
+        int at = 0;
+        for (Block b = (empty()) ? null : first(); b != null; b = successor(b)) at = b.exportTo(arr, null, at);
+        return arr;
+    }
+
+    /**
+     * public boolean[] infoToArray()
+     * <p>
+     * Returns an array which contains all info in the tree,
+     * sorted by their respective keys,
+     * or an empty array if the tree is empty.
+     */
+    // Complexity: O(n)
+    public boolean[] infoToArray() {
+        boolean[] arr = new boolean[items];
+        int at = 0;
+        for (Block b = (empty()) ? null : first(); b != null; b = successor(b)) at = b.exportTo(null, arr, at);
+        return arr;
+    }
+
+    /**
+     * public int size()
+     * <p>
+     * Returns the number of items in the tree.
+     */
+    // Complexity: O(1)
+    @Override
+    public int size() { return this.items; }
+
+    /**
+     * public int blockCount()
+     * <p>
+     * Returns the number of blocks, which is the number of nodes of the balanced tree.
+     */
+    // Complexity: O(1)
+    public int blockCount() { return this.size; }
+
+    /**
+     * public boolean prefixXor(int k)
+     * <p>
+     * Given an argument k which is a key in the tree, calculate the xor of the values of the items whose keys
+     * are smaller or equal to k.
+     * <p>
+     * precondition: this.search(k) != null
+     */
+    // Complexity: O(log(n/SPAN) + SPAN/64)
+    public boolean prefixXor(int k) {
+        return (countTruesUpTo(k) & 1) == 1;
+    }
+
+    /**
+     * public int countTruesUpTo(int k)
+     * <p>
+     * Returns the number of items with info true and key smaller or equal to k. k does not have to be a key
+     * in the tree.
+     */
+    /* Descends the blocks towards k's block, adding each block left of the path with its left subtree.
+     * Complexity: O(log(n/SPAN) + SPAN/64)
+     * */
+    public int countTruesUpTo(int k) {
+        int high = k >> SPAN_BITS;
+        int count = 0;
+        Block curr = root;
+        while (curr != null) {
+            if (curr.high < high) {
+                count += subtreeTrues(curr.left) + curr.trues;
+                curr = curr.right;
+            }
+            else if (curr.high > high) curr = curr.left;
+            else return count + subtreeTrues(curr.left) + curr.truesUpTo(k & (SPAN - 1));
+        }
+        return count;
+    }
+
+    @Override
+    void update(Block node) {
+        node.subtree_trues = subtreeTrues(node.left) + node.trues + subtreeTrues(node.right);
+    }
+
+    @Override
+    boolean augmented() {
+        return true;
+    }
+
+    private static int subtreeTrues(Block block) { return (block == null) ? 0 : block.subtree_trues; }
+
+    // Updates the trues of block's subtree and of all its ancestors
+    // Complexity: O(log(n/SPAN))
+    private void updateUp(Block block) {
+        for (; block != null; block = block.parent) update(block);
+    }
+
+    // Complexity: O(log(n/SPAN))
+    private Block findBlock(int high) {
+        Block curr = root;
+        while (curr != null && curr.high != high) curr = (high < curr.high) ? curr.left : curr.right;
+        return curr;
+    }
+
+    // Inserts bit at index i of the first count bits of words, moving the bits from i on up by one
+    private static void insertBit(long[] words, int i, int count, int bit) {
+        for (int w = count >>> 6; w > (i >>> 6); w--) words[w] = (words[w] << 1) | (words[w - 1] >>> 63);
+        int w = i >>> 6;
+        long low = words[w] & ((1L << i) - 1);
+        words[w] = low | ((words[w] & ~((1L << i) - 1)) << 1) | ((long) bit << i);
+    }
+
+    // Removes the bit at index i of the first count bits of words, moving the bits above it down by one
+    private static void removeBit(long[] words, int i, int count) {
+        int w = i >>> 6;
+        long low = words[w] & ((1L << i) - 1);
+        long high = (words[w] >>> 1) & ~((1L << i) - 1) & ~(1L << 63);
+        words[w] = low | high;
+        for (int x = w + 1; x <= (count - 1) >>> 6; x++) {
+            words[x - 1] |= words[x] << 63;
+            words[x] >>>= 1;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package avltree;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * public class ComparatorAVLTree
+ * <p>
+ * This class represents an AVLTree with keys of type K, ordered by a Comparator or by their natural ordering,
+ * and values of type V. Neither keys nor values may be null, so that search can return null for a missing key
+ * as AVLTree.search does. The balancing is BalancedTree's.
+ */
+public class ComparatorAVLTree<K, V> extends BalancedTree<ComparatorAVLTree.Node<K, V>> {
+
+    private final Comparator<? super K> comparator;
+
+    /**
+     * public static final class Node
+     * <p>
+     * A node of a ComparatorAVLTree.
+     */
+    public static final class Node<K, V> extends BalancedTree.Node<Node<K, V>> {
+        private final K key;
+        private V value;
+
+        Node(K key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        // Complexity: O(1)
+        public K getKey() { return this.key; }
+
+        // Complexity: O(1)
+        public V getValue() { return this.value; }
+    }
+
+    /**
+     * This constructor creates an empty tree ordered by the natural ordering of the keys, which must be
+     * Comparable (otherwise insert throws ClassCastException).
+     */
+    @SuppressWarnings("unchecked")
+    public ComparatorAVLTree() {
+        this((Comparator<? super K>) Comparator.naturalOrder());
+    }
+
+    /**
+     * This constructor creates an empty tree ordered by comparator.
+     */
+    public ComparatorAVLTree(Comparator<? super K> comparator) {
+        this.comparator = Objects.requireNonNull(comparator, "comparator");
+    }
+
+    /**
+     * public V search(K k)
+     * <p>
+     * returns the value of an item with key k if it exists in the tree
+     * otherwise, returns null
+     */
+    // Complexity: O(log(n)) comparisons
+    public V search(K k) {
+        Node<K, V> node = find(k);
+        return (node == null) ? null : node.value;
+    }
+
+    /**
+     * public int insert(K k, V v)
+     * <p>
+     * inserts an item with key k and value v to the tree.
+     * returns the number of rebalancing operations (promotions and rotations).
+     * returns -1 if an item with a key equal to k (by the comparator) already exists in the tree.
+     * throws NullPointerException if k or v is null.
+     */
+    // Complexity: O(log(n)) comparisons
+    public int insert(K k, V v) {
+        Objects.requireNonNull(k, "key");
+        Objects.requireNonNull(v, "value");
+        Node<K, V> parent = null;
+        Node<K, V> curr = root;
+        boolean left = false;
+        while (curr != null) {
+            int c = comparator.compare(k, curr.key);
+            if (c == 0) return -1;
+            parent = curr;
+            left = c < 0;
+            curr = (left) ? curr.left : curr.right;
+        }
+        if (parent == null) comparator.compare(k, k); // reject keys the comparator cannot handle up front
+        return attach(parent, new Node<>(k, v), left);
+    }
+
+    /**
+     * public int delete(K k)
+     * <p>
+     * deletes the item with key k from the tree if it exists.
+     * returns the number of rebalancing operations (demotions and rotations).
+     * returns -1 if an item with key k was not found in the tree.
+     */
+    // Complexity: O(log(n)) comparisons
+    public int delete(K k) {
+        Node<K, V> node = find(k);
+        return (node == null) ? -1 : detach(node);
+    }
+
+    /**
+     * public K minKey()
+     * <p>
+     * Returns the smallest key in the tree, or null if the tree is empty
+     */
+    // Complexity: O(log(n))
+    public K minKey() { return (empty()) ? null : first().key; }
+
+    /**
+     * public K maxKey()
+     * <p>
+     * Returns the largest key in the tree, or null if the tree is empty
+     */
+    // Complexity: O(log(n))
+    public K maxKey() { return (empty()) ? null : last().key; }
+
+    /**
+     * public List&lt;K&gt; keys()
+     * <p>
+     * Returns a list of all keys in the tree, in order.
+     */
+    // Complexity: O(n)
+    public List<K> keys() {
+        List<K> list = new ArrayList<>(size);
+        for (Node<K, V> node = (empty()) ? null : first(); node != null; node = successor(node)) list.add(node.key);
+        return list;
+    }
+
+    /**
+     * public List&lt;V&gt; values()
+     * <p>
+     * Returns a list of all values in the tree, sorted by their respective keys.
+     */
+    // Complexity: O(n)
+    public List<V> values() {
+        List<V> list = new ArrayList<>(size);
+        for (Node<K, V> node = (empty()) ? null : first(); node != null; node = successor(node)) list.add(node.value);
+        return list;
+    }
+
+    // Complexity: O(log(n)) comparisons
+    private Node<K, V> find(K k) {
+        Objects.requireNonNull(k, "key");
+        Node<K, V> curr = root;
+        while (curr != null) {
+            int c = comparator.compare(k, curr.key);
+            if (c == 0) return curr;
+            curr = (c < 0) ? curr.left : curr.right;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,473 @@
+package avltree;
+
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * public class ConcurrentAVLTree
+ * <p>
+ * This class represents a thread-safe AVLTree with integer keys and boolean values.
+ * <p>
+ * search never locks. It follows the optimistic hand-over-hand validation of Bronson et al. ("A Practical
+ * Concurrent Binary Search Tree"): every node carries a version, and a rotation marks only the node it moves
+ * down as SHRINKING while it relinks and bumps its version afterwards. A reader remembers the version of each
+ * node it passes, re-reads the link it followed and checks that the parent's version did not change, so it only
+ * retries when it actually ran through a node that was being rotated or unlinked.
+ * <p>
+ * To keep keys from moving between nodes, deleting a node with two sons only clears its value and leaves it as a
+ * routing node; a routing node is unlinked as soon as it has less than two sons. The leftmost and rightmost
+ * nodes therefore always hold real values.
+ * <p>
+ * Writers are serialized by the write lock of a StampedLock. min, max and prefixXor read optimistically under
+ * the same lock (falling back to a read lock if a write overlapped), keysToArray and infoToArray take the read
+ * lock.
+ */
+public class ConcurrentAVLTree implements IntBooleanTree {
+
+    private static final long SHRINKING = 1L; // set while a rotation moves the node down
+    private static final long UNLINKED = 2L; // set once the node is no longer in the tree
+    private static final long VERSION_STEP = 4L;
+
+    private final StampedLock lock = new StampedLock();
+    private final Node holder = new Node(Integer.MIN_VALUE, null, null); // the root is holder.right
+    private volatile int size;
+    private volatile Node min_node;
+    private volatile Node max_node;
+
+    /**
+     * public boolean empty()
+     * <p>
+     * returns true if and only if the tree is empty
+     */
+    // Complexity: O(1)
+    public boolean empty() {
+        return size == 0;
+    }
+
+    /**
+     * public Boolean search(int k)
+     * <p>
+     * returns the info of an item with key k if it exists in the tree
+     * otherwise, returns null
+     * Never blocks.
+     */
+    // Complexity: O(log(n)) when no rotation overlaps the search
+    public Boolean search(int k) {
+        retry:
+        while (true) {
+            Node node = holder;
+            long version = holder.version;
+            boolean go_left = false; // below the holder the root is always its right son
+            while (true) {
+                Node child = go_left ? node.left : node.right;
+                if (child == null) {
+                    if (node.version != version) continue retry;
+                    return null;
+                }
+                long child_version = child.version;
+                if ((child_version & (SHRINKING | UNLINKED)) != 0) {
+                    Thread.onSpinWait();
+                    continue retry;
+                }
+                if (child != (go_left ? node.left : node.right) || node.version != version) continue retry;
+                if (child.key == k) {
+                    Boolean value = child.value;
+                    if (child.version != child_version) continue retry;
+                    return value;
+                }
+                node = child;
+                version = child_version;
+                go_left = k < child.key;
+            }
+        }
+    }
+
+    /**
+     * public int insert(int k, boolean i)
+     * <p>
+     * inserts an item with key k and info i to the AVL tree.
+     * returns the number of nodes which require rebalancing operations (i.e. promotions or rotations).
+     * This always includes the newly-created node (or the routing node that takes the value).
+     * returns -1 if an item with key k already exists in the tree.
+     */
+    // Complexity: O(log(n))
+    public int insert(int k, boolean i) {
+        long stamp = lock.writeLock();
+        try {
+            Node parent = holder;
+            Node curr = holder.right;
+            while (curr != null) {
+                if (curr.key == k) {
+                    if (curr.value != null) return -1;
+                    curr.value = i; // revive a routing node, the shape does not change
+                    size++;
+                    ascendUpdateTrues(curr);
+                    updateMinMax();
+                    return 1;
+                }
+                parent = curr;
+                curr = (k < curr.key) ? curr.left : curr.right;
+            }
+            Node node = new Node(k, i, parent);
+            if (parent == holder || k > parent.key) parent.right = node;
+            else parent.left = node;
+            size++;
+            int oper_count = 1 + fixUp(parent, true);
+            updateMinMax();
+            return oper_count;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * public int delete(int k)
+     * <p>
+     * deletes an item with key k from the binary tree, if it is there;
+     * returns the number of nodes which required rebalancing operations (i.e. demotions or rotations).
+     * returns -1 if an item with key k was not found in the tree.
+     */
+    // Complexity: O(log(n))
+    public int delete(int k) {
+        long stamp = lock.writeLock();
+        try {
+            Node curr = holder.right;
+            while (curr != null && curr.key != k) curr = (k < curr.key) ? curr.left : curr.right;
+            if (curr == null || curr.value == null) return -1;
+            curr.value = null;
+            size--;
+            int oper_count;
+            if (curr.left != null && curr.right != null) { // keep it as a routing node
+                ascendUpdateTrues(curr);
+                oper_count = 0;
+            }
+            else {
+                Node parent = curr.parent;
+                unlink(curr);
+                oper_count = fixUp(parent, false);
+            }
+            updateMinMax();
+            return oper_count;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /*
+     * Ascends from node to the root restoring heights and trues_in_sub_tree, rotating where the balance factor
+     * reached +-2 and unlinking routing nodes left with less than two sons. Counts promotions/demotions until the
+     * height stops changing plus one per rotation; after an insert a rotation always ends the rebalancing.
+     * Complexity: O(log(n))
+     */
+    private int fixUp(Node node, boolean is_insert) {
+        int oper_count = 0;
+        boolean rebalancing = true;
+        while (node != holder) {
+            Node parent = node.parent;
+            if (isThinRoutingNode(node)) {
+                unlink(node);
+                node = parent;
+                continue;
+            }
+            if (isThinRoutingNode(node.left) || isThinRoutingNode(node.right)) {
+                unlink(isThinRoutingNode(node.left) ? node.left : node.right);
+                continue;
+            }
+            int bf = height(node.left) - height(node.right);
+            if (Math.abs(bf) == 2) {
+                node = rebalance(node, bf);
+                if (rebalancing) oper_count++;
+                if (is_insert) rebalancing = false;
+                // a rotated routing node may have lost a son, then look at the new subtree root again
+                if (isThinRoutingNode(node.left) || isThinRoutingNode(node.right)) continue;
+            }
+            else {
+                int old_height = node.height;
+                updateNode(node);
+                if (rebalancing) {
+                    if (node.height != old_height) oper_count++;
+                    else rebalancing = false;
+                }
+            }
+            node = node.parent;
+        }
+        return oper_count;
+    }
+
+    // Single or double rotation at node, returning the new root of the subtree.
+    // Complexity: O(1)
+    private Node rebalance(Node node, int bf) {
+        if (bf == 2) {
+            Node a = node.left;
+            if (height(a.left) - height(a.right) == -1) leftRotation(a);
+            return rightRotation(node);
+        }
+        Node a = node.right;
+        if (height(a.left) - height(a.right) == 1) rightRotation(a);
+        return leftRotation(node);
+    }
+
+    /*
+     * Rotates the right son of pivot up to pivot's place and returns it. Only pivot shrinks, so only pivot is
+     * marked while the links change.
+     * Complexity: O(1)
+     */
+    private Node leftRotation(Node pivot) {
+        Node r = pivot.right;
+        Node parent = pivot.parent;
+        pivot.version |= SHRINKING;
+        replaceChild(parent, pivot, r);
+        r.parent = parent;
+        pivot.right = r.left;
+        if (r.left != null) r.left.parent = pivot;
+        r.left = pivot;
+        pivot.parent = r;
+        updateNode(pivot);
+        updateNode(r);
+        pivot.version = (pivot.version & ~SHRINKING) + VERSION_STEP;
+        return r;
+    }
+
+    /*
+     * Rotates the left son of pivot up to pivot's place and returns it.
+     * Complexity: O(1)
+     */
+    private Node rightRotation(Node pivot) {
+        Node l = pivot.left;
+        Node parent = pivot.parent;
+        pivot.version |= SHRINKING;
+        replaceChild(parent, pivot, l);
+        l.parent = parent;
+        pivot.left = l.right;
+        if (l.right != null) l.right.parent = pivot;
+        l.right = pivot;
+        pivot.parent = l;
+        updateNode(pivot);
+        updateNode(l);
+        pivot.version = (pivot.version & ~SHRINKING) + VERSION_STEP;
+        return l;
+    }
+
+    // Replaces node (which has at most one son) by that son.
+    // Complexity: O(1)
+    private void unlink(Node node) {
+        Node kid = (node.left != null) ? node.left : node.right;
+        replaceChild(node.parent, node, kid);
+        if (kid != null) kid.parent = node.parent;
+        node.version = (node.version | UNLINKED) + VERSION_STEP;
+    }
+
+    // A routing node that has less than two sons and must be unlinked.
+    private static boolean isThinRoutingNode(Node node) {
+        return node != null && node.value == null && (node.left == null || node.right == null);
+    }
+
+    private void replaceChild(Node parent, Node old_kid, Node new_kid) {
+        if (parent.left == old_kid) parent.left = new_kid;
+        else parent.right = new_kid;
+    }
+
+    private static int height(Node node) {
+        return (node == null) ? -1 : node.height;
+    }
+
+    private static int trues(Node node) {
+        return (node == null) ? 0 : node.trues_in_sub_tree;
+    }
+
+    // Complexity: O(1)
+    private static void updateNode(Node node) {
+        node.height = Math.max(height(node.left), height(node.right)) + 1;
+        node.trues_in_sub_tree = trues(node.left) + trues(node.right) + (Boolean.TRUE.equals(node.value) ? 1 : 0);
+    }
+
+    // Complexity: O(log(n))
+    private void ascendUpdateTrues(Node node) {
+        while (node != holder) {
+            node.trues_in_sub_tree = trues(node.left) + trues(node.right) + (Boolean.TRUE.equals(node.value) ? 1 : 0);
+            node = node.parent;
+        }
+    }
+
+    // Complexity: O(log(n))
+    private void updateMinMax() {
+        Node min = holder.right;
+        Node max = holder.right;
+        if (min != null) {
+            while (min.left != null) min = min.left;
+            while (max.right != null) max = max.right;
+        }
+        min_node = min;
+        max_node = max;
+    }
+
+    /**
+     * public Boolean min()
+     * <p>
+     * Returns the info of the item with the smallest key in the tree,
+     * or null if the tree is empty
+     */
+    // Complexity: O(1)
+    public Boolean min() {
+        long stamp = lock.tryOptimisticRead();
+        Node node = min_node;
+        Boolean value = (node == null) ? null : node.value;
+        if (lock.validate(stamp)) return value;
+        stamp = lock.readLock();
+        try {
+            return (min_node == null) ? null : min_node.value;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * public Boolean max()
+     * <p>
+     * Returns the info of the item with the largest key in the tree,
+     * or null if the tree is empty
+     */
+    // Complexity: O(1)
+    public Boolean max() {
+        long stamp = lock.tryOptimisticRead();
+        Node node = max_node;
+        Boolean value = (node == null) ? null : node.value;
+        if (lock.validate(stamp)) return value;
+        stamp = lock.readLock();
+        try {
+            return (max_node == null) ? null : max_node.value;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * public int size()
+     * <p>
+     * Returns the number of items in the tree.
+     */
+    // Complexity: O(1)
+    public int size() { return this.size; }
+
+    /**
+     * public boolean prefixXor(int k)
+     *
+     * Given an argument k which is a key in the tree, calculate the xor of the values of nodes whose keys are
+     * smaller or equal to k.
+     *
+     * precondition: this.search(k) != null
+     */
+    // Complexity: O(log(n))
+    public boolean prefixXor(int k) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                boolean result = prefixXorUnlocked(k);
+                if (lock.validate(stamp)) return result;
+            } catch (RuntimeException e) {
+                // a write overlapped the walk, retry under the read lock
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return prefixXorUnlocked(k);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private boolean prefixXorUnlocked(int k) {
+        int true_count = 0;
+        Node curr = holder.right;
+        while (curr != null) {
+            if (curr.key <= k) {
+                true_count += curr.trues_in_sub_tree - trues(curr.right);
+                if (curr.key == k) break;
+                curr = curr.right;
+            }
+            else curr = curr.left;
+        }
+        return (true_count & 1) != 0;
+    }
+
+    /**
+     * public int[] keysToArray()
+     * <p>
+     * Returns a sorted array which contains all keys in the tree,
+     * or an empty array if the tree is empty.
+     */
+    // Complexity: O(n)
+    public int[] keysToArray() {
+        long stamp = lock.readLock();
+        try {
+            int[] arr = new int[size];
+            int index = 0;
+            for (Node node = min_node; node != null; node = successor(node))
+                if (node.value != null) arr[index++] = node.key;
+            return arr;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * public boolean[] infoToArray()
+     * <p>
+     * Returns an array which contains all info in the tree,
+     * sorted by their respective keys,
+     * or an empty array if the tree is empty.
+     */
+    // Complexity: O(n)
+    public boolean[] infoToArray() {
+        long stamp = lock.readLock();
+        try {
+            boolean[] arr = new boolean[size];
+            int index = 0;
+            for (Node node = min_node; node != null; node = successor(node))
+                if (node.value != null) arr[index++] = node.value;
+            return arr;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // In-order successor (routing nodes included) or null. Caller holds a lock.
+    // Complexity: O(log(n)), amortized O(1) over a full scan
+    private Node successor(Node node) {
+        if (node.right != null) {
+            node = node.right;
+            while (node.left != null) node = node.left;
+            return node;
+        }
+        Node parent = node.parent;
+        while (parent != holder && parent.right == node) {
+            node = parent;
+            parent = parent.parent;
+        }
+        return (parent == holder) ? null : parent;
+    }
+
+    /**
+     * private static final class Node
+     * <p>
+     * A node of the concurrent tree. Links, value and version are volatile so that search can read them without
+     * a lock; parent, height and trues_in_sub_tree are only touched by writers and by readers that validate
+     * against the tree lock.
+     */
+    private static final class Node {
+        final int key;
+        volatile Boolean value; // null for a routing node
+        volatile Node left;
+        volatile Node right;
+        volatile long version;
+        Node parent;
+        int height;
+        int trues_in_sub_tree;
+
+        Node(int key, Boolean value, Node parent) {
+            this.key = key;
+            this.value = value;
+            this.parent = parent;
+            this.trues_in_sub_tree = Boolean.TRUE.equals(value) ? 1 : 0;
+        }
+    }
+}
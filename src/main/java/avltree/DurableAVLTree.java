@@ -0,0 +1,386 @@
+package avltree;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+/**
+ * public class DurableAVLTree
+ * <p>
+ * This class represents an AVLTree whose inserts and deletes survive a crash. Every mutation that changes the
+ * tree is appended to a write-ahead log in a directory, next to the last snapshot of the tree (see
+ * AVLTree.writeTo). open() restores the snapshot and replays the log over it; snapshot() writes a new one and
+ * empties the log, and is also run automatically once the log grows past a size given to open().
+ * <p>
+ * How soon a mutation is on disk depends on the Durability given to open(). With BATCHED, callers that
+ * mutate at the same time share fsyncs (group commit): a caller waits for the fsync in progress, and the next
+ * fsync covers every record appended meanwhile, so under load one fsync is paid per batch instead of per
+ * operation.
+ * <p>
+ * All methods are thread safe. Mutations are applied to the tree before they are durable, so a search may
+ * see an item whose insert has not returned yet.
+ * <p>
+ * Log record: a type byte (insert true, insert false, delete), the key, and a CRC32C of both. Replay stops at
+ * the first incomplete or corrupt record (the tail of a write cut by the crash) and cuts the log there.
+ */
+public class DurableAVLTree implements IntBooleanTree, Closeable {
+
+    /**
+     * public enum Durability
+     * <p>
+     * When a mutation's log record reaches the disk.
+     */
+    public enum Durability {
+        /** Records are handed to the OS when the log buffer fills, on snapshot() and on close(); never forced. */
+        NONE,
+        /** insert/delete return once the record is forced; concurrent callers share fsyncs (group commit). */
+        BATCHED,
+        /** Every insert/delete writes and forces its own record before the next mutation may start. */
+        PER_OP
+    }
+
+    /** The log size past which a snapshot is taken, if open() is not given one. */
+    public static final long DEFAULT_SNAPSHOT_LOG_BYTES = 64L << 20;
+
+    private static final String SNAPSHOT = "snapshot";
+    private static final String LOG = "wal";
+    private static final int RECORD_BYTES = 9;
+    private static final byte INSERT_TRUE = 1;
+    private static final byte INSERT_FALSE = 2;
+    private static final byte DELETE = 3;
+    private static final int BUFFER_BYTES = 1 << 16;
+    private static final boolean WINDOWS = System.getProperty("os.name").startsWith("Windows");
+
+    private final Path dir;
+    private final Durability durability;
+    private final long snapshot_log_bytes;
+    private final FileChannel log;
+    private final AVLTree tree;
+
+    // Lock order: io_lock, then the monitor of this. io_lock is held by whoever writes to the log channel;
+    // the monitor guards the tree and the pending records.
+    private final ReentrantLock io_lock = new ReentrantLock();
+    private ByteBuffer pending = ByteBuffer.allocate(BUFFER_BYTES); // records not yet written to the channel
+    private ByteBuffer spare = ByteBuffer.allocate(BUFFER_BYTES);
+    private final CRC32C crc = new CRC32C();
+    private long appended_lsn;          // records appended so far
+    private volatile long durable_lsn;  // records known to be forced to disk
+    private volatile long log_bytes;    // bytes written to the log since the last snapshot
+    private IOException failure;        // set once the log could not be written; the tree is then read only
+
+    private DurableAVLTree(Path dir, Durability durability, long snapshot_log_bytes, FileChannel log, AVLTree tree) {
+        this.dir = dir;
+        this.durability = durability;
+        this.snapshot_log_bytes = snapshot_log_bytes;
+        this.log = log;
+        this.tree = tree;
+    }
+
+    /**
+     * public static DurableAVLTree open(Path dir, Durability durability)
+     * <p>
+     * Same as open(dir, durability, DEFAULT_SNAPSHOT_LOG_BYTES).
+     */
+    public static DurableAVLTree open(Path dir, Durability durability) throws IOException {
+        return open(dir, durability, DEFAULT_SNAPSHOT_LOG_BYTES);
+    }
+
+    /**
+     * public static DurableAVLTree open(Path dir, Durability durability, long snapshot_log_bytes)
+     * <p>
+     * Opens the tree kept in dir, creating dir and an empty tree if needed: reads the snapshot, replays the
+     * log and cuts off a torn tail. A snapshot is taken whenever the log grows past snapshot_log_bytes.
+     */
+    // Complexity: O(n + log records)
+    public static DurableAVLTree open(Path dir, Durability durability, long snapshot_log_bytes) throws IOException {
+        Files.createDirectories(dir);
+        AVLTree tree;
+        Path snapshot = dir.resolve(SNAPSHOT);
+        if (Files.exists(snapshot)) {
+            try (FileChannel in = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+                tree = AVLTree.readFrom(in);
+            }
+        }
+        else tree = new AVLTree();
+        FileChannel log = FileChannel.open(dir.resolve(LOG), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            forceDirectory(dir); // the log may have just been created
+            long good = replay(log, tree);
+            if (good < log.size()) {
+                log.truncate(good);
+                log.force(false);
+            }
+            log.position(good);
+            DurableAVLTree durable = new DurableAVLTree(dir, durability, snapshot_log_bytes, log, tree);
+            durable.log_bytes = good;
+            return durable;
+        }
+        catch (IOException | RuntimeException e) {
+            log.close();
+            throw e;
+        }
+    }
+
+    /* Forces dir's entries (file creations and renames) to disk. Windows can not open a directory as a
+     * channel, and its file systems make renames durable by themselves, so there it does nothing.
+     * Complexity: O(1), plus the fsync
+     * */
+    private static void forceDirectory(Path dir) throws IOException {
+        if (WINDOWS) return;
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+
+    /* Applies the valid records of the log to tree and returns the length of the valid prefix.
+     * Replaying records that are already in the snapshot (after a crash between writing a snapshot and
+     * emptying the log) is harmless: insert never changes an existing key and the log only holds records of
+     * mutations that changed the tree, so applying a sequence twice leaves every key as applying it once.
+     * Complexity: O(records * log(n))
+     * */
+    private static long replay(FileChannel log, AVLTree tree) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(BUFFER_BYTES);
+        CRC32C crc = new CRC32C();
+        long good = 0;
+        log.position(0);
+        while (log.read(buf) > 0 || buf.position() > 0) {
+            buf.flip();
+            if (buf.remaining() < RECORD_BYTES && log.position() < log.size()) { // read more before deciding
+                buf.compact();
+                continue;
+            }
+            while (buf.remaining() >= RECORD_BYTES) {
+                int at = buf.position();
+                byte type = buf.get();
+                int key = buf.getInt();
+                crc.reset();
+                crc.update(buf.array(), at, 5);
+                if (buf.getInt() != (int) crc.getValue() || type < INSERT_TRUE || type > DELETE) return good;
+                if (type == DELETE) tree.delete(key);
+                else tree.insert(key, type == INSERT_TRUE);
+                good += RECORD_BYTES;
+            }
+            if (buf.hasRemaining() && log.position() == log.size()) return good; // a torn last record
+            buf.compact();
+        }
+        return good;
+    }
+
+    /**
+     * public int insert(int k, boolean i)
+     * <p>
+     * Inserts like AVLTree.insert and returns once the record is as durable as the Durability asks.
+     * throws UncheckedIOException if the log can not be written (then and from then on; the tree is left
+     * read only).
+     */
+    // Complexity: O(log(n)), plus the write and fsync of the log record
+    public int insert(int k, boolean i) {
+        return mutate(k, (i) ? INSERT_TRUE : INSERT_FALSE);
+    }
+
+    /**
+     * public int delete(int k)
+     * <p>
+     * Deletes like AVLTree.delete and returns once the record is as durable as the Durability asks.
+     * throws UncheckedIOException if the log can not be written, as insert.
+     */
+    // Complexity: O(log(n)), plus the write and fsync of the log record
+    public int delete(int k) {
+        return mutate(k, DELETE);
+    }
+
+    private int mutate(int k, byte type) {
+        try {
+            if (durability == Durability.PER_OP) io_lock.lock(); // held until forced: one op at a time
+            try {
+                long lsn;
+                int result;
+                boolean full;
+                synchronized (this) {
+                    if (failure != null) throw failure;
+                    result = (type == DELETE) ? tree.delete(k) : tree.insert(k, type == INSERT_TRUE);
+                    if (result == -1) return -1; // nothing changed, nothing to log
+                    lsn = append(type, k);
+                    full = pending.position() >= BUFFER_BYTES / 2;
+                }
+                if (durability != Durability.NONE) sync(lsn, true);
+                else if (full) sync(lsn, false);
+                if (log_bytes >= snapshot_log_bytes) writeSnapshot(true);
+                return result;
+            }
+            finally {
+                if (durability == Durability.PER_OP) io_lock.unlock();
+            }
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Appends a record to pending and returns its lsn. Called holding the monitor.
+    private long append(byte type, int k) {
+        if (pending.remaining() < RECORD_BYTES) {
+            ByteBuffer bigger = ByteBuffer.allocate(pending.capacity() * 2);
+            pending.flip();
+            pending = bigger.put(pending);
+        }
+        int at = pending.position();
+        pending.put(type).putInt(k);
+        crc.reset();
+        crc.update(pending.array(), at, 5);
+        pending.putInt((int) crc.getValue());
+        return ++appended_lsn;
+    }
+
+    /* Makes the records up to lsn written (and forced if force). Whoever holds io_lock writes every record
+     * pending at that moment, so the callers that queued up behind it are usually covered already when they
+     * get the lock, and return without another fsync.
+     * */
+    private void sync(long lsn, boolean force) throws IOException {
+        if (force && durable_lsn >= lsn) return;
+        io_lock.lock();
+        try {
+            if (force && durable_lsn >= lsn) return;
+            long upto = writePending();
+            if (force) {
+                log.force(false);
+                durable_lsn = upto;
+            }
+        }
+        catch (IOException e) {
+            synchronized (this) {
+                failure = e;
+            }
+            throw e;
+        }
+        finally {
+            io_lock.unlock();
+        }
+    }
+
+    // Writes every pending record to the log channel and returns the lsn of the last one. Called holding io_lock.
+    private long writePending() throws IOException {
+        ByteBuffer batch;
+        long upto;
+        synchronized (this) {
+            batch = pending;
+            pending = spare;
+            pending.clear();
+            spare = batch;
+            upto = appended_lsn;
+        }
+        batch.flip();
+        int bytes = batch.remaining();
+        while (batch.hasRemaining()) log.write(batch);
+        synchronized (this) {
+            log_bytes += bytes;
+        }
+        return upto;
+    }
+
+    /**
+     * public void snapshot()
+     * <p>
+     * Writes the tree to a new snapshot file, atomically replaces the old one with it and empties the log.
+     * Mutations wait while it runs.
+     */
+    // Complexity: O(n)
+    public void snapshot() throws IOException {
+        writeSnapshot(false);
+    }
+
+    // snapshot(), or only if the log has grown past snapshot_log_bytes if only_if_due (another caller may
+    // have taken the snapshot while this one waited for the locks)
+    private void writeSnapshot(boolean only_if_due) throws IOException {
+        io_lock.lock();
+        try {
+            synchronized (this) {
+                if (failure != null) throw failure;
+                if (only_if_due && log_bytes < snapshot_log_bytes) return;
+                if (log_bytes + pending.position() == 0) return; // nothing new since the last snapshot
+                try {
+                    Path tmp = dir.resolve(SNAPSHOT + ".tmp");
+                    try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                            StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                        tree.writeTo(out);
+                        out.force(true);
+                    }
+                    Files.move(tmp, dir.resolve(SNAPSHOT), StandardCopyOption.ATOMIC_MOVE,
+                            StandardCopyOption.REPLACE_EXISTING);
+                    // the rename must be on disk before the log is emptied, or a crash could bring back the old
+                    // snapshot with an empty log
+                    forceDirectory(dir);
+                    pending.clear(); // in the snapshot now
+                    log.truncate(0);
+                    log.position(0);
+                    log.force(false);
+                    log_bytes = 0;
+                    durable_lsn = appended_lsn;
+                }
+                catch (IOException e) {
+                    failure = e;
+                    throw e;
+                }
+            }
+        }
+        finally {
+            io_lock.unlock();
+        }
+    }
+
+    /**
+     * public void close()
+     * <p>
+     * Writes and forces the records still pending (whatever the Durability) and closes the log.
+     */
+    public void close() throws IOException {
+        io_lock.lock();
+        try {
+            synchronized (this) {
+                if (failure == null && log.isOpen()) {
+                    writePending();
+                    log.force(false);
+                    durable_lsn = appended_lsn;
+                }
+                log.close();
+            }
+        }
+        finally {
+            io_lock.unlock();
+        }
+    }
+
+    /**
+     * public Durability getDurability()
+     * <p>
+     * Returns the Durability the tree was opened with.
+     */
+    public Durability getDurability() { return this.durability; }
+
+    public synchronized boolean empty() { return tree.empty(); }
+
+    public synchronized Boolean search(int k) { return tree.search(k); }
+
+    public synchronized void searchBatch(int[] keys, byte[] out) { tree.searchBatch(keys, out); }
+
+    public synchronized Boolean min() { return tree.min(); }
+
+    public synchronized Boolean max() { return tree.max(); }
+
+    public synchronized int[] keysToArray() { return tree.keysToArray(); }
+
+    public synchronized boolean[] infoToArray() { return tree.infoToArray(); }
+
+    public synchronized int size() { return tree.size(); }
+
+    public synchronized boolean prefixXor(int k) { return tree.prefixXor(k); }
+}
@@ -0,0 +1,167 @@
+package avltree;
+
+/**
+ * The optional search cache of an AVLTree (see AVLTree.setSearchCache): a small set-associative table from keys
+ * to the nodes that hold them.
+ * <p>
+ * A key hashes to one set of WAYS slots, so a lookup reads at most WAYS consecutive keys. Nodes never change
+ * their key or info while they are in the tree, so an entry stays right until its node is removed; the tree
+ * calls remove (delete) or clear (everything that removes many nodes at once) before that happens.
+ * <p>
+ * Eviction is CLOCK within the set: a hit sets the slot's referenced bit, and the victim is the first slot
+ * after the set's hand whose bit is clear, clearing bits on the way. Admission is TinyLFU: every lookup counts
+ * its key in a count-min sketch of small counters (two rows, halved every SAMPLE_FACTOR * capacity lookups so
+ * that old popularity fades), and a missed key only replaces the victim if it was seen more often. Uniform
+ * traffic therefore mostly leaves the cache alone instead of churning it.
+ * <p>
+ * Even a cache that never hits costs every search its lookup and bookkeeping, so the cache watches its own hit
+ * ratio over windows of WINDOW lookups. Below MIN_HIT_PERCENT it bypasses itself: only one search in
+ * BYPASS_SAMPLE still goes through it, enough to keep the sketch and the hit ratio current, and it comes back
+ * once the sampled hit ratio does.
+ */
+final class HotKeyCache {
+
+    static final int WAYS = 4;
+    private static final int MAX_COUNT = 15;
+    private static final int SAMPLE_FACTOR = 10;
+    static final int MAX_CAPACITY = 1 << 24;
+    static final int WINDOW = 1 << 14;
+    private static final int MIN_HIT_PERCENT = 5;
+    static final int BYPASS_SAMPLE = 16;
+
+    private final int[] keys;
+    private final AVLTree.AVLNode[] nodes; // null for a free slot
+    private final boolean[] referenced;
+    private final byte[] hands; // per set, the slot CLOCK looks at first
+    private final int set_shift;
+    private final byte[] counts; // two rows of the sketch, counts.length / 2 counters each
+    private final int count_mask;
+    private final int sample_size;
+    private int lookups;
+    private int window_lookups;
+    private int window_hits;
+    private boolean bypassing;
+    private int skipped;
+
+    // capacity is rounded up to a power of two between WAYS and MAX_CAPACITY slots
+    HotKeyCache(int capacity) {
+        int slots = Integer.highestOneBit(Math.min(Math.max(WAYS, capacity), MAX_CAPACITY) * 2 - 1);
+        this.keys = new int[slots];
+        this.nodes = new AVLTree.AVLNode[slots];
+        this.referenced = new boolean[slots];
+        this.hands = new byte[slots / WAYS];
+        this.set_shift = 32 - Integer.numberOfTrailingZeros(slots / WAYS);
+        this.counts = new byte[2 * slots * 2];
+        this.count_mask = slots * 2 - 1;
+        this.sample_size = SAMPLE_FACTOR * slots;
+    }
+
+    int capacity() { return this.keys.length; }
+
+    // Whether this search should go through the cache; false for most searches while it bypasses itself
+    // Complexity: O(1)
+    boolean consult() {
+        return !bypassing || (++skipped & (BYPASS_SAMPLE - 1)) == 0;
+    }
+
+    // Returns the cached node of k, or null. Counts the lookup of k either way.
+    // Complexity: O(WAYS)
+    AVLTree.AVLNode get(int k) {
+        int hash = hash(k);
+        record(hash);
+        int first = firstSlot(hash);
+        AVLTree.AVLNode node = null;
+        for (int slot = first; slot < first + WAYS; slot++) {
+            if (keys[slot] == k && nodes[slot] != null) {
+                referenced[slot] = true;
+                node = nodes[slot];
+                window_hits++;
+                break;
+            }
+        }
+        if (++window_lookups == WINDOW) {
+            bypassing = window_hits * 100 < MIN_HIT_PERCENT * WINDOW;
+            window_lookups = 0;
+            window_hits = 0;
+        }
+        return node;
+    }
+
+    // Offers node, which holds k and was just found by a search that missed the cache, for caching.
+    // Complexity: O(WAYS)
+    void admit(int k, AVLTree.AVLNode node) {
+        int hash = hash(k);
+        int first = firstSlot(hash);
+        for (int slot = first; slot < first + WAYS; slot++) {
+            if (nodes[slot] == null) {
+                put(slot, k, node);
+                return;
+            }
+        }
+        int set = first / WAYS;
+        int hand = hands[set];
+        while (referenced[first + hand]) {
+            referenced[first + hand] = false;
+            hand = (hand + 1) & (WAYS - 1);
+        }
+        hands[set] = (byte) ((hand + 1) & (WAYS - 1));
+        int victim = first + hand;
+        if (frequency(hash) > frequency(hash(keys[victim]))) put(victim, k, node);
+    }
+
+    // Drops the entry of k, if there is one
+    // Complexity: O(WAYS)
+    void remove(int k) {
+        int first = firstSlot(hash(k));
+        for (int slot = first; slot < first + WAYS; slot++) {
+            if (keys[slot] == k && nodes[slot] != null) {
+                nodes[slot] = null;
+                referenced[slot] = false;
+            }
+        }
+    }
+
+    // Drops every entry; the frequencies are kept
+    // Complexity: O(capacity)
+    void clear() {
+        java.util.Arrays.fill(nodes, null);
+        java.util.Arrays.fill(referenced, false);
+    }
+
+    private void put(int slot, int k, AVLTree.AVLNode node) {
+        keys[slot] = k;
+        nodes[slot] = node;
+        referenced[slot] = false;
+    }
+
+    private int firstSlot(int hash) {
+        return (set_shift == 32) ? 0 : (hash >>> set_shift) * WAYS;
+    }
+
+    private static int hash(int k) {
+        int h = k * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private int frequency(int hash) {
+        return Math.min(counts[hash & count_mask], counts[secondRow(hash)]);
+    }
+
+    // The counter of the second sketch row, from an independent-enough remix of the hash
+    private int secondRow(int hash) {
+        return count_mask + 1 + (((hash * 0x85EBCA6B) >>> 7) & count_mask);
+    }
+
+    // Counts one lookup of the key with this hash, halving every counter once sample_size were counted
+    // Complexity: O(1), amortized over sample_size lookups
+    private void record(int hash) {
+        int first = hash & count_mask;
+        int second = secondRow(hash);
+        if (counts[first] < MAX_COUNT) counts[first]++;
+        if (counts[second] < MAX_COUNT) counts[second]++;
+        if (++lookups == sample_size) {
+            lookups = 0;
+            for (int i = 0; i < counts.length; i++) counts[i] >>= 1;
+        }
+    }
+}
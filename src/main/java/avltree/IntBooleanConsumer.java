@@ -0,0 +1,13 @@
+package avltree;
+
+/**
+ * public interface IntBooleanConsumer
+ * <p>
+ * An action on one item of a tree, given as its key and its info, so that walking a tree boxes nothing.
+ */
+@FunctionalInterface
+public interface IntBooleanConsumer {
+
+    // Called with the key and the info of an item
+    void accept(int key, boolean value);
+}
@@ -0,0 +1,115 @@
+package avltree;
+
+/**
+ * public interface IntBooleanTree
+ * <p>
+ * An ordered map from integer keys to boolean values (infos): the public operations of AVLTree that do not
+ * depend on how the items are laid out. AVLTree, ArrayAVLTree, BitsetAVLTree, BTree, ConcurrentAVLTree,
+ * DurableAVLTree, MappedAVLTree, PersistentAVLTree, PipelinedAVLTree and ShardedAVLTree all implement it, so
+ * callers and benchmarks can switch between them.
+ * <p>
+ * insert and delete return -1 when the key is already in the map (insert) or missing from it (delete);
+ * otherwise they return the number of restructuring steps the operation took, whose meaning depends on the
+ * implementation (rebalancing operations for the AVL trees, node splits and merges for BTree).
+ */
+public interface IntBooleanTree {
+
+    /**
+     * public boolean empty()
+     * <p>
+     * returns true if and only if the tree is empty
+     */
+    boolean empty();
+
+    /**
+     * public Boolean search(int k)
+     * <p>
+     * returns the info of an item with key k if it exists in the tree
+     * otherwise, returns null
+     */
+    Boolean search(int k);
+
+    /**
+     * public void searchBatch(int[] keys, byte[] out)
+     * <p>
+     * Looks up every key of keys and writes the result to the same index of out: 1 if the key is in the tree
+     * with info true, 0 if it is in the tree with info false, -1 if it is not in the tree.
+     * throws IllegalArgumentException if out is shorter than keys.
+     * <p>
+     * This default calls search for each key; the pointer-based trees override it to run several searches
+     * at once, so that their cache misses overlap instead of being waited for one after the other.
+     */
+    default void searchBatch(int[] keys, byte[] out) {
+        if (out.length < keys.length) throw new IllegalArgumentException("out is shorter than keys");
+        for (int i = 0; i < keys.length; i++) {
+            Boolean info = search(keys[i]);
+            out[i] = (info == null) ? -1 : (info) ? (byte) 1 : (byte) 0;
+        }
+    }
+
+    /**
+     * public int insert(int k, boolean i)
+     * <p>
+     * inserts an item with key k and info i to the tree.
+     * returns -1 if an item with key k already exists in the tree, otherwise the number of restructuring steps.
+     */
+    int insert(int k, boolean i);
+
+    /**
+     * public int delete(int k)
+     * <p>
+     * deletes an item with key k from the tree if it exists.
+     * returns -1 if an item with key k was not found in the tree, otherwise the number of restructuring steps.
+     */
+    int delete(int k);
+
+    /**
+     * public Boolean min()
+     * <p>
+     * Returns the info of the item with the smallest key in the tree,
+     * or null if the tree is empty
+     */
+    Boolean min();
+
+    /**
+     * public Boolean max()
+     * <p>
+     * Returns the info of the item with the largest key in the tree,
+     * or null if the tree is empty
+     */
+    Boolean max();
+
+    /**
+     * public int[] keysToArray()
+     * <p>
+     * Returns a sorted array which contains all keys in the tree,
+     * or an empty array if the tree is empty.
+     */
+    int[] keysToArray();
+
+    /**
+     * public boolean[] infoToArray()
+     * <p>
+     * Returns an array which contains all info in the tree,
+     * sorted by their respective keys,
+     * or an empty array if the tree is empty.
+     */
+    boolean[] infoToArray();
+
+    /**
+     * public int size()
+     * <p>
+     * Returns the number of items in the tree.
+     */
+    int size();
+
+    /**
+     * public boolean prefixXor(int k)
+     * <p>
+     * Given an argument k which is a key in the tree, calculate the xor of the values of the items whose keys
+     * are smaller or equal to k.
+     * <p>
+     * precondition: this.search(k) != null
+     */
+    boolean prefixXor(int k);
+}
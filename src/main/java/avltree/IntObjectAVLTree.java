@@ -0,0 +1,129 @@
+package avltree;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * public class IntObjectAVLTree
+ * <p>
+ * This class represents an AVLTree with int keys, stored unboxed, and values of type V. null is not a valid
+ * value, so that search can return null for a missing key as AVLTree.search does. Every int is a valid key,
+ * including -1. The balancing is BalancedTree's.
+ */
+public class IntObjectAVLTree<V> extends BalancedTree<IntObjectAVLTree.Node<V>> {
+
+    /**
+     * public static final class Node
+     * <p>
+     * A node of an IntObjectAVLTree.
+     */
+    public static final class Node<V> extends BalancedTree.Node<Node<V>> {
+        private final int key;
+        private V value;
+
+        Node(int key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        // Complexity: O(1)
+        public int getKey() { return this.key; }
+
+        // Complexity: O(1)
+        public V getValue() { return this.value; }
+    }
+
+    /**
+     * public V search(int k)
+     * <p>
+     * returns the value of an item with key k if it exists in the tree
+     * otherwise, returns null
+     */
+    // Complexity: O(log(n))
+    public V search(int k) {
+        Node<V> curr = root;
+        while (curr != null && curr.key != k) curr = (k < curr.key) ? curr.left : curr.right;
+        return (curr == null) ? null : curr.value;
+    }
+
+    /**
+     * public int insert(int k, V v)
+     * <p>
+     * inserts an item with key k and value v to the tree.
+     * returns the number of rebalancing operations (promotions and rotations).
+     * returns -1 if an item with key k already exists in the tree.
+     * throws NullPointerException if v is null.
+     */
+    // Complexity: O(log(n))
+    public int insert(int k, V v) {
+        if (v == null) throw new NullPointerException("null values are not allowed");
+        Node<V> parent = null;
+        Node<V> curr = root;
+        boolean left = false;
+        while (curr != null) {
+            if (curr.key == k) return -1;
+            parent = curr;
+            left = k < curr.key;
+            curr = (left) ? curr.left : curr.right;
+        }
+        return attach(parent, new Node<>(k, v), left);
+    }
+
+    /**
+     * public int delete(int k)
+     * <p>
+     * deletes the item with key k from the tree if it exists.
+     * returns the number of rebalancing operations (demotions and rotations).
+     * returns -1 if an item with key k was not found in the tree.
+     */
+    // Complexity: O(log(n))
+    public int delete(int k) {
+        Node<V> curr = root;
+        while (curr != null && curr.key != k) curr = (k < curr.key) ? curr.left : curr.right;
+        return (curr == null) ? -1 : detach(curr);
+    }
+
+    /**
+     * public V min()
+     * <p>
+     * Returns the value of the item with the smallest key in the tree,
+     * or null if the tree is empty
+     */
+    // Complexity: O(log(n))
+    public V min() { return (empty()) ? null : first().value; }
+
+    /**
+     * public V max()
+     * <p>
+     * Returns the value of the item with the largest key in the tree,
+     * or null if the tree is empty
+     */
+    // Complexity: O(log(n))
+    public V max() { return (empty()) ? null : last().value; }
+
+    /**
+     * public int[] keysToArray()
+     * <p>
+     * Returns a sorted array which contains all keys in the tree,
+     * or an empty array if the tree is empty.
+     */
+    // Complexity: O(n)
+    public int[] keysToArray() {
+        int[] arr = new int[size];
+        int i = 0;
+        for (Node<V> node = (empty()) ? null : first(); node != null; node = successor(node)) arr[i++] = node.key;
+        return arr;
+    }
+
+    /**
+     * public List&lt;V&gt; values()
+     * <p>
+     * Returns a list of all values in the tree, sorted by their respective keys.
+     */
+    // Complexity: O(n)
+    public List<V> values() {
+        List<V> list = new ArrayList<>(size);
+        for (Node<V> node = (empty()) ? null : first(); node != null; node = successor(node)) list.add(node.value);
+        return list;
+    }
+}
@@ -0,0 +1,141 @@
+package avltree;
+
+/**
+ * public class LongLongAVLTree
+ * <p>
+ * This class represents an AVLTree with long keys and long values, both stored unboxed in the nodes.
+ * Every long is a valid key, including -1. The balancing is BalancedTree's.
+ */
+public class LongLongAVLTree extends BalancedTree<LongLongAVLTree.Node> {
+
+    /**
+     * public static final class Node
+     * <p>
+     * A node of a LongLongAVLTree.
+     */
+    public static final class Node extends BalancedTree.Node<Node> {
+        private final long key;
+        private long value;
+
+        Node(long key, long value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        // Complexity: O(1)
+        public long getKey() { return this.key; }
+
+        // Complexity: O(1)
+        public long getValue() { return this.value; }
+    }
+
+    /**
+     * public boolean contains(long k)
+     * <p>
+     * returns true if and only if an item with key k exists in the tree
+     */
+    // Complexity: O(log(n))
+    public boolean contains(long k) {
+        return find(k) != null;
+    }
+
+    /**
+     * public long search(long k, long missing)
+     * <p>
+     * returns the value of the item with key k if it exists in the tree
+     * otherwise, returns missing
+     */
+    // Complexity: O(log(n))
+    public long search(long k, long missing) {
+        Node node = find(k);
+        return (node == null) ? missing : node.value;
+    }
+
+    /**
+     * public int insert(long k, long v)
+     * <p>
+     * inserts an item with key k and value v to the tree.
+     * returns the number of rebalancing operations (promotions and rotations).
+     * returns -1 if an item with key k already exists in the tree.
+     */
+    // Complexity: O(log(n))
+    public int insert(long k, long v) {
+        Node parent = null;
+        Node curr = root;
+        boolean left = false;
+        while (curr != null) {
+            if (curr.key == k) return -1;
+            parent = curr;
+            left = k < curr.key;
+            curr = (left) ? curr.left : curr.right;
+        }
+        return attach(parent, new Node(k, v), left);
+    }
+
+    /**
+     * public int delete(long k)
+     * <p>
+     * deletes the item with key k from the tree if it exists.
+     * returns the number of rebalancing operations (demotions and rotations).
+     * returns -1 if an item with key k was not found in the tree.
+     */
+    // Complexity: O(log(n))
+    public int delete(long k) {
+        Node node = find(k);
+        return (node == null) ? -1 : detach(node);
+    }
+
+    /**
+     * public long minKey()
+     * <p>
+     * Returns the smallest key in the tree.
+     * throws NoSuchElementException if the tree is empty
+     */
+    // Complexity: O(log(n))
+    public long minKey() { return first().key; }
+
+    /**
+     * public long maxKey()
+     * <p>
+     * Returns the largest key in the tree.
+     * throws NoSuchElementException if the tree is empty
+     */
+    // Complexity: O(log(n))
+    public long maxKey() { return last().key; }
+
+    /**
+     * public long[] keysToArray()
+     * <p>
+     * Returns a sorted array which contains all keys in the tree,
+     * or an empty array if the tree is empty.
+     */
+    // Complexity: O(n)
+    public long[] keysToArray() {
+        long[] arr = new long[size];
+        int i = 0;
+        for (Node node = (empty()) ? null : first(); node != null; node = successor(node)) arr[i++] = node.key;
+        return arr;
+    }
+
+    /**
+     * public long[] valuesToArray()
+     * <p>
+     * Returns an array which contains all values in the tree,
+     * sorted by their respective keys,
+     * or an empty array if the tree is empty.
+     */
+    // Complexity: O(n)
+    public long[] valuesToArray() {
+        long[] arr = new long[size];
+        int i = 0;
+        for (Node node = (empty()) ? null : first(); node != null; node = successor(node)) arr[i++] = node.value;
+        return arr;
+    }
+
+    // Complexity: O(log(n))
+    private Node find(long k) {
+        Node curr = root;
+        while (curr != null && curr.key != k) curr = (k < curr.key) ? curr.left : curr.right;
+        return curr;
+    }
+}
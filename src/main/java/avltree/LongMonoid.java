@@ -0,0 +1,67 @@
+package avltree;
+
+/**
+ * public interface LongMonoid
+ * <p>
+ * An associative way to combine the items of an AVLTree into one long, with an identity element.
+ * A tree created with a LongMonoid keeps the aggregate of every subtree up to date through insert, delete and
+ * the rotations, and answers rangeAggregate(lo, hi) with it.
+ * <p>
+ * combine must be associative; it does not have to be commutative, items are always combined in key order.
+ */
+public interface LongMonoid {
+
+    // The value of an empty range: combine(identity(), x) == combine(x, identity()) == x
+    long identity();
+
+    // Combines the aggregate of a range with the aggregate of the range right after it
+    long combine(long a, long b);
+
+    // The value of a single item
+    long of(int key, boolean value, long payload);
+
+    // Sum of the payloads
+    static LongMonoid sumOfPayloads() {
+        return new LongMonoid() {
+            public long identity() { return 0; }
+            public long combine(long a, long b) { return a + b; }
+            public long of(int key, boolean value, long payload) { return payload; }
+        };
+    }
+
+    // Minimum of the payloads (Long.MAX_VALUE for an empty range)
+    static LongMonoid minOfPayloads() {
+        return new LongMonoid() {
+            public long identity() { return Long.MAX_VALUE; }
+            public long combine(long a, long b) { return Math.min(a, b); }
+            public long of(int key, boolean value, long payload) { return payload; }
+        };
+    }
+
+    // Maximum of the payloads (Long.MIN_VALUE for an empty range)
+    static LongMonoid maxOfPayloads() {
+        return new LongMonoid() {
+            public long identity() { return Long.MIN_VALUE; }
+            public long combine(long a, long b) { return Math.max(a, b); }
+            public long of(int key, boolean value, long payload) { return payload; }
+        };
+    }
+
+    // Xor of the payloads
+    static LongMonoid xorOfPayloads() {
+        return new LongMonoid() {
+            public long identity() { return 0; }
+            public long combine(long a, long b) { return a ^ b; }
+            public long of(int key, boolean value, long payload) { return payload; }
+        };
+    }
+
+    // Number of items whose info is true
+    static LongMonoid countTrues() {
+        return new LongMonoid() {
+            public long identity() { return 0; }
+            public long combine(long a, long b) { return a + b; }
+            public long of(int key, boolean value, long payload) { return value ? 1 : 0; }
+        };
+    }
+}
@@ -0,0 +1,553 @@
+package avltree;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * public class MappedAVLTree
+ * <p>
+ * This class represents an AVLTree with integer keys and boolean values whose nodes live in a memory-mapped file,
+ * so a tree can be reopened after a restart without replaying any inserts.
+ * <p>
+ * File layout: a HEADER_BYTES page holding two header slots, followed by fixed-size node records. Node 0 is the
+ * virtual node. Nodes reachable from the committed root are never written again: insert and delete copy the
+ * path they change (the same left/right rotations as AVLTree, applied to the copies) into records appended past
+ * the committed end of the file. Records created since the last commit are private and are updated in place.
+ * <p>
+ * commit() forces the new records to disk and only then writes the new root into the older of the two header
+ * slots (with a higher epoch and a checksum) and forces the header. open() picks the valid slot with the highest
+ * epoch, so a crash at any point leaves the last committed tree. Reopening reads one header: O(1).
+ * <p>
+ * Records of older versions are not reused, so the file grows with every write. Rewrite the tree into a fresh
+ * file to reclaim that space.
+ */
+public class MappedAVLTree implements IntBooleanTree, Closeable {
+
+    private static final int MAGIC = 0x41564c31; // "AVL1"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 4096;
+    private static final int SLOT_BYTES = 64;
+
+    // Node record: key, left, right, trues_in_sub_tree (ints), height, value (bytes), 2 bytes padding
+    private static final int NODE_BYTES = 20;
+    private static final int KEY = 0;
+    private static final int LEFT = 4;
+    private static final int RIGHT = 8;
+    private static final int TRUES = 12;
+    private static final int HEIGHT = 16;
+    private static final int VALUE = 17;
+
+    private static final int SEGMENT_SHIFT = 20; // 2^20 nodes (20MB) per mapping
+    private static final int SEGMENT_MASK = (1 << SEGMENT_SHIFT) - 1;
+    private static final long SEGMENT_BYTES = (long) NODE_BYTES << SEGMENT_SHIFT;
+
+    private static final int NIL = 0;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer header;
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+
+    private long epoch;
+    private int root = NIL;
+    private int size;
+    private int min_node = NIL;
+    private int max_node = NIL;
+    private int node_count; // records in use, committed or not
+    private int committed_nodes; // records reachable from a committed header are below this index
+
+    // State of the recursive insert/delete
+    private int oper_count;
+    private boolean rebalancing;
+    private int removed_key;
+    private boolean removed_value;
+
+    private MappedAVLTree(FileChannel channel) throws IOException {
+        this.channel = channel;
+        this.header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+        this.header.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * public static MappedAVLTree open(Path path)
+     * <p>
+     * Opens the tree stored at path, creating an empty one if the file does not exist or is empty.
+     * throws IOException if the file has content but no valid header slot; the file is left as it was.
+     * Complexity: O(1)
+     */
+    public static MappedAVLTree open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        MappedAVLTree tree;
+        try {
+            boolean created = channel.size() == 0;
+            // checked before mapping the header, which would grow a shorter file
+            if (!created && channel.size() < HEADER_BYTES) throw new IOException("not a MappedAVLTree file");
+            tree = new MappedAVLTree(channel);
+            if (!tree.readHeader()) {
+                if (!created) throw new IOException("not a MappedAVLTree file");
+                tree.node_count = 1; // reserve the virtual node
+                tree.committed_nodes = 1;
+                tree.ensureCapacity(1);
+                tree.writeNode(NIL, -1, NIL, NIL, 0, -1, false);
+                tree.commit();
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        return tree;
+    }
+
+    /**
+     * public boolean empty()
+     * <p>
+     * returns true if and only if the tree is empty
+     */
+    // Complexity: O(1)
+    public boolean empty() {
+        return root == NIL;
+    }
+
+    /**
+     * public Boolean search(int k)
+     * <p>
+     * returns the info of an item with key k if it exists in the tree
+     * otherwise, returns null
+     */
+    // Complexity: O(log(n))
+    public Boolean search(int k) {
+        int node = searchIndex(k);
+        return (node == NIL) ? null : Boolean.valueOf(value(node));
+    }
+
+    // Complexity: O(log(n))
+    private int searchIndex(int k) {
+        int curr = root;
+        while (curr != NIL) {
+            int key = key(curr);
+            if (key == k) return curr;
+            curr = (key > k) ? left(curr) : right(curr);
+        }
+        return NIL;
+    }
+
+    /**
+     * public int insert(int k, boolean i)
+     * <p>
+     * inserts an item with key k and info i to the AVL tree.
+     * returns the number of nodes which require rebalancing operations (i.e. promotions or rotations).
+     * This always includes the newly-created node.
+     * returns -1 if an item with key k already exists in the tree.
+     * The change is not durable until commit() is called.
+     */
+    // Complexity: O(log(n)) time and O(log(n)) new records
+    public int insert(int k, boolean i) {
+        if (searchIndex(k) != NIL) return -1;
+        oper_count = 1;
+        rebalancing = true;
+        root = insertRec(root, k, i);
+        size++;
+        updateMinMax();
+        return oper_count;
+    }
+
+    private int insertRec(int node, int k, boolean i) {
+        if (node == NIL) {
+            int leaf = allocNode();
+            writeNode(leaf, k, NIL, NIL, i ? 1 : 0, 0, i);
+            return leaf;
+        }
+        int n = fresh(node);
+        int old_height = height(n);
+        if (key(n) > k) setLeft(n, insertRec(left(n), k, i));
+        else setRight(n, insertRec(right(n), k, i));
+        return fixUp(n, old_height, true);
+    }
+
+    /**
+     * public int delete(int k)
+     * <p>
+     * deletes an item with key k from the binary tree, if it is there;
+     * returns the number of nodes which required rebalancing operations (i.e. demotions or rotations).
+     * returns -1 if an item with key k was not found in the tree.
+     * The change is not durable until commit() is called.
+     */
+    // Complexity: O(log(n)) time and O(log(n)) new records
+    public int delete(int k) {
+        if (searchIndex(k) == NIL) return -1;
+        if (size == 1) {
+            root = NIL;
+            size = 0;
+            updateMinMax();
+            return 0;
+        }
+        oper_count = 0;
+        rebalancing = true;
+        root = deleteRec(root, k);
+        size--;
+        updateMinMax();
+        return oper_count;
+    }
+
+    private int deleteRec(int node, int k) {
+        int key = key(node);
+        if (key == k) {
+            if (left(node) == NIL) return right(node);
+            if (right(node) == NIL) return left(node);
+        }
+        int n = fresh(node);
+        int old_height = height(n);
+        if (key > k) setLeft(n, deleteRec(left(n), k));
+        else if (key < k) setRight(n, deleteRec(right(n), k));
+        else { // two sons: the successor takes this node's place
+            setRight(n, deleteMin(right(n)));
+            setKey(n, removed_key);
+            setValue(n, removed_value);
+        }
+        return fixUp(n, old_height, false);
+    }
+
+    // Removes the minimum of the subtree, leaving its key and value in removed_key and removed_value.
+    private int deleteMin(int node) {
+        if (left(node) == NIL) {
+            removed_key = key(node);
+            removed_value = value(node);
+            return right(node);
+        }
+        int n = fresh(node);
+        int old_height = height(n);
+        setLeft(n, deleteMin(left(n)));
+        return fixUp(n, old_height, false);
+    }
+
+    /*
+     * Restores the invariants of the (fresh) node n after one of its sons changed and counts the rebalancing
+     * operations the same way AVLTree does: promotions/demotions until the height stops changing, plus one per
+     * rotation. After an insert a rotation always ends the rebalancing.
+     * Complexity: O(1)
+     */
+    private int fixUp(int n, int old_height, boolean is_insert) {
+        int bf = height(left(n)) - height(right(n));
+        if (Math.abs(bf) == 2) {
+            n = rebalance(n, bf);
+            if (rebalancing) oper_count++;
+            if (is_insert) rebalancing = false;
+            return n;
+        }
+        updateNode(n);
+        if (rebalancing) {
+            if (height(n) != old_height) oper_count++;
+            else rebalancing = false;
+        }
+        return n;
+    }
+
+    // Single or double rotation at n, returning the new root of the subtree.
+    // Complexity: O(1)
+    private int rebalance(int n, int bf) {
+        if (bf == 2) {
+            int a = left(n);
+            if (height(left(a)) - height(right(a)) == -1) setLeft(n, leftRotation(fresh(a)));
+            return rightRotation(n);
+        }
+        int a = right(n);
+        if (height(left(a)) - height(right(a)) == 1) setRight(n, rightRotation(fresh(a)));
+        return leftRotation(n);
+    }
+
+    /*
+     * Rotates the right son of the fresh node pivot up to its place and returns it.
+     * Complexity: O(1)
+     */
+    private int leftRotation(int pivot) {
+        int r = fresh(right(pivot));
+        setRight(pivot, left(r));
+        setLeft(r, pivot);
+        updateNode(pivot);
+        updateNode(r);
+        return r;
+    }
+
+    /*
+     * Rotates the left son of the fresh node pivot up to its place and returns it.
+     * Complexity: O(1)
+     */
+    private int rightRotation(int pivot) {
+        int l = fresh(left(pivot));
+        setLeft(pivot, right(l));
+        setRight(l, pivot);
+        updateNode(pivot);
+        updateNode(l);
+        return l;
+    }
+
+    // Returns node itself if it was created after the last commit, otherwise a private copy of it.
+    // Complexity: O(1)
+    private int fresh(int node) {
+        if (node >= committed_nodes) return node;
+        int copy = allocNode();
+        writeNode(copy, key(node), left(node), right(node), trues(node), height(node), value(node));
+        return copy;
+    }
+
+    // Complexity: O(1)
+    private void updateNode(int n) {
+        int l = left(n);
+        int r = right(n);
+        MappedByteBuffer seg = segment(n);
+        int off = offset(n);
+        seg.put(off + HEIGHT, (byte) (Math.max(height(l), height(r)) + 1));
+        seg.putInt(off + TRUES, trues(l) + trues(r) + (value(n) ? 1 : 0));
+    }
+
+    // Complexity: O(log(n))
+    private void updateMinMax() {
+        min_node = root;
+        max_node = root;
+        if (root == NIL) return;
+        while (left(min_node) != NIL) min_node = left(min_node);
+        while (right(max_node) != NIL) max_node = right(max_node);
+    }
+
+    /**
+     * public void commit()
+     * <p>
+     * Makes every insert and delete since the previous commit durable: forces the new node records to disk,
+     * then flips the header to the new root.
+     * Complexity: O(records written since the last commit)
+     */
+    public void commit() throws IOException {
+        for (int s = committed_nodes >>> SEGMENT_SHIFT; s < segments.size(); s++) segments.get(s).force();
+        epoch++;
+        int slot = (int) (epoch & 1) * SLOT_BYTES;
+        header.putInt(slot, MAGIC);
+        header.putInt(slot + 4, FORMAT_VERSION);
+        header.putLong(slot + 8, epoch);
+        header.putInt(slot + 16, root);
+        header.putInt(slot + 20, size);
+        header.putInt(slot + 24, min_node);
+        header.putInt(slot + 28, max_node);
+        header.putInt(slot + 32, node_count);
+        header.putLong(slot + 36, checksum(slot));
+        header.force();
+        committed_nodes = node_count;
+    }
+
+    // Loads the newest valid header slot. Returns false if there is none.
+    private boolean readHeader() throws IOException {
+        int best = -1;
+        long best_epoch = -1;
+        for (int slot = 0; slot <= SLOT_BYTES; slot += SLOT_BYTES) {
+            if (header.getInt(slot) != MAGIC || header.getInt(slot + 4) != FORMAT_VERSION) continue;
+            if (header.getLong(slot + 36) != checksum(slot)) continue;
+            long e = header.getLong(slot + 8);
+            if (e > best_epoch) {
+                best_epoch = e;
+                best = slot;
+            }
+        }
+        if (best < 0) return false;
+        epoch = best_epoch;
+        root = header.getInt(best + 16);
+        size = header.getInt(best + 20);
+        min_node = header.getInt(best + 24);
+        max_node = header.getInt(best + 28);
+        node_count = header.getInt(best + 32);
+        committed_nodes = node_count;
+        ensureCapacity(node_count);
+        return true;
+    }
+
+    private long checksum(int slot) {
+        CRC32 crc = new CRC32();
+        for (int i = 0; i < 36; i++) crc.update(header.get(slot + i));
+        return crc.getValue();
+    }
+
+    /**
+     * public void close()
+     * <p>
+     * Commits pending changes and closes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        if (!channel.isOpen()) return;
+        commit();
+        channel.close();
+    }
+
+    // Takes the next record at the end of the file, mapping a new segment if needed.
+    // Complexity: O(1) amortized
+    private int allocNode() {
+        if (node_count == Integer.MAX_VALUE) throw new IllegalStateException("node file is full");
+        int node = node_count++;
+        try {
+            ensureCapacity(node_count);
+        } catch (IOException e) {
+            node_count--;
+            throw new java.io.UncheckedIOException(e);
+        }
+        return node;
+    }
+
+    private void ensureCapacity(int nodes) throws IOException {
+        while ((long) segments.size() << SEGMENT_SHIFT < nodes) {
+            long position = HEADER_BYTES + segments.size() * SEGMENT_BYTES;
+            MappedByteBuffer seg = channel.map(FileChannel.MapMode.READ_WRITE, position, SEGMENT_BYTES);
+            seg.order(ByteOrder.LITTLE_ENDIAN);
+            segments.add(seg);
+        }
+    }
+
+    private MappedByteBuffer segment(int node) {
+        return segments.get(node >>> SEGMENT_SHIFT);
+    }
+
+    private static int offset(int node) {
+        return (node & SEGMENT_MASK) * NODE_BYTES;
+    }
+
+    private void writeNode(int n, int key, int left, int right, int trues, int height, boolean value) {
+        MappedByteBuffer seg = segment(n);
+        int off = offset(n);
+        seg.putInt(off + KEY, key);
+        seg.putInt(off + LEFT, left);
+        seg.putInt(off + RIGHT, right);
+        seg.putInt(off + TRUES, trues);
+        seg.put(off + HEIGHT, (byte) height);
+        seg.put(off + VALUE, (byte) (value ? 1 : 0));
+    }
+
+    private int key(int n) { return segment(n).getInt(offset(n) + KEY); }
+
+    private int left(int n) { return segment(n).getInt(offset(n) + LEFT); }
+
+    private int right(int n) { return segment(n).getInt(offset(n) + RIGHT); }
+
+    private int trues(int n) { return segment(n).getInt(offset(n) + TRUES); }
+
+    private int height(int n) { return segment(n).get(offset(n) + HEIGHT); }
+
+    private boolean value(int n) { return segment(n).get(offset(n) + VALUE) != 0; }
+
+    private void setKey(int n, int key) { segment(n).putInt(offset(n) + KEY, key); }
+
+    private void setValue(int n, boolean value) { segment(n).put(offset(n) + VALUE, (byte) (value ? 1 : 0)); }
+
+    private void setLeft(int n, int node) { segment(n).putInt(offset(n) + LEFT, node); }
+
+    private void setRight(int n, int node) { segment(n).putInt(offset(n) + RIGHT, node); }
+
+    /**
+     * public Boolean min()
+     * <p>
+     * Returns the info of the item with the smallest key in the tree,
+     * or null if the tree is empty
+     */
+    // Complexity: O(1)
+    public Boolean min() {
+        return (empty()) ? null : Boolean.valueOf(value(min_node));
+    }
+
+    /**
+     * public Boolean max()
+     * <p>
+     * Returns the info of the item with the largest key in the tree,
+     * or null if the tree is empty
+     */
+    // Complexity: O(1)
+    public Boolean max() {
+        return (empty()) ? null : Boolean.valueOf(value(max_node));
+    }
+
+    /**
+     * public int[] keysToArray()
+     * <p>
+     * Returns a sorted array which contains all keys in the tree,
+     * or an empty array if the tree is empty.
+     */
+    // Complexity: O(n)
+    public int[] keysToArray() {
+        int[] arr = new int[size];
+        int[] stack = new int[height(root) + 2];
+        int depth = 0;
+        int index = 0;
+        int curr = root;
+        while (curr != NIL || depth > 0) {
+            while (curr != NIL) {
+                stack[depth++] = curr;
+                curr = left(curr);
+            }
+            curr = stack[--depth];
+            arr[index++] = key(curr);
+            curr = right(curr);
+        }
+        return arr;
+    }
+
+    /**
+     * public boolean[] infoToArray()
+     * <p>
+     * Returns an array which contains all info in the tree,
+     * sorted by their respective keys,
+     * or an empty array if the tree is empty.
+     */
+    // Complexity: O(n)
+    public boolean[] infoToArray() {
+        boolean[] arr = new boolean[size];
+        int[] stack = new int[height(root) + 2];
+        int depth = 0;
+        int index = 0;
+        int curr = root;
+        while (curr != NIL || depth > 0) {
+            while (curr != NIL) {
+                stack[depth++] = curr;
+                curr = left(curr);
+            }
+            curr = stack[--depth];
+            arr[index++] = value(curr);
+            curr = right(curr);
+        }
+        return arr;
+    }
+
+    /**
+     * public int size()
+     * <p>
+     * Returns the number of nodes in the tree.
+     */
+    // Complexity: O(1)
+    public int size() { return this.size; }
+
+    /**
+     * public boolean prefixXor(int k)
+     *
+     * Given an argument k which is a key in the tree, calculate the xor of the values of nodes whose keys are
+     * smaller or equal to k.
+     *
+     * precondition: this.search(k) != null
+     */
+    // Complexity: O(log(n))
+    public boolean prefixXor(int k) {
+        int true_count = 0;
+        int curr = root;
+        while (curr != NIL) {
+            int key = key(curr);
+            if (key <= k) {
+                true_count += trues(curr) - trues(right(curr));
+                if (key == k) break;
+                curr = right(curr);
+            }
+            else curr = left(curr);
+        }
+        return (true_count & 1) != 0;
+    }
+}
@@ -0,0 +1,363 @@
+package avltree;
+
+/**
+ * public class PersistentAVLTree
+ * <p>
+ * This class represents an AVLTree with integer keys and boolean values built from immutable nodes, so that a
+ * consistent view of the tree can be taken in O(1) with snapshot().
+ * <p>
+ * Nodes have no parent pointers and are never modified: insert and delete copy the O(log(n)) nodes on the path
+ * they change (path copying) and rotations build new nodes from the old subtrees. A snapshot shares every node
+ * with the tree it was taken from; a node is reclaimed by the garbage collector once neither the tree nor any
+ * snapshot reaches it.
+ * <p>
+ * A snapshot is read-only: insert and delete on it throw UnsupportedOperationException.
+ * <p>
+ * The state of the tree (root, size, min and max) is one immutable Version, which every write replaces through
+ * a volatile field. A snapshot holds its Version in a final field, so it can be handed to any other thread
+ * without synchronization and is never seen torn. Writes must come from one thread at a time, but snapshot()
+ * and every read may be called from any thread and see the last Version a write published.
+ */
+public class PersistentAVLTree implements IntBooleanTree {
+
+    private static final Version EMPTY = new Version(null, 0);
+
+    private volatile Version version;
+    private final boolean read_only;
+
+    // State of the recursive insert/delete
+    private int oper_count;
+    private boolean rebalancing;
+    private Node removed;
+
+    /**
+     * This constructor creates an empty PersistentAVLTree.
+     */
+    public PersistentAVLTree() {
+        this.version = EMPTY;
+        this.read_only = false;
+    }
+
+    private PersistentAVLTree(Version version) {
+        this.version = version;
+        this.read_only = true;
+    }
+
+    /**
+     * public PersistentAVLTree snapshot()
+     * <p>
+     * Returns a read-only view of the tree as it is now. Later writes to this tree do not affect it.
+     * May be called from any thread, and the snapshot may be passed to any thread.
+     * Complexity: O(1)
+     */
+    public PersistentAVLTree snapshot() {
+        if (read_only) return this;
+        return new PersistentAVLTree(version);
+    }
+
+    /**
+     * public boolean empty()
+     * <p>
+     * returns true if and only if the tree is empty
+     */
+    // Complexity: O(1)
+    public boolean empty() {
+        return version.root == null;
+    }
+
+    /**
+     * public Boolean search(int k)
+     * <p>
+     * returns the info of an item with key k if it exists in the tree
+     * otherwise, returns null
+     */
+    // Complexity: O(log(n))
+    public Boolean search(int k) {
+        Node curr = version.root;
+        while (curr != null) {
+            if (curr.key == k) return curr.value;
+            curr = (curr.key > k) ? curr.left : curr.right;
+        }
+        return null;
+    }
+
+    /**
+     * public int insert(int k, boolean i)
+     * <p>
+     * inserts an item with key k and info i to the AVL tree.
+     * returns the number of nodes which require rebalancing operations (i.e. promotions or rotations).
+     * This always includes the newly-created node.
+     * returns -1 if an item with key k already exists in the tree.
+     */
+    // Complexity: O(log(n)) time and new nodes
+    public int insert(int k, boolean i) {
+        checkWritable();
+        if (search(k) != null) return -1;
+        oper_count = 1;
+        rebalancing = true;
+        Version old = version;
+        version = new Version(insertRec(old.root, k, i), old.size + 1);
+        return oper_count;
+    }
+
+    private Node insertRec(Node node, int k, boolean i) {
+        if (node == null) return new Node(k, i, null, null);
+        if (node.key > k) return fixUp(node, node.key, node.value, insertRec(node.left, k, i), node.right, true);
+        return fixUp(node, node.key, node.value, node.left, insertRec(node.right, k, i), true);
+    }
+
+    /**
+     * public int delete(int k)
+     * <p>
+     * deletes an item with key k from the binary tree, if it is there;
+     * returns the number of nodes which required rebalancing operations (i.e. demotions or rotations).
+     * returns -1 if an item with key k was not found in the tree.
+     */
+    // Complexity: O(log(n)) time and new nodes
+    public int delete(int k) {
+        checkWritable();
+        if (search(k) == null) return -1;
+        oper_count = 0;
+        rebalancing = true;
+        Version old = version;
+        version = new Version(deleteRec(old.root, k), old.size - 1);
+        return oper_count;
+    }
+
+    private Node deleteRec(Node node, int k) {
+        if (node.key > k) return fixUp(node, node.key, node.value, deleteRec(node.left, k), node.right, false);
+        if (node.key < k) return fixUp(node, node.key, node.value, node.left, deleteRec(node.right, k), false);
+        if (node.left == null) return node.right;
+        if (node.right == null) return node.left;
+        Node right = deleteMin(node.right); // the successor takes this node's place
+        return fixUp(node, removed.key, removed.value, node.left, right, false);
+    }
+
+    // Removes the minimum of the subtree and leaves it in removed.
+    private Node deleteMin(Node node) {
+        if (node.left == null) {
+            removed = node;
+            return node.right;
+        }
+        return fixUp(node, node.key, node.value, deleteMin(node.left), node.right, false);
+    }
+
+    /*
+     * Builds the replacement of old (key, value and the new sons) and rebalances it, counting the rebalancing
+     * operations the same way AVLTree does: promotions/demotions until the height stops changing, plus one per
+     * rotation. After an insert a rotation always ends the rebalancing.
+     * Complexity: O(1)
+     */
+    private Node fixUp(Node old, int key, boolean value, Node left, Node right, boolean is_insert) {
+        int bf = height(left) - height(right);
+        if (Math.abs(bf) == 2) {
+            if (rebalancing) oper_count++;
+            if (is_insert) rebalancing = false;
+            return rebalance(key, value, left, right, bf);
+        }
+        Node node = new Node(key, value, left, right);
+        if (rebalancing) {
+            if (node.height != old.height) oper_count++;
+            else rebalancing = false;
+        }
+        return node;
+    }
+
+    // Single or double rotation of a node with balance factor bf = +-2, returning the new subtree root.
+    // Complexity: O(1)
+    private static Node rebalance(int key, boolean value, Node left, Node right, int bf) {
+        if (bf == 2) {
+            if (height(left.left) - height(left.right) == -1) left = leftRotation(left);
+            return new Node(left.key, left.value, left.left, new Node(key, value, left.right, right));
+        }
+        if (height(right.left) - height(right.right) == 1) right = rightRotation(right);
+        return new Node(right.key, right.value, new Node(key, value, left, right.left), right.right);
+    }
+
+    /*
+     * Returns the subtree of pivot after rotating its right son up to its place.
+     * Complexity: O(1)
+     */
+    private static Node leftRotation(Node pivot) {
+        Node r = pivot.right;
+        return new Node(r.key, r.value, new Node(pivot.key, pivot.value, pivot.left, r.left), r.right);
+    }
+
+    /*
+     * Returns the subtree of pivot after rotating its left son up to its place.
+     * Complexity: O(1)
+     */
+    private static Node rightRotation(Node pivot) {
+        Node l = pivot.left;
+        return new Node(l.key, l.value, l.left, new Node(pivot.key, pivot.value, l.right, pivot.right));
+    }
+
+    private void checkWritable() {
+        if (read_only) throw new UnsupportedOperationException("snapshots are read-only");
+    }
+
+    private static int height(Node node) {
+        return (node == null) ? -1 : node.height;
+    }
+
+    private static int trues(Node node) {
+        return (node == null) ? 0 : node.trues_in_sub_tree;
+    }
+
+    /**
+     * public Boolean min()
+     * <p>
+     * Returns the info of the item with the smallest key in the tree,
+     * or null if the tree is empty
+     */
+    // Complexity: O(1)
+    public Boolean min() {
+        Node min_node = version.min_node;
+        return (min_node == null) ? null : min_node.value;
+    }
+
+    /**
+     * public Boolean max()
+     * <p>
+     * Returns the info of the item with the largest key in the tree,
+     * or null if the tree is empty
+     */
+    // Complexity: O(1)
+    public Boolean max() {
+        Node max_node = version.max_node;
+        return (max_node == null) ? null : max_node.value;
+    }
+
+    /**
+     * public int[] keysToArray()
+     * <p>
+     * Returns a sorted array which contains all keys in the tree,
+     * or an empty array if the tree is empty.
+     */
+    // Complexity: O(n)
+    public int[] keysToArray() {
+        Version v = version;
+        int[] arr = new int[v.size];
+        Node[] stack = new Node[height(v.root) + 2];
+        int depth = 0;
+        int index = 0;
+        Node curr = v.root;
+        while (curr != null || depth > 0) {
+            while (curr != null) {
+                stack[depth++] = curr;
+                curr = curr.left;
+            }
+            curr = stack[--depth];
+            arr[index++] = curr.key;
+            curr = curr.right;
+        }
+        return arr;
+    }
+
+    /**
+     * public boolean[] infoToArray()
+     * <p>
+     * Returns an array which contains all info in the tree,
+     * sorted by their respective keys,
+     * or an empty array if the tree is empty.
+     */
+    // Complexity: O(n)
+    public boolean[] infoToArray() {
+        Version v = version;
+        boolean[] arr = new boolean[v.size];
+        Node[] stack = new Node[height(v.root) + 2];
+        int depth = 0;
+        int index = 0;
+        Node curr = v.root;
+        while (curr != null || depth > 0) {
+            while (curr != null) {
+                stack[depth++] = curr;
+                curr = curr.left;
+            }
+            curr = stack[--depth];
+            arr[index++] = curr.value;
+            curr = curr.right;
+        }
+        return arr;
+    }
+
+    /**
+     * public int size()
+     * <p>
+     * Returns the number of nodes in the tree.
+     */
+    // Complexity: O(1)
+    public int size() { return this.version.size; }
+
+    /**
+     * public boolean prefixXor(int k)
+     *
+     * Given an argument k which is a key in the tree, calculate the xor of the values of nodes whose keys are
+     * smaller or equal to k.
+     *
+     * precondition: this.search(k) != null
+     */
+    // Complexity: O(log(n))
+    public boolean prefixXor(int k) {
+        int true_count = 0;
+        Node curr = version.root;
+        while (curr != null) {
+            if (curr.key <= k) {
+                true_count += curr.trues_in_sub_tree - trues(curr.right);
+                if (curr.key == k) break;
+                curr = curr.right;
+            }
+            else curr = curr.left;
+        }
+        return (true_count & 1) != 0;
+    }
+
+    /**
+     * private static final class Version
+     * <p>
+     * One immutable state of the tree. min_node and max_node are found when it is built.
+     */
+    private static final class Version {
+        final Node root;
+        final int size;
+        final Node min_node;
+        final Node max_node;
+
+        // Complexity: O(log(n))
+        Version(Node root, int size) {
+            Node min = root;
+            Node max = root;
+            if (root != null) {
+                while (min.left != null) min = min.left;
+                while (max.right != null) max = max.right;
+            }
+            this.root = root;
+            this.size = size;
+            this.min_node = min;
+            this.max_node = max;
+        }
+    }
+
+    /**
+     * private static final class Node
+     * <p>
+     * An immutable node. Height and trues_in_sub_tree are computed from the sons when the node is built.
+     */
+    private static final class Node {
+        final int key;
+        final boolean value;
+        final Node left;
+        final Node right;
+        final int height;
+        final int trues_in_sub_tree;
+
+        Node(int key, boolean value, Node left, Node right) {
+            this.key = key;
+            this.value = value;
+            this.left = left;
+            this.right = right;
+            this.height = Math.max(height(left), height(right)) + 1;
+            this.trues_in_sub_tree = trues(left) + trues(right) + (value ? 1 : 0);
+        }
+    }
+}
@@ -0,0 +1,344 @@
+package avltree;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * public class PipelinedAVLTree
+ * <p>
+ * This class represents a thread-safe AVL tree with integer keys and boolean values whose mutations are all
+ * applied by one owner thread, so the tree itself is never locked. insertAsync and deleteAsync put a command
+ * on a bounded queue and return a CompletableFuture of the result; the owner takes the commands in batches of
+ * up to MAX_BATCH, applies them in queue order to a PersistentAVLTree, publishes a snapshot of it and only then
+ * completes the batch's futures.
+ * <p>
+ * Reads (search, min, max, prefixXor, ...) never enter the queue: they run on the last published snapshot,
+ * which includes every mutation whose future has completed, so a caller always sees its own writes.
+ * <p>
+ * insert and delete are the blocking forms, and a full queue blocks the caller until the owner catches up.
+ * Both only wait on j.u.c. locks and futures, so they are cheap to call from many (virtual) threads.
+ * close() stops the owner after the commands already queued; later mutations throw IllegalStateException.
+ * If applying a batch throws an Error, the owner fails the batch and every queued command with an
+ * IllegalStateException caused by it, closes the tree and ends, rethrowing the Error; no caller is left waiting.
+ */
+public class PipelinedAVLTree implements IntBooleanTree, Closeable {
+
+    public static final int DEFAULT_CAPACITY = 1 << 12;
+    public static final int MAX_BATCH = 256;
+
+    private static final int INSERT = 0;
+    private static final int DELETE = 1;
+    private static final int STOP = 2;
+
+    private final BlockingQueue<Command> queue;
+    private final PersistentAVLTree tree; // owned by the owner thread
+    private volatile PersistentAVLTree published;
+    private final Thread owner;
+    private volatile boolean closed;
+    private final AtomicInteger submitting = new AtomicInteger(); // callers between the closed check and put
+
+    private static final class Command {
+        final int type;
+        final int key;
+        final boolean value;
+        final CompletableFuture<Integer> result = new CompletableFuture<>();
+        // set by the owner when it applies the command, handed to result once the batch is published
+        int outcome;
+        RuntimeException failure;
+
+        Command(int type, int key, boolean value) {
+            this.type = type;
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    /**
+     * public PipelinedAVLTree()
+     * <p>
+     * Creates an empty tree with a queue of DEFAULT_CAPACITY commands and starts its owner thread.
+     */
+    public PipelinedAVLTree() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * public PipelinedAVLTree(int capacity)
+     * <p>
+     * Creates an empty tree with a queue of capacity commands and starts its owner thread.
+     * throws IllegalArgumentException if capacity is not positive.
+     */
+    public PipelinedAVLTree(int capacity) {
+        this(capacity, new PersistentAVLTree());
+    }
+
+    // Creates a tree whose owner applies the commands to tree, which must be empty and not used elsewhere
+    PipelinedAVLTree(int capacity, PersistentAVLTree tree) {
+        if (capacity < 1) throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        this.tree = tree;
+        this.published = tree.snapshot();
+        queue = new ArrayBlockingQueue<>(capacity);
+        owner = new Thread(this::run, "avltree-pipeline");
+        owner.setDaemon(true);
+        owner.start();
+    }
+
+    /**
+     * public CompletableFuture&lt;Integer&gt; insertAsync(int k, boolean i)
+     * <p>
+     * Queues the insertion of an item with key k and info i. The future completes with what
+     * PersistentAVLTree.insert returned, -1 if an item with key k already existed.
+     * Blocks while the queue is full.
+     * throws IllegalStateException if the tree is closed.
+     */
+    // Complexity: O(1) for the caller, O(log(n)) for the owner
+    public CompletableFuture<Integer> insertAsync(int k, boolean i) {
+        return submit(new Command(INSERT, k, i));
+    }
+
+    /**
+     * public CompletableFuture&lt;Integer&gt; deleteAsync(int k)
+     * <p>
+     * Queues the deletion of the item with key k. The future completes with what PersistentAVLTree.delete
+     * returned, -1 if there was no item with key k.
+     * Blocks while the queue is full.
+     * throws IllegalStateException if the tree is closed.
+     */
+    // Complexity: O(1) for the caller, O(log(n)) for the owner
+    public CompletableFuture<Integer> deleteAsync(int k) {
+        return submit(new Command(DELETE, k, false));
+    }
+
+    /**
+     * public int insert(int k, boolean i)
+     * <p>
+     * inserts an item with key k and info i to the tree and waits until it is applied.
+     * returns the number of rebalancing operations (see PersistentAVLTree.insert).
+     * returns -1 if an item with key k already exists in the tree.
+     */
+    // Complexity: O(log(n)) plus the wait for the commands queued before it
+    public int insert(int k, boolean i) {
+        return insertAsync(k, i).join();
+    }
+
+    /**
+     * public int delete(int k)
+     * <p>
+     * deletes an item with key k from the tree if it exists and waits until it is applied.
+     * returns the number of rebalancing operations (see PersistentAVLTree.delete).
+     * returns -1 if an item with key k was not found in the tree.
+     */
+    // Complexity: O(log(n)) plus the wait for the commands queued before it
+    public int delete(int k) {
+        return deleteAsync(k).join();
+    }
+
+    /**
+     * public PersistentAVLTree snapshot()
+     * <p>
+     * Returns the last published version of the tree: every mutation whose future has completed, and maybe
+     * some later ones. It is read-only and does not change.
+     */
+    // Complexity: O(1)
+    public PersistentAVLTree snapshot() {
+        return published;
+    }
+
+    /**
+     * public boolean empty()
+     * <p>
+     * returns true if and only if the last published version is empty
+     */
+    // Complexity: O(1)
+    public boolean empty() {
+        return published.empty();
+    }
+
+    /**
+     * public Boolean search(int k)
+     * <p>
+     * returns the info of an item with key k if it exists in the last published version
+     * otherwise, returns null
+     * Never blocks.
+     */
+    // Complexity: O(log(n))
+    public Boolean search(int k) {
+        return published.search(k);
+    }
+
+    /**
+     * public Boolean min()
+     * <p>
+     * Returns the info of the item with the smallest key in the last published version,
+     * or null if it is empty
+     */
+    // Complexity: O(1)
+    public Boolean min() {
+        return published.min();
+    }
+
+    /**
+     * public Boolean max()
+     * <p>
+     * Returns the info of the item with the largest key in the last published version,
+     * or null if it is empty
+     */
+    // Complexity: O(1)
+    public Boolean max() {
+        return published.max();
+    }
+
+    /**
+     * public int[] keysToArray()
+     * <p>
+     * Returns a sorted array which contains all keys in the last published version.
+     */
+    // Complexity: O(n)
+    public int[] keysToArray() {
+        return published.keysToArray();
+    }
+
+    /**
+     * public boolean[] infoToArray()
+     * <p>
+     * Returns an array which contains all info in the last published version, sorted by their respective keys.
+     */
+    // Complexity: O(n)
+    public boolean[] infoToArray() {
+        return published.infoToArray();
+    }
+
+    /**
+     * public int size()
+     * <p>
+     * Returns the number of items in the last published version.
+     */
+    // Complexity: O(1)
+    public int size() {
+        return published.size();
+    }
+
+    /**
+     * public boolean prefixXor(int k)
+     * <p>
+     * Given an argument k which is a key in the last published version, calculate the xor of the values of the
+     * items whose keys are smaller or equal to k.
+     * <p>
+     * precondition: this.search(k) != null
+     */
+    // Complexity: O(log(n))
+    public boolean prefixXor(int k) {
+        return published.prefixXor(k);
+    }
+
+    /**
+     * public void close()
+     * <p>
+     * Lets the owner thread apply the commands already queued, then stops it and waits for it to end.
+     * Mutations after close throw IllegalStateException; reads keep working on the last published version.
+     */
+    public void close() {
+        if (closed) return;
+        closed = true;
+        try {
+            queue.put(new Command(STOP, 0, false));
+            owner.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private CompletableFuture<Integer> submit(Command command) {
+        submitting.incrementAndGet();
+        try {
+            if (closed) throw closedException();
+            queue.put(command);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            command.result.completeExceptionally(e);
+        } finally {
+            submitting.decrementAndGet();
+        }
+        return command.result;
+    }
+
+    /*
+     * The owner thread: applies batches until it meets STOP, then fails every command that still gets in (from
+     * callers that checked closed just before close set it) and ends. An Error leaves the tree in an unknown
+     * state, so the commands of the batch are failed even if they were applied, and the tree is closed.
+     * */
+    private void run() {
+        List<Command> batch = new ArrayList<>(MAX_BATCH);
+        try {
+            applyUntilStopped(batch);
+        } catch (Error e) {
+            closed = true;
+            for (Command command : batch) command.result.completeExceptionally(ownerFailure(e));
+            failQueued(e);
+            throw e;
+        }
+        failQueued(null);
+    }
+
+    // Applies, publishes and completes batches of commands until it meets STOP. batch holds the current batch.
+    private void applyUntilStopped(List<Command> batch) {
+        boolean stopping = false;
+        while (!stopping) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                continue; // only close() ends the owner
+            }
+            queue.drainTo(batch, MAX_BATCH - 1);
+            int applied = 0;
+            for (Command command : batch) {
+                if (command.type == STOP) {
+                    stopping = true;
+                    break;
+                }
+                applied++;
+                try {
+                    command.outcome = (command.type == INSERT) ? tree.insert(command.key, command.value)
+                                                               : tree.delete(command.key);
+                } catch (RuntimeException e) {
+                    command.failure = e;
+                }
+            }
+            published = tree.snapshot();
+            for (int i = 0; i < batch.size(); i++) {
+                Command command = batch.get(i);
+                if (i >= applied) {
+                    if (command.type != STOP) command.result.completeExceptionally(closedException());
+                }
+                else if (command.failure != null) command.result.completeExceptionally(command.failure);
+                else command.result.complete(command.outcome);
+            }
+            batch.clear();
+        }
+    }
+
+    // Fails the commands queued after closed was set, until no caller is still between its closed check and put.
+    // error is what stopped the owner, or null after close().
+    private void failQueued(Error error) {
+        while (submitting.get() > 0 || !queue.isEmpty()) {
+            Command command = queue.poll();
+            if (command != null) {
+                command.result.completeExceptionally((error == null) ? closedException() : ownerFailure(error));
+            }
+            else Thread.onSpinWait();
+        }
+    }
+
+    private static IllegalStateException ownerFailure(Error error) {
+        return new IllegalStateException("the tree's owner thread failed", error);
+    }
+
+    private static IllegalStateException closedException() {
+        return new IllegalStateException("the tree is closed");
+    }
+}
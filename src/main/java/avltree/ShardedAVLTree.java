@@ -0,0 +1,370 @@
+package avltree;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * public class ShardedAVLTree
+ * <p>
+ * This class represents a thread-safe ordered map with integer keys and boolean values, partitioned by key
+ * range into shards. Every shard is an independent AVLTree guarded by its own StampedLock, so writers to
+ * different ranges never touch the same lock or the same root, and their rotations never meet.
+ * <p>
+ * The shards start as equal slices of the int range. Each shard counts the writes it takes; once a shard has
+ * taken REBALANCE_PERIOD writes, the writer that hit the count compares it with its less loaded neighbour, and
+ * if the shard took more than twice as many, half of its keys (the half next to the neighbour) move over,
+ * together with the boundary between them. A move is one AVLTree.split and one AVLTree.join, so O(log(n)).
+ * <p>
+ * search, insert and delete lock one shard. size, min, max, keysToArray, infoToArray and prefixXor read-lock
+ * the shards they need in ascending order and see a consistent snapshot; they combine the per-shard results
+ * (prefixXor uses the trues count at the root of each shard below k's) in O(shards + log(n)).
+ */
+public class ShardedAVLTree implements IntBooleanTree {
+
+    public static final int REBALANCE_PERIOD = 1 << 14;
+
+    private final Shard[] shards;
+    private volatile int[] lows; // lows[i] is the smallest key of shards[i]; lows[0] is Integer.MIN_VALUE
+    private final AtomicBoolean rebalancing = new AtomicBoolean();
+
+    private static final class Shard {
+        final StampedLock lock = new StampedLock();
+        // guarded by lock
+        int lo;
+        int hi;
+        AVLTree tree = new AVLTree();
+        int writes; // since this shard's load was last compared
+    }
+
+    /**
+     * public ShardedAVLTree()
+     * <p>
+     * Creates an empty tree with four shards per available processor.
+     */
+    public ShardedAVLTree() {
+        this(4 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * public ShardedAVLTree(int shard_count)
+     * <p>
+     * Creates an empty tree with shard_count shards.
+     * throws IllegalArgumentException if shard_count is not positive.
+     */
+    public ShardedAVLTree(int shard_count) {
+        if (shard_count < 1) throw new IllegalArgumentException("shard_count must be positive: " + shard_count);
+        shards = new Shard[shard_count];
+        int[] bounds = new int[shard_count];
+        for (int i = 0; i < shard_count; i++) {
+            bounds[i] = (int) (Integer.MIN_VALUE + (((long) i << 32) / shard_count));
+            shards[i] = new Shard();
+            shards[i].lo = bounds[i];
+        }
+        for (int i = 0; i < shard_count - 1; i++) shards[i].hi = bounds[i + 1] - 1;
+        shards[shard_count - 1].hi = Integer.MAX_VALUE;
+        lows = bounds;
+    }
+
+    /**
+     * public boolean empty()
+     * <p>
+     * returns true if and only if the tree is empty
+     */
+    // Complexity: O(shards)
+    public boolean empty() {
+        return size() == 0;
+    }
+
+    /**
+     * public Boolean search(int k)
+     * <p>
+     * returns the info of an item with key k if it exists in the tree
+     * otherwise, returns null
+     */
+    // Complexity: O(log(shards) + log(n))
+    public Boolean search(int k) {
+        while (true) {
+            Shard shard = shards[route(k)];
+            long stamp = shard.lock.readLock();
+            try {
+                if (shard.lo <= k && k <= shard.hi) return shard.tree.search(k);
+            } finally {
+                shard.lock.unlockRead(stamp);
+            }
+        }
+    }
+
+    /**
+     * public int insert(int k, boolean i)
+     * <p>
+     * inserts an item with key k and info i to the tree.
+     * returns the number of rebalancing operations in k's shard (see AVLTree.insert).
+     * returns -1 if an item with key k already exists in the tree.
+     */
+    // Complexity: O(log(shards) + log(n))
+    public int insert(int k, boolean i) {
+        while (true) {
+            int index = route(k);
+            Shard shard = shards[index];
+            int result;
+            boolean due;
+            long stamp = shard.lock.writeLock();
+            try {
+                if (k < shard.lo || k > shard.hi) continue; // the boundary moved, route again
+                result = shard.tree.insert(k, i);
+                due = ++shard.writes >= REBALANCE_PERIOD;
+            } finally {
+                shard.lock.unlockWrite(stamp);
+            }
+            if (due) rebalance(index);
+            return result;
+        }
+    }
+
+    /**
+     * public int delete(int k)
+     * <p>
+     * deletes an item with key k from the tree if it exists.
+     * returns the number of rebalancing operations in k's shard (see AVLTree.delete).
+     * returns -1 if an item with key k was not found in the tree.
+     */
+    // Complexity: O(log(shards) + log(n))
+    public int delete(int k) {
+        while (true) {
+            int index = route(k);
+            Shard shard = shards[index];
+            int result;
+            boolean due;
+            long stamp = shard.lock.writeLock();
+            try {
+                if (k < shard.lo || k > shard.hi) continue;
+                result = shard.tree.delete(k);
+                if (result == -1) return -1; // nothing changed, not a write
+                due = ++shard.writes >= REBALANCE_PERIOD;
+            } finally {
+                shard.lock.unlockWrite(stamp);
+            }
+            if (due) rebalance(index);
+            return result;
+        }
+    }
+
+    /**
+     * public Boolean min()
+     * <p>
+     * Returns the info of the item with the smallest key in the tree,
+     * or null if the tree is empty
+     */
+    // Complexity: O(shards)
+    public Boolean min() {
+        long[] stamps = readLockAll(shards.length);
+        try {
+            for (Shard shard : shards) if (!shard.tree.empty()) return shard.tree.min();
+            return null;
+        } finally {
+            unlockAll(stamps);
+        }
+    }
+
+    /**
+     * public Boolean max()
+     * <p>
+     * Returns the info of the item with the largest key in the tree,
+     * or null if the tree is empty
+     */
+    // Complexity: O(shards)
+    public Boolean max() {
+        long[] stamps = readLockAll(shards.length);
+        try {
+            for (int i = shards.length - 1; i >= 0; i--) if (!shards[i].tree.empty()) return shards[i].tree.max();
+            return null;
+        } finally {
+            unlockAll(stamps);
+        }
+    }
+
+    /**
+     * public int[] keysToArray()
+     * <p>
+     * Returns a sorted array which contains all keys in the tree,
+     * or an empty array if the tree is empty.
+     */
+    // Complexity: O(shards + n)
+    public int[] keysToArray() {
+        long[] stamps = readLockAll(shards.length);
+        try {
+            int[] arr = new int[countItems()];
+            int at = 0;
+            for (Shard shard : shards) {
+                int[] part = shard.tree.keysToArray();
+                System.arraycopy(part, 0, arr, at, part.length);
+                at += part.length;
+            }
+            return arr;
+        } finally {
+            unlockAll(stamps);
+        }
+    }
+
+    /**
+     * public boolean[] infoToArray()
+     * <p>
+     * Returns an array which contains all info in the tree,
+     * sorted by their respective keys,
+     * or an empty array if the tree is empty.
+     */
+    // Complexity: O(shards + n)
+    public boolean[] infoToArray() {
+        long[] stamps = readLockAll(shards.length);
+        try {
+            boolean[] arr = new boolean[countItems()];
+            int at = 0;
+            for (Shard shard : shards) {
+                boolean[] part = shard.tree.infoToArray();
+                System.arraycopy(part, 0, arr, at, part.length);
+                at += part.length;
+            }
+            return arr;
+        } finally {
+            unlockAll(stamps);
+        }
+    }
+
+    /**
+     * public int size()
+     * <p>
+     * Returns the number of items in the tree.
+     */
+    // Complexity: O(shards)
+    public int size() {
+        long[] stamps = readLockAll(shards.length);
+        try {
+            return countItems();
+        } finally {
+            unlockAll(stamps);
+        }
+    }
+
+    /**
+     * public boolean prefixXor(int k)
+     * <p>
+     * Given an argument k which is a key in the tree, calculate the xor of the values of the items whose keys
+     * are smaller or equal to k.
+     * <p>
+     * precondition: this.search(k) != null
+     */
+    // Complexity: O(shards + log(n))
+    public boolean prefixXor(int k) {
+        while (true) {
+            int index = route(k);
+            long[] stamps = readLockAll(index + 1);
+            try {
+                Shard shard = shards[index];
+                if (k < shard.lo || k > shard.hi) continue;
+                int trues = 0;
+                for (int i = 0; i < index; i++) trues += shards[i].tree.getRoot().getTrues_in_sub_tree();
+                return ((trues & 1) == 1) != shard.tree.prefixXor(k);
+            } finally {
+                unlockAll(stamps);
+            }
+        }
+    }
+
+    /**
+     * public int[] shardBounds()
+     * <p>
+     * Returns the smallest key of every shard's range, in order. The first is always Integer.MIN_VALUE.
+     */
+    // Complexity: O(shards)
+    public int[] shardBounds() {
+        return lows.clone();
+    }
+
+    // Returns the index of the shard whose range held k when lows was last published.
+    // Complexity: O(log(shards))
+    private int route(int k) {
+        int index = Arrays.binarySearch(lows, k);
+        return (index >= 0) ? index : -index - 2;
+    }
+
+    // Read-locks shards[0..count) in ascending order, the order every multi-shard lock follows
+    // Complexity: O(count)
+    private long[] readLockAll(int count) {
+        long[] stamps = new long[count];
+        for (int i = 0; i < count; i++) stamps[i] = shards[i].lock.readLock();
+        return stamps;
+    }
+
+    private void unlockAll(long[] stamps) {
+        for (int i = stamps.length - 1; i >= 0; i--) shards[i].lock.unlockRead(stamps[i]);
+    }
+
+    // Sum of the shard sizes; the caller holds the shard locks.
+    private int countItems() {
+        int count = 0;
+        for (Shard shard : shards) count += shard.tree.size();
+        return count;
+    }
+
+    /*
+     * Compares the writes taken by shards[index] with those of its less loaded neighbour and, if it took more
+     * than twice as many, moves the half of its keys next to the neighbour over. Only one rebalance runs at a
+     * time; a writer that finds one running leaves it to the next write.
+     * Complexity: O(log(n))
+     * */
+    private void rebalance(int index) {
+        if (shards.length == 1 || !rebalancing.compareAndSet(false, true)) return;
+        try {
+            // a racy read of the counters, only to pick the side; the lock order needs it before locking
+            int neighbour;
+            if (index == 0) neighbour = 1;
+            else if (index == shards.length - 1) neighbour = index - 1;
+            else neighbour = (shards[index + 1].writes < shards[index - 1].writes) ? index + 1 : index - 1;
+            int lower = Math.min(index, neighbour);
+            Shard left = shards[lower];
+            Shard right = shards[lower + 1];
+            long left_stamp = left.lock.writeLock();
+            long right_stamp = right.lock.writeLock();
+            try {
+                Shard hot = (lower == index) ? left : right;
+                Shard cold = (hot == left) ? right : left;
+                if (hot.writes > 2 * cold.writes && hot.tree.size() >= 2) {
+                    int middle = hot.tree.select(hot.tree.size() / 2 + 1);
+                    AVLTree[] parts = hot.tree.split(middle);
+                    if (hot == left) { // parts[1] goes right
+                        left.tree = parts[0];
+                        right.tree = concat(parts[1], right.tree);
+                    }
+                    else { // parts[0] goes left
+                        left.tree = concat(left.tree, parts[0]);
+                        right.tree = parts[1];
+                    }
+                    left.hi = middle - 1;
+                    right.lo = middle;
+                    int[] bounds = lows.clone();
+                    bounds[lower + 1] = middle;
+                    lows = bounds;
+                }
+                left.writes = 0;
+                right.writes = 0;
+            } finally {
+                right.lock.unlockWrite(right_stamp);
+                left.lock.unlockWrite(left_stamp);
+            }
+        } finally {
+            rebalancing.set(false);
+        }
+    }
+
+    // Returns a tree with the items of t1 and then t2, whose keys are all larger. Both are left empty.
+    // Complexity: O(log(n))
+    private static AVLTree concat(AVLTree t1, AVLTree t2) {
+        if (t1.empty()) return t2;
+        if (t2.empty()) return t1;
+        int key = t2.select(1);
+        boolean value = t2.search(key);
+        t2.delete(key);
+        return AVLTree.join(t1, key, value, t2);
+    }
+}
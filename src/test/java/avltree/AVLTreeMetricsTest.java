@@ -0,0 +1,35 @@
+package avltree;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class AVLTreeMetricsTest {
+
+    // join rebalances through rebalanceUp, not through insert's rotations, and must count its rotations too.
+    // Keys 1, 2: 50 takes 2 as its left son under 1, and 2 turns up twice (a double rotation).
+    // Keys 1..5 (2 over 1 and 4, 4 over 3 and 5): 50 takes 5 under 4, and 4 turns up over 2 once (a single one).
+    @Test
+    void joinRecordsItsRotations() {
+        AVLTreeMetrics metrics = joinOnTheRight(2);
+        assertEquals(0, metrics.getSingleRotations());
+        assertEquals(1, metrics.getDoubleRotations());
+
+        metrics = joinOnTheRight(5);
+        assertEquals(1, metrics.getSingleRotations());
+        assertEquals(0, metrics.getDoubleRotations());
+    }
+
+    // Joins the keys 1..n, 50 and an empty tree, and returns the metrics the result was recorded to
+    private static AVLTreeMetrics joinOnTheRight(int n) {
+        AVLTree tree = new AVLTree();
+        for (int k = 1; k <= n; k++) tree.insert(k, true);
+        AVLTreeMetrics metrics = new AVLTreeMetrics();
+        tree.setMetrics(metrics);
+        AVLTree joined = AVLTree.join(tree, 50, true, new AVLTree());
+        assertSame(metrics, joined.getMetrics());
+        assertEquals(n + 1, joined.size());
+        return metrics;
+    }
+}
@@ -0,0 +1,147 @@
+package avltree;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * AVLTree with a search cache, against a TreeMap. Most searches go to a few hot keys, so the cache stays on and
+ * holds the nodes of exactly the keys that every mutation path (delete, deleteAll, deleteRange, split, join and
+ * the set operations) then moves or removes; no search may see an entry its mutation left behind.
+ */
+class AVLTreeSearchCacheTest {
+
+    private static final int KEYS = 2000;
+    private static final int HOT_KEYS = 48;
+
+    private final AVLTreeMetrics metrics = new AVLTreeMetrics();
+
+    @Test
+    void matchesTreeMapThroughEveryMutation() {
+        SplittableRandom random = new SplittableRandom(24);
+        AVLTree tree = cached(new AVLTree());
+        TreeMap<Integer, Boolean> map = new TreeMap<>();
+        for (int i = 0; i < 200_000; i++) {
+            int k = key(random);
+            int op = random.nextInt(100);
+            if (op < 60) {
+                assertEquals(map.get(k), tree.search(k), () -> "search(" + k + ")");
+            }
+            else if (op < 78) {
+                boolean v = random.nextBoolean();
+                assertEquals(map.containsKey(k), tree.insert(k, v) == -1, () -> "insert(" + k + ")");
+                map.putIfAbsent(k, v);
+            }
+            else if (op < 96) {
+                assertEquals(map.remove(k) == null, tree.delete(k) == -1, () -> "delete(" + k + ")");
+            }
+            else tree = mutateInBulk(tree, map, k, random);
+        }
+        check(map, tree);
+        assertTrue(metrics.getCacheHits() > 0, "the cache never hit, so nothing was tested");
+    }
+
+    // One of the mutations that move or remove many nodes at once. Returns the tree that now holds map.
+    private AVLTree mutateInBulk(AVLTree tree, TreeMap<Integer, Boolean> map, int k, SplittableRandom random) {
+        switch (random.nextInt(6)) {
+            case 0: {
+                int[] keys = new int[random.nextInt(32)];
+                boolean[] values = new boolean[keys.length];
+                for (int j = 0; j < keys.length; j++) {
+                    keys[j] = key(random);
+                    values[j] = random.nextBoolean();
+                    map.putIfAbsent(keys[j], values[j]);
+                }
+                tree.insertAll(keys, values);
+                return tree;
+            }
+            case 1: {
+                int[] keys = new int[random.nextInt(32)];
+                for (int j = 0; j < keys.length; j++) {
+                    keys[j] = key(random);
+                    map.remove(keys[j]);
+                }
+                tree.deleteAll(keys);
+                return tree;
+            }
+            case 2: {
+                int hi = k + random.nextInt(HOT_KEYS);
+                map.subMap(k, true, hi, true).clear();
+                tree.deleteRange(k, hi);
+                return tree;
+            }
+            case 3: { // split and put the halves back with a join, or with a union if k is taken
+                AVLTree[] parts = tree.split(k);
+                checkEmptied(tree);
+                AVLTree joined;
+                if (map.containsKey(k)) joined = AVLTree.union(parts[0], parts[1]);
+                else {
+                    boolean v = random.nextBoolean();
+                    map.put(k, v);
+                    joined = AVLTree.join(parts[0], k, v, parts[1]);
+                }
+                checkEmptied(parts[0]);
+                checkEmptied(parts[1]);
+                return cached(joined);
+            }
+            default: {
+                AVLTree other = new AVLTree();
+                TreeMap<Integer, Boolean> other_map = new TreeMap<>();
+                for (int j = random.nextInt(64); j > 0; j--) {
+                    int key = key(random);
+                    boolean v = random.nextBoolean();
+                    other.insert(key, v);
+                    other_map.putIfAbsent(key, v);
+                }
+                AVLTree result;
+                int which = random.nextInt(3);
+                if (which == 0) {
+                    other_map.forEach(map::putIfAbsent);
+                    result = AVLTree.union(tree, other);
+                }
+                else if (which == 1) {
+                    map.keySet().retainAll(other_map.keySet());
+                    result = AVLTree.intersection(tree, other);
+                }
+                else {
+                    map.keySet().removeAll(other_map.keySet());
+                    result = AVLTree.difference(tree, other);
+                }
+                checkEmptied(tree);
+                return cached(result);
+            }
+        }
+    }
+
+    private AVLTree cached(AVLTree tree) {
+        tree.setMetrics(metrics);
+        tree.setSearchCache(32);
+        return tree;
+    }
+
+    // Most keys are hot, the rest spread over KEYS
+    private static int key(SplittableRandom random) {
+        return (random.nextInt(4) > 0) ? random.nextInt(HOT_KEYS) : random.nextInt(KEYS);
+    }
+
+    // A tree whose nodes were moved away must not find them through its cache any more, and must work as a new tree
+    private static void checkEmptied(AVLTree tree) {
+        assertEquals(0, tree.size());
+        for (int k = 0; k < HOT_KEYS; k++) assertNull(tree.search(k), "search(" + k + ") on an emptied tree");
+        tree.insert(1, true);
+        assertEquals(true, tree.search(1));
+        assertNull(tree.search(0));
+    }
+
+    private static void check(TreeMap<Integer, Boolean> map, AVLTree tree) {
+        assertEquals(map.size(), tree.size());
+        assertArrayEquals(map.keySet().stream().mapToInt(Integer::intValue).toArray(), tree.keysToArray());
+        for (int k = 0; k < KEYS; k++) assertEquals(map.get(k), tree.search(k), "search(" + k + ")");
+    }
+}
@@ -0,0 +1,72 @@
+package avltree;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AVLTreeSnapshotTest {
+
+    @Test
+    void snapshotsWrittenBackToBackReadBackInTurn() throws IOException {
+        LongMonoid sum = LongMonoid.sumOfPayloads();
+        AVLTree[] trees = {randomTree(100_000, 1, null), new AVLTree(), randomTree(3, 2, null),
+                randomTree(20_000, 3, sum)};
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        for (AVLTree tree : trees) tree.writeTo(Channels.newChannel(bytes));
+        ReadableByteChannel in = Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray()));
+        for (int i = 0; i < 3; i++) assertSameItems(trees[i], AVLTree.readFrom(in));
+        AVLTree with_payloads = AVLTree.readFrom(in, sum);
+        assertSameItems(trees[3], with_payloads);
+        assertEquals(trees[3].rangeAggregate(Integer.MIN_VALUE, Integer.MAX_VALUE),
+                with_payloads.rangeAggregate(Integer.MIN_VALUE, Integer.MAX_VALUE));
+        assertThrows(EOFException.class, () -> AVLTree.readFrom(in));
+    }
+
+    // A channel that hands out a few bytes per read, so the reader has to come back for more many times
+    @Test
+    void readsFromAChannelThatTrickles() throws IOException {
+        AVLTree tree = randomTree(10_000, 4, null);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        tree.writeTo(Channels.newChannel(bytes));
+        tree.writeTo(Channels.newChannel(bytes));
+        InputStream trickle = new FilterInputStream(new ByteArrayInputStream(bytes.toByteArray())) {
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                return super.read(b, off, Math.min(len, 7));
+            }
+        };
+        ReadableByteChannel in = Channels.newChannel(trickle);
+        assertSameItems(tree, AVLTree.readFrom(in));
+        assertSameItems(tree, AVLTree.readFrom(in));
+        assertEquals(-1, trickle.read());
+    }
+
+    private static AVLTree randomTree(int n, long seed, LongMonoid monoid) {
+        AVLTree tree = new AVLTree(monoid);
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int i = 0; i < n; i++) {
+            int k = (i % 3 == 0) ? random.nextInt() : random.nextInt(4 * n);
+            if (monoid == null) tree.insert(k, random.nextBoolean());
+            else tree.insert(k, random.nextBoolean(), random.nextLong());
+        }
+        return tree;
+    }
+
+    private static void assertSameItems(AVLTree expected, AVLTree actual) {
+        assertEquals(expected.size(), actual.size());
+        assertArrayEquals(expected.keysToArray(), actual.keysToArray());
+        assertArrayEquals(expected.infoToArray(), actual.infoToArray());
+    }
+}
@@ -0,0 +1,475 @@
+package avltree;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * The property suite every AVL specialization is checked with: random inserts and deletes over key ranges
+ * from tiny (every delete hits, the tree keeps emptying) to wide, compared after every operation's result and
+ * at checkpoints against a TreeMap in the same order, with the height, balance, parent-link and size
+ * invariants of the tree checked at every checkpoint. Every specialization runs under each BalancePolicy;
+ * under WAVL the balance check is the rank rule instead (rank differences of one or two, leaves of rank 0).
+ * <p>
+ * LongLongAVLTree, IntObjectAVLTree, ComparatorAVLTree and BitsetAVLTree share BalancedTree; AVLTree (int keys,
+ * boolean values) has its own balancing and its own invariant checks (true counts, subtree sizes, in-order links).
+ */
+class BalancedTreeTest {
+
+    /** One specialization behind int keys and long values, in the key order of order(). */
+    interface Subject {
+        int insert(int k, long v);
+
+        int delete(int k);
+
+        Long search(int k);
+
+        List<Integer> keys();
+
+        List<Long> values();
+
+        int size();
+
+        // The value the tree can hold for v (AVLTree keeps one bit)
+        default long stored(long v) { return v; }
+
+        default Comparator<Integer> order() { return Comparator.naturalOrder(); }
+
+        void setBalancePolicy(BalancePolicy policy);
+
+        void rebuildBalanced();
+
+        void checkInvariants();
+    }
+
+    enum Specialization {
+        LONG_LONG {
+            Subject create() {
+                LongLongAVLTree tree = new LongLongAVLTree();
+                return new BalancedSubject(tree) {
+                    public int insert(int k, long v) { return tree.insert(k, v); }
+                    public int delete(int k) { return tree.delete(k); }
+                    public Long search(int k) { return tree.contains(k) ? tree.search(k, 0) : null; }
+                    public List<Integer> keys() {
+                        List<Integer> keys = new ArrayList<>();
+                        for (long k : tree.keysToArray()) keys.add((int) k);
+                        return keys;
+                    }
+                    public List<Long> values() {
+                        List<Long> values = new ArrayList<>();
+                        for (long v : tree.valuesToArray()) values.add(v);
+                        return values;
+                    }
+                };
+            }
+        },
+        INT_OBJECT {
+            Subject create() {
+                IntObjectAVLTree<Long> tree = new IntObjectAVLTree<>();
+                return new BalancedSubject(tree) {
+                    public int insert(int k, long v) { return tree.insert(k, v); }
+                    public int delete(int k) { return tree.delete(k); }
+                    public Long search(int k) { return tree.search(k); }
+                    public List<Integer> keys() {
+                        List<Integer> keys = new ArrayList<>();
+                        for (int k : tree.keysToArray()) keys.add(k);
+                        return keys;
+                    }
+                    public List<Long> values() { return tree.values(); }
+                };
+            }
+        },
+        /** Ordered by a reversing comparator, so the tree must not assume the natural order anywhere. */
+        COMPARATOR {
+            Subject create() {
+                ComparatorAVLTree<Integer, Long> tree = new ComparatorAVLTree<>(Comparator.reverseOrder());
+                return new BalancedSubject(tree) {
+                    public int insert(int k, long v) { return tree.insert(k, v); }
+                    public int delete(int k) { return tree.delete(k); }
+                    public Long search(int k) { return tree.search(k); }
+                    public List<Integer> keys() { return tree.keys(); }
+                    public List<Long> values() { return tree.values(); }
+                    public Comparator<Integer> order() { return Comparator.reverseOrder(); }
+                };
+            }
+        },
+        INT_BOOLEAN {
+            Subject create() {
+                return new AVLTreeSubject(new AVLTree());
+            }
+        },
+        /** The only subclass that keeps a subtree summary (update and augmented), over blocks of keys. */
+        BITSET {
+            Subject create() {
+                return new BitsetSubject(new BitsetAVLTree());
+            }
+        };
+
+        abstract Subject create();
+    }
+
+    static Stream<Arguments> specializationsAndPolicies() {
+        return Arrays.stream(Specialization.values())
+                .flatMap(s -> Arrays.stream(BalancePolicy.values()).map(p -> Arguments.of(s, p)));
+    }
+
+    @ParameterizedTest
+    @MethodSource("specializationsAndPolicies")
+    void matchesTreeMap(Specialization specialization, BalancePolicy policy) {
+        SplittableRandom random = new SplittableRandom(17);
+        for (int round = 0; round < 60; round++) {
+            Subject tree = specialization.create();
+            tree.setBalancePolicy(policy);
+            TreeMap<Integer, Long> map = new TreeMap<>(tree.order());
+            int range = 1 + random.nextInt((round < 20) ? 8 : 4000);
+            int ops = random.nextInt(8000);
+            for (int i = 0; i < ops; i++) {
+                int k = random.nextInt(range) - range / 2;
+                if (random.nextInt(3) > 0) {
+                    long v = tree.stored(random.nextLong());
+                    boolean present = map.containsKey(k);
+                    assertEquals(present, tree.insert(k, v) == -1, () -> "insert(" + k + ")");
+                    if (!present) map.put(k, v);
+                }
+                else {
+                    boolean present = map.remove(k) != null;
+                    assertEquals(present, tree.delete(k) != -1, () -> "delete(" + k + ")");
+                }
+                if (i % 401 == 0) check(map, tree);
+            }
+            check(map, tree);
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("specializationsAndPolicies")
+    void ascendingAndDescendingRuns(Specialization specialization, BalancePolicy policy) {
+        Subject tree = specialization.create();
+        tree.setBalancePolicy(policy);
+        TreeMap<Integer, Long> map = new TreeMap<>(tree.order());
+        for (int k = 0; k < 5000; k++) {
+            tree.insert(k, tree.stored(k));
+            map.put(k, tree.stored(k));
+        }
+        check(map, tree);
+        for (int k = 4999; k >= 0; k -= 2) {
+            assertTrue(tree.delete(k) >= 0);
+            map.remove(k);
+        }
+        check(map, tree);
+        for (int k = 0; k < 5000; k += 2) {
+            assertTrue(tree.delete(k) >= 0);
+            map.remove(k);
+        }
+        check(map, tree);
+        assertEquals(0, tree.size());
+    }
+
+    // Deletes leave a WAVL tree with 2,2 nodes; going back to AVL (or rebuilding) must give a strict AVL tree
+    @ParameterizedTest
+    @MethodSource("specializationsAndPolicies")
+    void rebuildsIntoTheOtherPolicy(Specialization specialization, BalancePolicy policy) {
+        Subject tree = specialization.create();
+        tree.setBalancePolicy(policy);
+        TreeMap<Integer, Long> map = new TreeMap<>(tree.order());
+        SplittableRandom random = new SplittableRandom(25);
+        for (int i = 0; i < 20_000; i++) {
+            int k = random.nextInt(5000);
+            if (i < 10_000 || random.nextInt(4) == 0) {
+                if (tree.insert(k, tree.stored(k)) != -1) map.put(k, tree.stored(k));
+            }
+            else if (tree.delete(k) != -1) map.remove(k);
+            if (i % 5000 == 4999) {
+                tree.rebuildBalanced();
+                check(map, tree);
+                BalancePolicy other = (policy == BalancePolicy.AVL)? BalancePolicy.WAVL : BalancePolicy.AVL;
+                tree.setBalancePolicy(other);
+                check(map, tree);
+                tree.setBalancePolicy(policy);
+                check(map, tree);
+            }
+        }
+    }
+
+    // split, join, deleteRange and the set operations reuse AVL's join on whatever the heights are; they must
+    // keep WAVL trees valid and hand their policy on
+    @Test
+    void avlTreeStructuralOperationsKeepWavlTrees() {
+        SplittableRandom random = new SplittableRandom(1025);
+        for (int round = 0; round < 200; round++) {
+            AVLTree a = wavlChurned(random, 1 + random.nextInt(3000));
+            AVLTree b = wavlChurned(random, 1 + random.nextInt(3000));
+            if (random.nextBoolean()) b.setBalancePolicy(BalancePolicy.AVL);
+            TreeMap<Integer, Long> expected = contents(a);
+            switch (round % 4) {
+                case 0: {
+                    int k = random.nextInt(8000);
+                    AVLTree[] parts = a.split(k);
+                    checkWavl(expected.headMap(k), parts[0]);
+                    checkWavl(expected.tailMap(k), parts[1]);
+                    if (!parts[0].empty() && !parts[1].empty()) {
+                        int top = parts[0].keysToArray()[parts[0].size() - 1];
+                        int bottom = parts[1].keysToArray()[0];
+                        if (bottom - top > 1) {
+                            AVLTree joined = AVLTree.join(parts[0], top + 1, true, parts[1]);
+                            expected.put(top + 1, 1L);
+                            checkWavl(expected, joined);
+                        }
+                    }
+                    break;
+                }
+                case 1: {
+                    int lo = random.nextInt(8000);
+                    int hi = lo + random.nextInt(3000);
+                    a.deleteRange(lo, hi);
+                    expected.subMap(lo, true, hi, true).clear();
+                    checkWavl(expected, a);
+                    break;
+                }
+                case 2: {
+                    TreeMap<Integer, Long> union = contents(b);
+                    union.putAll(expected);
+                    checkWavl(union, AVLTree.union(a, b, 64));
+                    break;
+                }
+                default: {
+                    TreeMap<Integer, Long> difference = new TreeMap<>(expected);
+                    difference.keySet().removeAll(contents(b).keySet());
+                    checkWavl(difference, AVLTree.difference(a, b, 64));
+                    break;
+                }
+            }
+        }
+    }
+
+    // A WAVL AVLTree of random keys below 8000, after enough deletes to leave 2,2 nodes behind
+    private static AVLTree wavlChurned(SplittableRandom random, int n) {
+        AVLTree tree = new AVLTree();
+        tree.setBalancePolicy(BalancePolicy.WAVL);
+        for (int i = 0; i < n; i++) tree.insert(random.nextInt(8000), random.nextBoolean());
+        for (int i = 0; i < n / 2; i++) tree.delete(random.nextInt(8000));
+        return tree;
+    }
+
+    private static TreeMap<Integer, Long> contents(AVLTree tree) {
+        TreeMap<Integer, Long> map = new TreeMap<>();
+        int[] keys = tree.keysToArray();
+        boolean[] values = tree.infoToArray();
+        for (int i = 0; i < keys.length; i++) map.put(keys[i], (values[i])? 1L : 0L);
+        return map;
+    }
+
+    private static void checkWavl(java.util.SortedMap<Integer, Long> map, AVLTree tree) {
+        assertEquals(BalancePolicy.WAVL, tree.getBalancePolicy());
+        check(new TreeMap<>(map), new AVLTreeSubject(tree));
+    }
+
+    private static void check(TreeMap<Integer, Long> map, Subject tree) {
+        tree.checkInvariants();
+        assertEquals(map.size(), tree.size());
+        assertEquals(new ArrayList<>(map.keySet()), tree.keys());
+        assertEquals(new ArrayList<>(map.values()), tree.values());
+        for (var entry : map.entrySet()) assertEquals(entry.getValue(), tree.search(entry.getKey()));
+        assertEquals(null, tree.search(Integer.MAX_VALUE));
+    }
+
+    /** The invariants of the BalancedTree core, read from its package-private links. */
+    abstract static class BalancedSubject implements Subject {
+        private final BalancedTree<?> tree;
+
+        BalancedSubject(BalancedTree<?> tree) {
+            this.tree = tree;
+        }
+
+        public int size() { return tree.size(); }
+
+        public void setBalancePolicy(BalancePolicy policy) { tree.setBalancePolicy(policy); }
+
+        public void rebuildBalanced() { tree.rebuildBalanced(); }
+
+        public void checkInvariants() {
+            int[] count = new int[1];
+            checkSubtree(tree.root, null, count, tree.getBalancePolicy());
+            assertEquals(tree.size, count[0], "nodes reachable from the root");
+        }
+
+        // Returns the height (the rank under WAVL) of node's subtree
+        private static int checkSubtree(BalancedTree.Node<?> node, BalancedTree.Node<?> parent, int[] count,
+                                        BalancePolicy policy) {
+            if (node == null) return -1;
+            if (node.parent != parent) fail("wrong parent link");
+            count[0]++;
+            int left = checkSubtree(node.left, node, count, policy);
+            int right = checkSubtree(node.right, node, count, policy);
+            checkBalance(node.height, left, right, policy);
+            return node.height;
+        }
+    }
+
+    // AVL: the sons' heights differ by at most one and height is one more than the higher. WAVL: the rank is
+    // one or two more than each son's (-1 for a missing son), and a leaf's rank is 0.
+    static void checkBalance(int height, int left, int right, BalancePolicy policy) {
+        if (policy == BalancePolicy.AVL) {
+            if (Math.abs(left - right) > 1) fail("unbalanced node, heights " + left + " and " + right);
+            if (height != Math.max(left, right) + 1) fail("stale height " + height);
+            return;
+        }
+        if (height - left < 1 || height - left > 2 || height - right < 1 || height - right > 2)
+            fail("rank " + height + " over sons of rank " + left + " and " + right);
+        if (left == -1 && right == -1 && height != 0) fail("leaf of rank " + height);
+    }
+
+    /**
+     * BitsetAVLTree, with the values reduced to their lowest bit. Its tree balances blocks of 4096 keys, so the
+     * keys are spread first: keys below 1000 a block or so apart, so that the tree has many blocks, and the
+     * keys from 1000 on as they are, so that their blocks fill up and switch between the array and bitmap forms.
+     * The spreading keeps the order.
+     */
+    static final class BitsetSubject extends BalancedSubject {
+        private static final int DENSE_FROM = 1000;
+        private static final int STRIDE = 1000;
+        private final BitsetAVLTree tree;
+
+        BitsetSubject(BitsetAVLTree tree) {
+            super(tree);
+            this.tree = tree;
+        }
+
+        static int spread(int k) { return (k >= DENSE_FROM) ? k : DENSE_FROM - (DENSE_FROM - k) * STRIDE; }
+
+        static int unspread(int k) { return (k >= DENSE_FROM) ? k : DENSE_FROM - (DENSE_FROM - k) / STRIDE; }
+
+        public int insert(int k, long v) { return tree.insert(spread(k), v == 1); }
+
+        public int delete(int k) { return tree.delete(spread(k)); }
+
+        public Long search(int k) {
+            Boolean value = tree.search(spread(k));
+            return (value == null) ? null : (value) ? 1L : 0L;
+        }
+
+        public List<Integer> keys() {
+            List<Integer> keys = new ArrayList<>();
+            for (int k : tree.keysToArray()) keys.add(unspread(k));
+            return keys;
+        }
+
+        public List<Long> values() {
+            List<Long> values = new ArrayList<>();
+            for (boolean v : tree.infoToArray()) values.add((v) ? 1L : 0L);
+            return values;
+        }
+
+        public long stored(long v) { return v & 1; }
+
+        // Besides the structure: the block counts add up to size, and countTruesUpTo, which adds the subtree
+        // summaries left of its path, matches the infos at and between every key
+        public void checkInvariants() {
+            super.checkInvariants();
+            int[] items = new int[1];
+            countItems(tree.root, items);
+            assertEquals(tree.size(), items[0], "items in the blocks");
+            int[] keys = tree.keysToArray();
+            boolean[] infos = tree.infoToArray();
+            int trues = 0;
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] > Integer.MIN_VALUE) assertEquals(trues, tree.countTruesUpTo(keys[i] - 1));
+                if (infos[i]) trues++;
+                assertEquals(trues, tree.countTruesUpTo(keys[i]), "countTruesUpTo(" + keys[i] + ")");
+                assertEquals((trues & 1) == 1, tree.prefixXor(keys[i]));
+            }
+        }
+
+        private static void countItems(BitsetAVLTree.Block block, int[] items) {
+            if (block == null) return;
+            items[0] += block.getCount();
+            countItems(block.left, items);
+            countItems(block.right, items);
+        }
+    }
+
+    /** AVLTree, with the values reduced to their lowest bit. */
+    static final class AVLTreeSubject implements Subject {
+        private final AVLTree tree;
+
+        AVLTreeSubject(AVLTree tree) {
+            this.tree = tree;
+        }
+
+        public int insert(int k, long v) { return tree.insert(k, v == 1); }
+
+        public int delete(int k) { return tree.delete(k); }
+
+        public Long search(int k) {
+            Boolean value = tree.search(k);
+            return (value == null) ? null : (value) ? 1L : 0L;
+        }
+
+        public List<Integer> keys() {
+            List<Integer> keys = new ArrayList<>();
+            for (int k : tree.keysToArray()) keys.add(k);
+            return keys;
+        }
+
+        public List<Long> values() {
+            List<Long> values = new ArrayList<>();
+            for (boolean v : tree.infoToArray()) values.add((v) ? 1L : 0L);
+            return values;
+        }
+
+        public int size() { return tree.size(); }
+
+        public long stored(long v) { return v & 1; }
+
+        public void setBalancePolicy(BalancePolicy policy) { tree.setBalancePolicy(policy); }
+
+        public void rebuildBalanced() { tree.rebuildBalanced(); }
+
+        public void checkInvariants() {
+            AVLTree.AVLNode root = tree.getRoot();
+            List<AVLTree.AVLNode> in_order = new ArrayList<>();
+            checkSubtree(root, root.getParent(), in_order, tree.getBalancePolicy());
+            assertEquals(tree.size(), in_order.size(), "nodes reachable from the root");
+            for (int i = 0; i < in_order.size(); i++) {
+                AVLTree.AVLNode node = in_order.get(i);
+                if (i > 0 && in_order.get(i - 1).getKey() >= node.getKey()) fail("keys out of order");
+                AVLTree.AVLNode prev = node.getPrev();
+                AVLTree.AVLNode next = node.getNext();
+                if (i > 0 ? prev != in_order.get(i - 1) : prev.isRealNode()) fail("wrong prev link");
+                if (i + 1 < in_order.size() ? next != in_order.get(i + 1) : next.isRealNode()) fail("wrong next link");
+            }
+        }
+
+        // Returns the height (the rank under WAVL) of node's subtree
+        private static int checkSubtree(AVLTree.AVLNode node, AVLTree.AVLNode parent, List<AVLTree.AVLNode> in_order,
+                                        BalancePolicy policy) {
+            if (!node.isRealNode()) return -1;
+            if (node.getParent() != parent) fail("wrong parent link");
+            int left = checkSubtree(node.getLeft(), node, in_order, policy);
+            in_order.add(node);
+            int right = checkSubtree(node.getRight(), node, in_order, policy);
+            checkBalance(node.getHeight(), left, right, policy);
+            AVLTree.AVLNode l = node.getLeft();
+            AVLTree.AVLNode r = node.getRight();
+            if (node.getSize_of_sub_tree() != l.getSize_of_sub_tree() + r.getSize_of_sub_tree() + 1) {
+                fail("wrong subtree size");
+            }
+            int trues = l.getTrues_in_sub_tree() + r.getTrues_in_sub_tree() + (node.getValue() ? 1 : 0);
+            if (node.getTrues_in_sub_tree() != trues) fail("wrong true count");
+            return node.getHeight();
+        }
+    }
+}
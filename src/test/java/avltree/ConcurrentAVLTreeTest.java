@@ -0,0 +1,135 @@
+package avltree;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Readers and writers on one ConcurrentAVLTree. The even keys are inserted up front and never deleted, the
+ * writers insert and delete odd keys only, so every read of an even key must find it with its value whatever
+ * the writers are rotating at the time.
+ */
+class ConcurrentAVLTreeTest {
+
+    private static final int STABLE_KEYS = 1 << 14;
+    private static final int READERS = 4;
+    private static final int WRITERS = 4;
+    private static final int WRITES_PER_WRITER = 200_000;
+
+    @Test
+    void readersAlwaysFindKeysThatAreNeverDeleted() throws InterruptedException {
+        ConcurrentAVLTree tree = new ConcurrentAVLTree();
+        for (int k = 0; k < STABLE_KEYS; k++) tree.insert(2 * k, stableValue(2 * k));
+        AtomicBoolean writing = new AtomicBoolean(true);
+        AtomicLong reads = new AtomicLong();
+        ConcurrentLinkedQueue<String> failures = new ConcurrentLinkedQueue<>();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int r = 0; r < READERS; r++) {
+            long seed = r;
+            threads.add(new Thread(() -> {
+                await(start);
+                SplittableRandom random = new SplittableRandom(seed);
+                long count = 0;
+                while (writing.get()) {
+                    for (int i = 0; i < 1024; i++, count++) {
+                        int k = 2 * random.nextInt(STABLE_KEYS);
+                        Boolean value = tree.search(k);
+                        if (value == null || value != stableValue(k)) failures.add("search(" + k + ") = " + value);
+                    }
+                    if (!Boolean.valueOf(stableValue(0)).equals(tree.min())) failures.add("min() = " + tree.min());
+                }
+                reads.addAndGet(count);
+            }));
+        }
+        threads.add(new Thread(() -> { // a snapshot reader
+            await(start);
+            while (writing.get()) checkSnapshot(tree, failures);
+        }));
+        List<Thread> writers = new ArrayList<>();
+        for (int w = 0; w < WRITERS; w++) {
+            long seed = 100 + w;
+            writers.add(new Thread(() -> {
+                await(start);
+                SplittableRandom random = new SplittableRandom(seed);
+                for (int i = 0; i < WRITES_PER_WRITER; i++) {
+                    int k = 2 * random.nextInt(STABLE_KEYS) + 1; // odd, never a stable key
+                    if (random.nextBoolean()) tree.insert(k, random.nextBoolean());
+                    else tree.delete(k);
+                }
+            }));
+        }
+        threads.addAll(writers);
+        for (Thread thread : threads) thread.start();
+        start.countDown();
+        for (Thread writer : writers) writer.join();
+        writing.set(false);
+        for (Thread thread : threads) thread.join();
+
+        assertTrue(failures.isEmpty(), () -> failures.size() + " failures, first: " + failures.peek());
+        assertTrue(reads.get() > 0);
+        checkSnapshot(tree, failures);
+        assertTrue(failures.isEmpty(), () -> "after the writers: " + failures.peek());
+        assertEquals(tree.size(), tree.keysToArray().length);
+        for (int k = 0; k < STABLE_KEYS; k++) assertEquals(stableValue(2 * k), tree.search(2 * k));
+    }
+
+    @Test
+    void matchesTreeMapSingleThreaded() {
+        ConcurrentAVLTree tree = new ConcurrentAVLTree();
+        TreeMap<Integer, Boolean> map = new TreeMap<>();
+        SplittableRandom random = new SplittableRandom(5);
+        for (int i = 0; i < 100_000; i++) {
+            int k = random.nextInt(2000);
+            if (random.nextInt(3) > 0) {
+                boolean v = random.nextBoolean();
+                assertEquals(map.containsKey(k), tree.insert(k, v) == -1);
+                map.putIfAbsent(k, v);
+            }
+            else assertEquals(map.remove(k) == null, tree.delete(k) == -1);
+        }
+        assertEquals(map.size(), tree.size());
+        assertArrayEquals(map.keySet().stream().mapToInt(Integer::intValue).toArray(), tree.keysToArray());
+        boolean xor = false;
+        for (var entry : map.entrySet()) {
+            xor ^= entry.getValue();
+            assertEquals(entry.getValue(), tree.search(entry.getKey()));
+            assertEquals(xor, tree.prefixXor(entry.getKey()));
+        }
+    }
+
+    private static boolean stableValue(int k) {
+        return (k & 2) == 0;
+    }
+
+    // keysToArray and infoToArray are taken under the read lock, so each must be sorted and hold every stable key
+    private static void checkSnapshot(ConcurrentAVLTree tree, ConcurrentLinkedQueue<String> failures) {
+        int[] keys = tree.keysToArray();
+        int stable = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (i > 0 && keys[i - 1] >= keys[i]) failures.add("keysToArray not sorted at " + i);
+            if ((keys[i] & 1) == 0) stable++;
+        }
+        if (stable != STABLE_KEYS) failures.add("keysToArray has " + stable + " stable keys");
+        if (tree.infoToArray().length < STABLE_KEYS) failures.add("infoToArray is short");
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
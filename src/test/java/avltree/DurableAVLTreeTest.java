@@ -0,0 +1,63 @@
+package avltree;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DurableAVLTreeTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void deleteOfAMissingKeyLeavesAOneItemTreeAlone() throws IOException {
+        try (DurableAVLTree tree = DurableAVLTree.open(dir, DurableAVLTree.Durability.PER_OP)) {
+            tree.insert(5, true);
+            assertEquals(-1, tree.delete(7));
+            assertEquals(1, tree.size());
+        }
+        try (DurableAVLTree tree = DurableAVLTree.open(dir, DurableAVLTree.Durability.PER_OP)) {
+            assertEquals(true, tree.search(5));
+            assertEquals(0, tree.delete(5));
+            assertEquals(0, tree.size());
+        }
+    }
+
+    // A small snapshot_log_bytes makes the tree rotate its snapshot many times along the way
+    @Test
+    void reopensWithEveryMutationAcrossSnapshots() throws IOException {
+        TreeMap<Integer, Boolean> map = new TreeMap<>();
+        SplittableRandom random = new SplittableRandom(19);
+        for (int round = 0; round < 3; round++) {
+            try (DurableAVLTree tree = DurableAVLTree.open(dir, DurableAVLTree.Durability.BATCHED, 4096)) {
+                check(map, tree);
+                for (int i = 0; i < 5000; i++) {
+                    int k = random.nextInt(500);
+                    if (random.nextInt(3) > 0) {
+                        boolean v = random.nextBoolean();
+                        assertEquals(map.containsKey(k), tree.insert(k, v) == -1);
+                        map.putIfAbsent(k, v);
+                    }
+                    else assertEquals(map.remove(k) == null, tree.delete(k) == -1);
+                }
+            }
+        }
+        try (DurableAVLTree tree = DurableAVLTree.open(dir, DurableAVLTree.Durability.NONE)) {
+            check(map, tree);
+        }
+    }
+
+    private static void check(TreeMap<Integer, Boolean> map, DurableAVLTree tree) {
+        assertArrayEquals(map.keySet().stream().mapToInt(Integer::intValue).toArray(), tree.keysToArray());
+        boolean[] values = tree.infoToArray();
+        int index = 0;
+        for (boolean value : map.values()) assertEquals(value, values[index++]);
+    }
+}
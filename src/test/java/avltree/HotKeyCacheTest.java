@@ -0,0 +1,80 @@
+package avltree;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HotKeyCacheTest {
+
+    private final AVLTree tree = new AVLTree();
+
+    @Test
+    void capacityIsRoundedUpToAPowerOfTwoOfWholeSets() {
+        assertEquals(HotKeyCache.WAYS, new HotKeyCache(0).capacity());
+        assertEquals(HotKeyCache.WAYS, new HotKeyCache(1).capacity());
+        assertEquals(8, new HotKeyCache(5).capacity());
+        assertEquals(4096, new HotKeyCache(4096).capacity());
+        assertEquals(8192, new HotKeyCache(4097).capacity());
+    }
+
+    @Test
+    void entriesStayUntilRemovedOrCleared() {
+        HotKeyCache cache = new HotKeyCache(1024);
+        AVLTree.AVLNode[] nodes = new AVLTree.AVLNode[16];
+        for (int k = 0; k < nodes.length; k++) {
+            nodes[k] = tree.new AVLNode(k, k % 3 == 0);
+            assertNull(cache.get(k));
+            cache.admit(k, nodes[k]);
+        }
+        for (int k = 0; k < nodes.length; k++) assertSame(nodes[k], cache.get(k));
+        cache.remove(5);
+        cache.remove(100); // not cached
+        assertNull(cache.get(5));
+        assertSame(nodes[6], cache.get(6));
+        cache.clear();
+        for (int k = 0; k < nodes.length; k++) assertNull(cache.get(k));
+    }
+
+    // One set of WAYS slots: a key seen once does not push out the hot keys, a key seen more often than them does
+    @Test
+    void admitsOnlyKeysSeenMoreOftenThanTheVictim() {
+        HotKeyCache cache = new HotKeyCache(HotKeyCache.WAYS);
+        for (int k = 0; k < HotKeyCache.WAYS; k++) {
+            for (int i = 0; i < 3; i++) cache.get(k);
+            cache.admit(k, tree.new AVLNode(k, true));
+        }
+        assertNull(cache.get(100));
+        cache.admit(100, tree.new AVLNode(100, true));
+        assertNull(cache.get(100));
+        for (int k = 0; k < HotKeyCache.WAYS; k++) assertNotNull(cache.get(k), "hot key " + k + " evicted");
+
+        AVLTree.AVLNode rising = tree.new AVLNode(200, false);
+        int lookups = 0;
+        while (cache.get(200) == null && lookups++ < 12) cache.admit(200, rising);
+        assertSame(rising, cache.get(200));
+    }
+
+    // Uniform traffic that never hits turns the cache off for most searches; hits on the sampled searches turn it on
+    @Test
+    void bypassesItselfWhileItDoesNotHit() {
+        HotKeyCache cache = new HotKeyCache(64);
+        for (int k = 0; k < HotKeyCache.WINDOW; k++) {
+            assertTrue(cache.consult());
+            cache.get(k);
+        }
+        int consulted = 0;
+        for (int i = 0; i < 100 * HotKeyCache.BYPASS_SAMPLE; i++) if (cache.consult()) consulted++;
+        assertEquals(100, consulted);
+
+        AVLTree.AVLNode hot = tree.new AVLNode(7, true);
+        cache.admit(7, hot);
+        for (int i = 0; i < (HotKeyCache.WINDOW + 1) * HotKeyCache.BYPASS_SAMPLE; i++) {
+            if (cache.consult()) assertSame(hot, cache.get(7)); // only the sampled searches reach the cache
+        }
+        for (int i = 0; i < 100 * HotKeyCache.BYPASS_SAMPLE; i++) assertTrue(cache.consult());
+    }
+}
@@ -0,0 +1,135 @@
+package avltree;
+
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Every IntBooleanTree against a TreeMap: random inserts and deletes over key ranges from tiny (the tree keeps
+ * emptying) through dense (full BTree nodes, bitmap blocks in BitsetAVLTree) to the whole int range, with every
+ * operation's result compared as it happens and every query of the interface compared at checkpoints.
+ */
+class IntBooleanTreeTest {
+
+    enum Implementation {
+        AVL { IntBooleanTree open(Path dir) { return new AVLTree(); } },
+        ARRAY { IntBooleanTree open(Path dir) { return new ArrayAVLTree(16); } },
+        BITSET { IntBooleanTree open(Path dir) { return new BitsetAVLTree(); } },
+        B { IntBooleanTree open(Path dir) { return new BTree(); } },
+        CONCURRENT { IntBooleanTree open(Path dir) { return new ConcurrentAVLTree(); } },
+        DURABLE {
+            IntBooleanTree open(Path dir) throws IOException {
+                return DurableAVLTree.open(dir, DurableAVLTree.Durability.NONE, 1 << 16);
+            }
+        },
+        MAPPED { IntBooleanTree open(Path dir) throws IOException { return MappedAVLTree.open(dir.resolve("tree")); } },
+        PERSISTENT { IntBooleanTree open(Path dir) { return new PersistentAVLTree(); } },
+        PIPELINED { IntBooleanTree open(Path dir) { return new PipelinedAVLTree(); } },
+        SHARDED { IntBooleanTree open(Path dir) { return new ShardedAVLTree(4); } };
+
+        // dir is a fresh directory the tree may keep its files in
+        abstract IntBooleanTree open(Path dir) throws IOException;
+    }
+
+    @TempDir
+    Path dir;
+
+    @ParameterizedTest
+    @EnumSource(Implementation.class)
+    void matchesTreeMap(Implementation implementation) throws Exception {
+        SplittableRandom random = new SplittableRandom(3);
+        int[] ranges = {1, 8, 300, 4000, 20_000, -1}; // -1: any int
+        for (int round = 0; round < 2 * ranges.length; round++) {
+            int range = ranges[round % ranges.length];
+            IntBooleanTree tree = implementation.open(Files.createDirectories(dir.resolve("round" + round)));
+            try {
+                TreeMap<Integer, Boolean> map = new TreeMap<>();
+                check(map, tree, random);
+                int ops = 2000 + random.nextInt(6000);
+                for (int i = 0; i < ops; i++) {
+                    int k = (range < 0) ? random.nextInt() : random.nextInt(range) - range / 4;
+                    if (random.nextInt(3) > 0) {
+                        boolean v = random.nextBoolean();
+                        boolean present = map.containsKey(k);
+                        assertEquals(present, tree.insert(k, v) == -1, () -> "insert(" + k + ")");
+                        if (!present) map.put(k, v);
+                    }
+                    else {
+                        boolean present = map.remove(k) != null;
+                        assertEquals(present, tree.delete(k) != -1, () -> "delete(" + k + ")");
+                    }
+                    assertEquals(map.get(k), tree.search(k));
+                    if (i % 997 == 0) check(map, tree, random);
+                }
+                check(map, tree, random);
+                // and empties the tree again
+                for (int k : map.keySet().stream().mapToInt(Integer::intValue).toArray()) {
+                    assertEquals(map.remove(k) != null, tree.delete(k) != -1);
+                }
+                check(map, tree, random);
+            } finally {
+                if (tree instanceof AutoCloseable closeable) closeable.close();
+            }
+        }
+    }
+
+    private static void check(TreeMap<Integer, Boolean> map, IntBooleanTree tree, SplittableRandom random) {
+        assertEquals(map.size(), tree.size());
+        assertEquals(map.isEmpty(), tree.empty());
+        assertArrayEquals(map.keySet().stream().mapToInt(Integer::intValue).toArray(), tree.keysToArray());
+        boolean[] values = new boolean[map.size()];
+        int i = 0;
+        boolean xor = false;
+        for (Map.Entry<Integer, Boolean> entry : map.entrySet()) {
+            values[i++] = entry.getValue();
+            xor ^= entry.getValue();
+            assertEquals(entry.getValue(), tree.search(entry.getKey()));
+            assertEquals(xor, tree.prefixXor(entry.getKey()), "prefixXor(" + entry.getKey() + ")");
+        }
+        assertArrayEquals(values, tree.infoToArray());
+        if (map.isEmpty()) {
+            assertNull(tree.min());
+            assertNull(tree.max());
+        }
+        else {
+            assertEquals(map.firstEntry().getValue(), tree.min());
+            assertEquals(map.lastEntry().getValue(), tree.max());
+        }
+
+        // present keys, their neighbours and random ones, in random order
+        int[] keys = new int[2 * map.size() + 64];
+        i = 0;
+        for (int k : map.keySet()) {
+            keys[i++] = k;
+            keys[i++] = k + 1;
+        }
+        while (i < keys.length) keys[i++] = random.nextInt();
+        for (int j = keys.length - 1; j > 0; j--) {
+            int swap = random.nextInt(j + 1);
+            int key = keys[j];
+            keys[j] = keys[swap];
+            keys[swap] = key;
+        }
+        byte[] out = new byte[keys.length + 1];
+        out[keys.length] = 42;
+        tree.searchBatch(keys, out);
+        for (int j = 0; j < keys.length; j++) {
+            Boolean info = map.get(keys[j]);
+            assertEquals((info == null) ? -1 : (info) ? 1 : 0, out[j], "searchBatch at " + keys[j]);
+        }
+        assertEquals(42, out[keys.length]); // nothing written past keys.length
+        assertThrows(IllegalArgumentException.class, () -> tree.searchBatch(keys, new byte[keys.length - 1]));
+    }
+}
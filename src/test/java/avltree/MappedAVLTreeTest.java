@@ -0,0 +1,161 @@
+package avltree;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * A crash is simulated by copying the file while the tree that writes it is still open: the copy holds what a
+ * process killed at that moment would have left on disk.
+ */
+class MappedAVLTreeTest {
+
+    // The two header slots, as MappedAVLTree lays them out
+    private static final int SLOT_BYTES = 64;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void reopensWhatWasCommitted() throws IOException {
+        Path file = dir.resolve("tree");
+        TreeMap<Integer, Boolean> map = new TreeMap<>();
+        SplittableRandom random = new SplittableRandom(2);
+        for (int round = 0; round < 4; round++) {
+            try (MappedAVLTree tree = MappedAVLTree.open(file)) {
+                check(map, tree);
+                mutate(tree, map, random, 3000);
+                tree.commit();
+                mutate(tree, map, random, 500); // committed by close
+            }
+        }
+        try (MappedAVLTree tree = MappedAVLTree.open(file)) {
+            check(map, tree);
+        }
+    }
+
+    @Test
+    void rollsBackWhatWasNotCommitted() throws IOException {
+        Path file = dir.resolve("tree");
+        Path crashed = dir.resolve("crashed");
+        TreeMap<Integer, Boolean> map = new TreeMap<>();
+        SplittableRandom random = new SplittableRandom(3);
+        try (MappedAVLTree tree = MappedAVLTree.open(file)) {
+            mutate(tree, map, random, 3000);
+            tree.commit();
+            mutate(tree, new TreeMap<>(map), random, 3000);
+            Files.copy(file, crashed);
+        }
+        try (MappedAVLTree tree = MappedAVLTree.open(crashed)) {
+            check(map, tree);
+        }
+    }
+
+    // A crash while commit writes the newest header slot leaves a slot whose checksum does not match
+    @Test
+    void recoversFromATornNewestHeader() throws IOException {
+        Path file = dir.resolve("tree");
+        Path crashed = dir.resolve("crashed");
+        TreeMap<Integer, Boolean> map = new TreeMap<>();
+        SplittableRandom random = new SplittableRandom(4);
+        try (MappedAVLTree tree = MappedAVLTree.open(file)) {
+            mutate(tree, map, random, 3000);
+            tree.commit();
+            mutate(tree, new TreeMap<>(map), random, 3000);
+            tree.commit();
+            Files.copy(file, crashed);
+        }
+        tearNewestSlot(crashed);
+        try (MappedAVLTree tree = MappedAVLTree.open(crashed)) {
+            check(map, tree);
+            tree.insert(-1, true); // and goes on from there
+        }
+        map.put(-1, true);
+        try (MappedAVLTree tree = MappedAVLTree.open(crashed)) {
+            check(map, tree);
+        }
+    }
+
+    @Test
+    void refusesAFileThatIsNotATree() throws IOException {
+        Path file = dir.resolve("other");
+        byte[] content = new byte[10_000];
+        new SplittableRandom(5).nextBytes(content);
+        Files.write(file, content);
+        assertThrows(IOException.class, () -> MappedAVLTree.open(file));
+        assertArrayEquals(content, Files.readAllBytes(file));
+
+        Path small = dir.resolve("small");
+        Files.write(small, new byte[]{1, 2, 3});
+        assertThrows(IOException.class, () -> MappedAVLTree.open(small));
+        assertArrayEquals(new byte[]{1, 2, 3}, Files.readAllBytes(small));
+    }
+
+    @Test
+    void refusesATreeWhoseHeadersAreBothDamaged() throws IOException {
+        Path file = dir.resolve("tree");
+        try (MappedAVLTree tree = MappedAVLTree.open(file)) {
+            tree.insert(1, true);
+        }
+        byte[] content = Files.readAllBytes(file);
+        content[16] ^= 1;
+        content[SLOT_BYTES + 16] ^= 1;
+        Files.write(file, content);
+        assertThrows(IOException.class, () -> MappedAVLTree.open(file));
+        assertArrayEquals(content, Files.readAllBytes(file));
+    }
+
+    // Flips a bit of the root of the slot with the higher epoch
+    private static void tearNewestSlot(Path file) throws IOException {
+        byte[] content = Files.readAllBytes(file);
+        ByteBuffer header = ByteBuffer.wrap(content).order(ByteOrder.LITTLE_ENDIAN);
+        int newest = (header.getLong(8) > header.getLong(SLOT_BYTES + 8)) ? 0 : SLOT_BYTES;
+        content[newest + 16] ^= 1;
+        Path torn = file.resolveSibling(file.getFileName() + ".torn");
+        Files.write(torn, content);
+        Files.move(torn, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static void mutate(MappedAVLTree tree, TreeMap<Integer, Boolean> map, SplittableRandom random, int ops) {
+        for (int i = 0; i < ops; i++) {
+            int k = random.nextInt(2000);
+            if (random.nextInt(3) > 0) {
+                boolean v = random.nextBoolean();
+                assertEquals(map.containsKey(k), tree.insert(k, v) == -1);
+                map.putIfAbsent(k, v);
+            }
+            else assertEquals(map.remove(k) == null, tree.delete(k) == -1);
+        }
+    }
+
+    private static void check(TreeMap<Integer, Boolean> map, MappedAVLTree tree) {
+        assertEquals(map.size(), tree.size());
+        assertArrayEquals(map.keySet().stream().mapToInt(Integer::intValue).toArray(), tree.keysToArray());
+        boolean[] values = new boolean[map.size()];
+        int i = 0;
+        boolean xor = false;
+        for (var entry : map.entrySet()) {
+            values[i++] = entry.getValue();
+            xor ^= entry.getValue();
+            assertEquals(entry.getValue(), tree.search(entry.getKey()));
+            assertEquals(xor, tree.prefixXor(entry.getKey()));
+        }
+        assertArrayEquals(values, tree.infoToArray());
+        if (!map.isEmpty()) {
+            assertEquals(map.firstEntry().getValue(), tree.min());
+            assertEquals(map.lastEntry().getValue(), tree.max());
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package avltree;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PersistentAVLTreeTest {
+
+    @Test
+    void snapshotsKeepTheirVersion() {
+        PersistentAVLTree tree = new PersistentAVLTree();
+        TreeMap<Integer, Boolean> map = new TreeMap<>();
+        List<PersistentAVLTree> snapshots = new ArrayList<>();
+        List<TreeMap<Integer, Boolean>> expected = new ArrayList<>();
+        SplittableRandom random = new SplittableRandom(6);
+        for (int i = 0; i < 20_000; i++) {
+            int k = random.nextInt(1000);
+            if (random.nextInt(3) > 0) {
+                boolean v = random.nextBoolean();
+                assertEquals(map.containsKey(k), tree.insert(k, v) == -1);
+                map.putIfAbsent(k, v);
+            }
+            else assertEquals(map.remove(k) == null, tree.delete(k) == -1);
+            if (i % 1000 == 0) {
+                snapshots.add(tree.snapshot());
+                expected.add(new TreeMap<>(map));
+            }
+        }
+        snapshots.add(tree);
+        expected.add(map);
+        for (int i = 0; i < snapshots.size(); i++) check(expected.get(i), snapshots.get(i));
+    }
+
+    @Test
+    void snapshotsAreReadOnly() {
+        PersistentAVLTree tree = new PersistentAVLTree();
+        tree.insert(1, true);
+        PersistentAVLTree snapshot = tree.snapshot();
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.insert(2, true));
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.delete(1));
+        tree.delete(1);
+        assertNull(tree.min());
+        assertEquals(true, snapshot.min());
+    }
+
+    // The writer hands every snapshot to a reader thread; each must show exactly the items it was taken with
+    @Test
+    void snapshotsCanBeHandedToAnotherThread() throws InterruptedException {
+        int snapshots = 2000;
+        BlockingQueue<PersistentAVLTree> handoff = new ArrayBlockingQueue<>(16);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            try {
+                for (int i = 1; i <= snapshots; i++) {
+                    PersistentAVLTree snapshot = handoff.take();
+                    assertEquals(i, snapshot.size());
+                    assertEquals(i, snapshot.keysToArray().length);
+                    assertEquals(true, snapshot.min());
+                    assertEquals(i % 2 == 1, snapshot.max());
+                    assertEquals((i + 1) / 2 % 2 == 1, snapshot.prefixXor(i - 1));
+                }
+            } catch (Throwable e) {
+                failure.set(e);
+            }
+        });
+        reader.start();
+        PersistentAVLTree tree = new PersistentAVLTree();
+        for (int k = 0; k < snapshots; k++) {
+            tree.insert(k, k % 2 == 0);
+            handoff.put(tree.snapshot());
+        }
+        reader.join();
+        if (failure.get() != null) throw new AssertionError(failure.get());
+    }
+
+    private static void check(TreeMap<Integer, Boolean> map, PersistentAVLTree tree) {
+        assertEquals(map.size(), tree.size());
+        assertEquals(map.isEmpty(), tree.empty());
+        assertArrayEquals(map.keySet().stream().mapToInt(Integer::intValue).toArray(), tree.keysToArray());
+        boolean[] values = tree.infoToArray();
+        int index = 0;
+        boolean xor = false;
+        for (var entry : map.entrySet()) {
+            assertEquals(entry.getValue(), values[index++]);
+            assertEquals(entry.getValue(), tree.search(entry.getKey()));
+            xor ^= entry.getValue();
+            assertEquals(xor, tree.prefixXor(entry.getKey()));
+        }
+        if (!map.isEmpty()) {
+            assertEquals(map.firstEntry().getValue(), tree.min());
+            assertEquals(map.lastEntry().getValue(), tree.max());
+        }
+    }
+}
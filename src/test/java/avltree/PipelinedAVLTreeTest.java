@@ -0,0 +1,174 @@
+package avltree;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.fail;
+
+class PipelinedAVLTreeTest {
+
+    private static final int CLIENTS = 8;
+    private static final int KEYS_PER_CLIENT = 1 << 20;
+
+    // Clients write their own keys, blocking and async, while close() lands at a different point in every round.
+    // Every future a client got must complete, normally or with IllegalStateException, and a completed write
+    // must be visible to search at once.
+    @Test
+    void everyFutureCompletesWhenCloseRacesTheClients() throws Exception {
+        SplittableRandom seeds = new SplittableRandom(22);
+        for (int round = 0; round < 40; round++) {
+            PipelinedAVLTree tree = new PipelinedAVLTree(16);
+            AtomicInteger progress = new AtomicInteger();
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+            List<List<CompletableFuture<Integer>>> futures = new ArrayList<>();
+            List<Thread> clients = new ArrayList<>();
+            for (int c = 0; c < CLIENTS; c++) {
+                List<CompletableFuture<Integer>> own = new ArrayList<>();
+                futures.add(own);
+                int first_key = c * KEYS_PER_CLIENT;
+                long seed = seeds.nextLong();
+                clients.add(new Thread(() -> {
+                    try {
+                        writeUntilClosed(tree, first_key, new SplittableRandom(seed), own, progress, failure);
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    }
+                }));
+            }
+            clients.forEach(Thread::start);
+            int close_after = seeds.nextInt(3000);
+            while (progress.get() < close_after && clients.stream().anyMatch(Thread::isAlive)) Thread.onSpinWait();
+            tree.close();
+            for (Thread client : clients) {
+                client.join(TimeUnit.SECONDS.toMillis(30));
+                assertFalse(client.isAlive(), "a client is still blocked after close");
+            }
+            if (failure.get() != null) throw new AssertionError("round " + round, failure.get());
+            for (List<CompletableFuture<Integer>> own : futures) {
+                for (CompletableFuture<Integer> future : own) checkCompleted(future);
+            }
+            assertThrows(IllegalStateException.class, () -> tree.insert(-1, true));
+        }
+    }
+
+    // Until the tree refuses a write: blocking inserts checked at once, async inserts checked when they complete,
+    // and deletes of keys inserted before
+    private static void writeUntilClosed(PipelinedAVLTree tree, int first_key, SplittableRandom random,
+                                         List<CompletableFuture<Integer>> futures, AtomicInteger progress,
+                                         AtomicReference<Throwable> failure) {
+        int next = first_key;
+        List<Integer> inserted = new ArrayList<>();
+        while (true) {
+            int k = next++;
+            boolean v = random.nextBoolean();
+            try {
+                int op = random.nextInt(4);
+                if (op == 0) {
+                    tree.insert(k, v);
+                    assertEquals(v, tree.search(k), "own blocking insert not visible");
+                    inserted.add(k);
+                }
+                else if (op == 1 && !inserted.isEmpty()) {
+                    int d = inserted.remove(inserted.size() - 1);
+                    assertNotEquals(-1, tree.delete(d));
+                    assertNull(tree.search(d), "own blocking delete not visible");
+                }
+                else {
+                    CompletableFuture<Integer> future = tree.insertAsync(k, v);
+                    futures.add(future);
+                    future.thenRun(() -> { // runs as soon as the future completes
+                        if (!Boolean.valueOf(v).equals(tree.search(k))) {
+                            failure.compareAndSet(null, new AssertionError("completed async insert not visible"));
+                        }
+                    });
+                }
+            } catch (IllegalStateException | CompletionException e) {
+                if (e instanceof CompletionException) assertInstanceOf(IllegalStateException.class, e.getCause());
+                return;
+            }
+            progress.incrementAndGet();
+        }
+    }
+
+    private static void checkCompleted(CompletableFuture<Integer> future) throws InterruptedException {
+        try {
+            future.get(30, TimeUnit.SECONDS);
+            assertFalse(future.isCompletedExceptionally());
+        } catch (TimeoutException e) {
+            fail("a future never completed");
+        } catch (ExecutionException e) {
+            assertInstanceOf(IllegalStateException.class, e.getCause());
+        }
+    }
+
+    // A tree that throws an Error on the insert of POISON, once released
+    private static final class FailingTree extends PersistentAVLTree {
+        static final int POISON = 666;
+        final CountDownLatch release = new CountDownLatch(1);
+        final Error error = new StackOverflowError("poisoned");
+
+        @Override
+        public int insert(int k, boolean i) {
+            if (k != POISON) return super.insert(k, i);
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            throw error;
+        }
+    }
+
+    // An Error in the owner thread must not leave anyone waiting: not the batch, not the queue, not a caller
+    // blocked on the full queue, and later writes are refused
+    @Test
+    void anErrorInTheOwnerFailsEveryPendingWrite() throws Exception {
+        FailingTree failing = new FailingTree();
+        PipelinedAVLTree tree = new PipelinedAVLTree(8, failing);
+        assertNotEquals(-1, tree.insert(1, true));
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+        futures.add(tree.insertAsync(FailingTree.POISON, true));
+        for (int k = 10; k < 18; k++) futures.add(tree.insertAsync(k, true)); // fills the queue behind POISON
+        List<CompletableFuture<Integer>> blocked_futures = new ArrayList<>();
+        Thread blocked = new Thread(() -> {
+            try {
+                for (int k = 100; k < 120; k++) blocked_futures.add(tree.insertAsync(k, true));
+            } catch (IllegalStateException e) {
+                // the tree closed before this one was queued
+            }
+        });
+        blocked.start();
+        failing.release.countDown();
+        blocked.join(TimeUnit.SECONDS.toMillis(30));
+        assertFalse(blocked.isAlive(), "a caller is still blocked on the queue");
+        futures.addAll(blocked_futures);
+        for (CompletableFuture<Integer> future : futures) {
+            ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(30, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalStateException.class, e.getCause());
+            assertSame(failing.error, e.getCause().getCause());
+        }
+        assertThrows(IllegalStateException.class, () -> tree.insert(2, true));
+        assertThrows(IllegalStateException.class, () -> tree.delete(1));
+        assertEquals(true, tree.search(1)); // reads keep the last published version
+        tree.close();
+        assertEquals(1, tree.snapshot().size());
+    }
+}
@@ -0,0 +1,53 @@
+package avltree;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class ShardedAVLTreeTest {
+
+    @Test
+    void deleteOfAMissingKeyLeavesAOneItemShardAlone() {
+        ShardedAVLTree tree = new ShardedAVLTree(4);
+        tree.insert(5, true);
+        assertEquals(-1, tree.delete(7));
+        assertEquals(1, tree.size());
+        assertEquals(true, tree.search(5));
+    }
+
+    // Most writes go to a narrow hot range, so the shards keep moving their boundaries towards it
+    @Test
+    void matchesTreeMapWhileBoundariesMove() {
+        ShardedAVLTree tree = new ShardedAVLTree(4);
+        int[] initial_bounds = tree.shardBounds();
+        TreeMap<Integer, Boolean> map = new TreeMap<>();
+        SplittableRandom random = new SplittableRandom(21);
+        for (int i = 0; i < 400_000; i++) {
+            int k = (random.nextInt(10) > 0) ? random.nextInt(4096) : random.nextInt();
+            if (random.nextInt(3) > 0) {
+                boolean v = random.nextBoolean();
+                assertEquals(map.containsKey(k), tree.insert(k, v) == -1);
+                map.putIfAbsent(k, v);
+            }
+            else assertEquals(map.remove(k) == null, tree.delete(k) == -1);
+        }
+        assertNotEquals(initial_bounds[1], tree.shardBounds()[1]);
+        assertEquals(map.size(), tree.size());
+        assertArrayEquals(map.keySet().stream().mapToInt(Integer::intValue).toArray(), tree.keysToArray());
+        assertEquals(map.firstEntry().getValue(), tree.min());
+        assertEquals(map.lastEntry().getValue(), tree.max());
+        boolean xor = false;
+        int checked = 0;
+        for (var entry : map.entrySet()) {
+            xor ^= entry.getValue();
+            if (checked++ % 97 != 0) continue;
+            assertEquals(entry.getValue(), tree.search(entry.getKey()));
+            assertEquals(xor, tree.prefixXor(entry.getKey()));
+        }
+    }
+}